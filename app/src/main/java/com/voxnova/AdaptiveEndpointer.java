@@ -0,0 +1,172 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides that the user has finished speaking, usually well before the
+ * recognizer's fixed silence timeout would.
+ *
+ * The recognizer's onRmsChanged levels are split into speech and silence
+ * against a tracked noise floor. Pauses inside an utterance (silence followed
+ * by more speech) teach the endpointer how long this user tends to pause; a
+ * silence clearly longer than that ends the turn. The learned pause length
+ * is kept in its own SharedPreferences file, and the timeout never exceeds
+ * the configured silence timeout.
+ */
+public class AdaptiveEndpointer {
+    private static final String PREFS_NAME = "voxnova_endpointer";
+    private static final double SPEECH_MARGIN_DB = 4;
+    private static final double FLOOR_ALPHA = 0.1;
+    private static final double PAUSE_ALPHA = 0.15;
+    // Pauses shorter than this are gaps between syllables, not between words
+    private static final long MIN_PAUSE_MS = 150;
+    private static final long MIN_SPEECH_MS = 300;
+    private static final long MIN_TIMEOUT_MS = 600;
+    private static final long TIMEOUT_MARGIN_MS = 200;
+    private static final double PAUSE_DEVIATIONS = 2.5;
+    // Until this many pauses are seen the configured timeout is used as is
+    private static final int MIN_PAUSE_SAMPLES = 3;
+
+    private static AdaptiveEndpointer instance;
+
+    private static final AtomicLong turns = new AtomicLong();
+    private static final AtomicLong earlyEnds = new AtomicLong();
+    private static final AtomicLong savedMsTotal = new AtomicLong();
+
+    private final SharedPreferences store;
+    private double pauseMeanMs;
+    private double pauseVarMs2;
+    private int pauseSamples;
+
+    // Per turn
+    private long maxSilenceMs;
+    private double floorDb;
+    private boolean floorSet;
+    private long speechStartedAt;
+    private long speechMs;
+    private long silenceStartedAt;
+    private long lastLevelAt;
+    private boolean ended;
+
+    public static synchronized AdaptiveEndpointer getInstance(Context context) {
+        if (instance == null) {
+            instance = new AdaptiveEndpointer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AdaptiveEndpointer(Context context) {
+        this(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+
+    AdaptiveEndpointer(SharedPreferences store) {
+        this.store = store;
+        pauseMeanMs = store.getFloat("pauseMean", 500);
+        pauseVarMs2 = store.getFloat("pauseVar", 250 * 250);
+        pauseSamples = store.getInt("pauseSamples", 0);
+    }
+
+    /**
+     * Start a turn whose silence timeout is configured as maxSilenceMs.
+     */
+    public synchronized void begin(long maxSilenceMs) {
+        this.maxSilenceMs = maxSilenceMs;
+        floorSet = false;
+        speechStartedAt = 0;
+        speechMs = 0;
+        silenceStartedAt = 0;
+        lastLevelAt = 0;
+        ended = false;
+        turns.incrementAndGet();
+    }
+
+    /**
+     * Feed one input level. Returns true, once per turn, when the utterance
+     * should be considered complete.
+     */
+    public boolean onLevel(float rmsDb) {
+        return onLevel(rmsDb, SystemClock.elapsedRealtime());
+    }
+
+    synchronized boolean onLevel(float rmsDb, long now) {
+        if (ended) return false;
+        long elapsed = lastLevelAt == 0 ? 0 : now - lastLevelAt;
+        lastLevelAt = now;
+        if (!floorSet) {
+            floorDb = rmsDb;
+            floorSet = true;
+            return false;
+        }
+
+        boolean speech = rmsDb > floorDb + SPEECH_MARGIN_DB;
+        if (speech) {
+            if (speechStartedAt == 0) speechStartedAt = now;
+            if (silenceStartedAt != 0) {
+                learnPause(now - silenceStartedAt);
+                silenceStartedAt = 0;
+            }
+            speechMs += elapsed;
+            return false;
+        }
+
+        floorDb += FLOOR_ALPHA * (rmsDb - floorDb);
+        if (speechStartedAt == 0 || speechMs < MIN_SPEECH_MS) return false;
+        if (silenceStartedAt == 0) {
+            silenceStartedAt = now;
+            return false;
+        }
+        long silenceMs = now - silenceStartedAt;
+        long timeoutMs = currentTimeoutMs();
+        if (silenceMs < timeoutMs || timeoutMs >= maxSilenceMs) return false;
+
+        ended = true;
+        long savedMs = maxSilenceMs - silenceMs;
+        earlyEnds.incrementAndGet();
+        savedMsTotal.addAndGet(savedMs);
+        DebugLogger.log("Endpoint after " + silenceMs + "ms of silence (timeout " + timeoutMs
+                + "ms), " + savedMs + "ms of tail saved");
+        return true;
+    }
+
+    /**
+     * The turn ended, early or not; persist what was learned.
+     */
+    public synchronized void end() {
+        if (!ended) DebugLogger.log("Endpoint by recognizer, 0ms of tail saved");
+        ended = true;
+        store.edit()
+                .putFloat("pauseMean", (float) pauseMeanMs)
+                .putFloat("pauseVar", (float) pauseVarMs2)
+                .putInt("pauseSamples", pauseSamples)
+                .apply();
+    }
+
+    /**
+     * Silence longer than this ends the turn: the user's usual pause plus a
+     * few deviations, bounded by the configured timeout.
+     */
+    public synchronized long currentTimeoutMs() {
+        if (pauseSamples < MIN_PAUSE_SAMPLES) return maxSilenceMs;
+        long timeout = Math.round(pauseMeanMs + PAUSE_DEVIATIONS * Math.sqrt(pauseVarMs2)) + TIMEOUT_MARGIN_MS;
+        return Math.max(MIN_TIMEOUT_MS, Math.min(maxSilenceMs, timeout));
+    }
+
+    private void learnPause(long pauseMs) {
+        if (pauseMs < MIN_PAUSE_MS || pauseMs >= maxSilenceMs) return;
+        double diff = pauseMs - pauseMeanMs;
+        pauseMeanMs += PAUSE_ALPHA * diff;
+        pauseVarMs2 = (1 - PAUSE_ALPHA) * (pauseVarMs2 + PAUSE_ALPHA * diff * diff);
+        pauseSamples++;
+    }
+
+    public synchronized String getStatsSummary() {
+        long count = turns.get();
+        return "pause " + Math.round(pauseMeanMs) + "±" + Math.round(Math.sqrt(pauseVarMs2)) + "ms over "
+                + pauseSamples + " pauses, " + earlyEnds.get() + "/" + count + " turns ended early"
+                + (count == 0 ? "" : ", avg " + savedMsTotal.get() / count + "ms saved per turn");
+    }
+}
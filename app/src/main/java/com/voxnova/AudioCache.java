@@ -0,0 +1,311 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content-addressed cache of synthesized speech.
+ *
+ * Entries are keyed by provider, voice, language, audio format and normalized
+ * text. A small in-memory LRU sits in front of a size-bounded LRU directory in
+ * the app cache dir. Shared by all sessions in the process.
+ *
+ * The disk index is built on a background thread, so creating the cache
+ * costs no I/O; disk lookups wait for it, contains() does not. File reads
+ * and writes happen outside the lock, which only guards the indexes.
+ */
+public class AudioCache {
+    private static final String DIR_NAME = "tts_cache";
+    private static final int MEMORY_BYTES = 2 * 1024 * 1024;
+    private static final long DISK_BYTES = 20L * 1024 * 1024;
+    private static final String EXT_MP3 = ".mp3";
+    private static final String EXT_PCM = ".pcm";
+    // Stands in for a segment of an answer that was spoken without being cached
+    public static final String UNCACHED = "uncached";
+
+    private static AudioCache instance;
+
+    public static class CachedAudio {
+        public final byte[] data;
+        public final boolean pcm;
+
+        CachedAudio(byte[] data, boolean pcm) {
+            this.data = data;
+            this.pcm = pcm;
+        }
+    }
+
+    private final File dir;
+    private final LruCache<String, CachedAudio> memory;
+    // Access-ordered index of files on disk: key -> size
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(64, 0.75f, true);
+    private long diskBytes = 0;
+    private final CountDownLatch indexLoaded = new CountDownLatch(1);
+
+    private long memoryHits = 0;
+    private long diskHits = 0;
+    private long misses = 0;
+    private long bytesSaved = 0;
+    private long memoryEvictions = 0;
+    private long diskEvictions = 0;
+
+    // Keys of the last spoken answer, one per segment in playback order, for "repeat that"
+    private List<String> lastAnswerKeys = Collections.emptyList();
+    private String lastAnswerText = "";
+
+    public static synchronized AudioCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AudioCache(new File(context.getApplicationContext().getCacheDir(), DIR_NAME));
+        }
+        return instance;
+    }
+
+    private AudioCache(File dir) {
+        this.dir = dir;
+        this.memory = new LruCache<String, CachedAudio>(MEMORY_BYTES) {
+            @Override
+            protected int sizeOf(String key, CachedAudio value) {
+                return value.data.length;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, CachedAudio oldValue, CachedAudio newValue) {
+                if (evicted) memoryEvictions++;
+            }
+        };
+        // Only ever runs the index load; its thread goes away once idle
+        ThreadPoolExecutor indexLoader = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, "VoxNova-CacheIndex"));
+        indexLoader.allowCoreThreadTimeOut(true);
+        indexLoader.execute(this::loadIndex);
+    }
+
+    private void loadIndex() {
+        try {
+            if (!dir.exists() && !dir.mkdirs()) {
+                DebugLogger.error("AudioCache: cannot create " + dir);
+                return;
+            }
+            File[] files = dir.listFiles();
+            if (files == null) return;
+            // Oldest first, so the iteration order matches LRU order
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            synchronized (this) {
+                for (File f : files) {
+                    String name = f.getName();
+                    // Also clears temp files left by a write that never finished
+                    if (!name.endsWith(EXT_MP3) && !name.endsWith(EXT_PCM)) {
+                        f.delete();
+                        continue;
+                    }
+                    diskIndex.put(name, f.length());
+                    diskBytes += f.length();
+                }
+                DebugLogger.log("AudioCache: " + diskIndex.size() + " files, " + diskBytes / 1024 + " KB on disk");
+            }
+        } finally {
+            indexLoaded.countDown();
+        }
+    }
+
+    /**
+     * Wait for the disk index. False if interrupted, in which case the disk
+     * is left alone.
+     */
+    private boolean awaitIndex() {
+        try {
+            indexLoaded.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Build a cache key. Text is normalized so trivial whitespace and case
+     * differences hit the same entry.
+     */
+    public static String key(String provider, String voice, String language, String format, String text) {
+        String normalized = text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        String raw = provider + "|" + voice + "|" + language + "|" + format + "|" + normalized;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(raw.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(raw.hashCode()) + Integer.toHexString(raw.length());
+        }
+    }
+
+    /**
+     * Look up audio in memory, then on disk. Disk hits are promoted to memory.
+     * May do file I/O and wait for the disk index; call off the main thread.
+     */
+    public CachedAudio get(String key) {
+        synchronized (this) {
+            CachedAudio cached = memory.get(key);
+            if (cached != null) {
+                memoryHits++;
+                bytesSaved += cached.data.length;
+                return cached;
+            }
+        }
+        if (!awaitIndex()) return null;
+
+        for (String ext : new String[]{EXT_MP3, EXT_PCM}) {
+            String name = key + ext;
+            synchronized (this) {
+                if (diskIndex.get(name) == null) continue;
+            }
+            File f = new File(dir, name);
+            try {
+                byte[] data = readFile(f);
+                f.setLastModified(System.currentTimeMillis());
+                CachedAudio cached = new CachedAudio(data, ext.equals(EXT_PCM));
+                synchronized (this) {
+                    memory.put(key, cached);
+                    diskHits++;
+                    bytesSaved += data.length;
+                }
+                return cached;
+            } catch (IOException e) {
+                DebugLogger.error("AudioCache read: " + e.getMessage());
+                synchronized (this) {
+                    removeDiskEntry(name);
+                }
+            }
+        }
+        synchronized (this) {
+            misses++;
+        }
+        return null;
+    }
+
+    /**
+     * Never waits: until the disk index is loaded only memory is consulted.
+     */
+    public synchronized boolean contains(String key) {
+        return memory.get(key) != null
+                || diskIndex.containsKey(key + EXT_MP3)
+                || diskIndex.containsKey(key + EXT_PCM);
+    }
+
+    /**
+     * Store audio in memory at once and on disk before returning. Call off
+     * the main thread.
+     */
+    public void put(String key, byte[] data, boolean pcm) {
+        if (data == null || data.length == 0) return;
+        synchronized (this) {
+            memory.put(key, new CachedAudio(data, pcm));
+        }
+        if (!awaitIndex()) return;
+
+        String name = key + (pcm ? EXT_PCM : EXT_MP3);
+        File tmp;
+        try {
+            // Unique per write, so two writers of the same clip never share a file
+            tmp = File.createTempFile(name, ".tmp", dir);
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(data);
+            }
+        } catch (IOException e) {
+            DebugLogger.error("AudioCache write: " + e.getMessage());
+            return;
+        }
+        List<File> evicted;
+        synchronized (this) {
+            if (!tmp.renameTo(new File(dir, name))) {
+                tmp.delete();
+                return;
+            }
+            Long previous = diskIndex.put(name, (long) data.length);
+            if (previous != null) diskBytes -= previous;
+            diskBytes += data.length;
+            evicted = trimDisk();
+        }
+        for (File f : evicted) f.delete();
+    }
+
+    /**
+     * Drop the least recently used files from the index until it fits;
+     * returns them for the caller to delete outside the lock.
+     */
+    private List<File> trimDisk() {
+        List<File> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = diskIndex.entrySet().iterator();
+        while (diskBytes > DISK_BYTES && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            evicted.add(new File(dir, eldest.getKey()));
+            diskBytes -= eldest.getValue();
+            diskEvictions++;
+            it.remove();
+        }
+        return evicted;
+    }
+
+    private void removeDiskEntry(String name) {
+        Long size = diskIndex.remove(name);
+        if (size != null) diskBytes -= size;
+        new File(dir, name).delete();
+    }
+
+    private static byte[] readFile(File f) throws IOException {
+        byte[] data = new byte[(int) f.length()];
+        try (FileInputStream in = new FileInputStream(f)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read == -1) throw new IOException("Truncated cache file");
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    public synchronized void setLastAnswer(List<String> keys, String text) {
+        lastAnswerKeys = new ArrayList<>(keys);
+        lastAnswerText = text != null ? text : "";
+    }
+
+    public synchronized List<String> getLastAnswerKeys() {
+        return new ArrayList<>(lastAnswerKeys);
+    }
+
+    public synchronized String getLastAnswerText() {
+        return lastAnswerText;
+    }
+
+    public synchronized String getStatsSummary() {
+        long hits = memoryHits + diskHits;
+        long lookups = hits + misses;
+        int hitRate = lookups == 0 ? 0 : (int) (hits * 100 / lookups);
+        return "hits " + hits + "/" + lookups + " (" + hitRate + "%, " + memoryHits + " mem), "
+                + "saved " + bytesSaved / 1024 + " KB, "
+                + "evictions " + memoryEvictions + " mem/" + diskEvictions + " disk, "
+                + diskBytes / 1024 + " KB on disk";
+    }
+}
@@ -0,0 +1,175 @@
+package com.voxnova;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.media.audiofx.AcousticEchoCanceler;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listens to the microphone while the assistant is speaking and reports when
+ * the user starts talking over it.
+ *
+ * Capture uses the VOICE_COMMUNICATION source with the platform echo canceler
+ * attached, so most of our own playback is removed before we see it. Whatever
+ * echo is left is tracked as a slowly moving floor, and speech has to stand a
+ * margin above that floor for a few consecutive 10 ms frames. Without an echo
+ * canceler the margin is wider. The listener is called on the capture thread
+ * so the caller can silence playback without waiting for the main looper.
+ */
+public class BargeInDetector {
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = SAMPLE_RATE / 100; // 10 ms
+    // Echo floor is learned during this window before anything can trigger
+    private static final int CALIBRATION_FRAMES = 25;
+    private static final int TRIGGER_FRAMES = 6;
+    private static final double MARGIN_DB_AEC = 12;
+    private static final double MARGIN_DB_NO_AEC = 20;
+    // Below this nothing counts as speech, however quiet the room is
+    private static final double MIN_SPEECH_DB = -45;
+    private static final double FLOOR_ALPHA = 0.05;
+
+    public interface Listener {
+        /** Called once, on the capture thread, when the user talks over playback. */
+        void onBargeIn(long detectedAt);
+    }
+
+    private static final AtomicLong sessions = new AtomicLong();
+    private static final AtomicLong triggers = new AtomicLong();
+    private static final AtomicLong silenceMsTotal = new AtomicLong();
+    private static final AtomicLong silenceMsMax = new AtomicLong();
+
+    private final Listener listener;
+    private volatile boolean running = false;
+    private Thread captureThread;
+
+    public BargeInDetector(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        sessions.incrementAndGet();
+        captureThread = new Thread(this::runLoop, "VoxNova-BargeIn");
+        captureThread.start();
+    }
+
+    /**
+     * Stop capturing and release the microphone. Blocks briefly until the
+     * recorder is released, so the recognizer can take the mic right after.
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = captureThread;
+            captureThread = null;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try { thread.join(100); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The user's voice has been detected and playback was silenced this many
+     * ms later.
+     */
+    public static void recordSilenced(long detectedAt) {
+        long ms = SystemClock.elapsedRealtime() - detectedAt;
+        silenceMsTotal.addAndGet(ms);
+        silenceMsMax.accumulateAndGet(ms, Math::max);
+        DebugLogger.log("Barge-in: playback silenced " + ms + "ms after detection");
+    }
+
+    public static String getStats() {
+        long count = triggers.get();
+        return count + " of " + sessions.get() + " answers interrupted"
+                + (count == 0 ? "" : ", detection to silence avg " + silenceMsTotal.get() / count
+                + "ms, max " + silenceMsMax.get() + "ms");
+    }
+
+    private void runLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        AudioRecord record = null;
+        AcousticEchoCanceler aec = null;
+        try {
+            int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+            record = new AudioRecord(MediaRecorder.AudioSource.VOICE_COMMUNICATION, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                    Math.max(minBuffer, FRAME_SAMPLES * 2 * 4));
+            if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+                DebugLogger.error("Barge-in: microphone unavailable");
+                return;
+            }
+            if (AcousticEchoCanceler.isAvailable()) {
+                aec = AcousticEchoCanceler.create(record.getAudioSessionId());
+                if (aec != null) aec.setEnabled(true);
+            }
+            double margin = aec != null && aec.getEnabled() ? MARGIN_DB_AEC : MARGIN_DB_NO_AEC;
+            record.startRecording();
+
+            short[] frame = new short[FRAME_SAMPLES];
+            double floor = 0;
+            int frames = 0;
+            int loud = 0;
+            while (running) {
+                int read = record.read(frame, 0, FRAME_SAMPLES);
+                if (read <= 0) continue;
+                double db = frameDb(frame, read);
+                frames++;
+                if (frames <= CALIBRATION_FRAMES) {
+                    floor = frames == 1 ? db : Math.max(floor, db);
+                    continue;
+                }
+                double threshold = Math.max(floor + margin, MIN_SPEECH_DB);
+                if (db > threshold) {
+                    loud++;
+                    if (loud >= TRIGGER_FRAMES) {
+                        long detectedAt = SystemClock.elapsedRealtime();
+                        triggers.incrementAndGet();
+                        DebugLogger.log("Barge-in detected: " + Math.round(db) + " dB over floor "
+                                + Math.round(floor) + " dB" + (aec != null ? " (AEC)" : ""));
+                        running = false;
+                        listener.onBargeIn(detectedAt);
+                        break;
+                    }
+                } else {
+                    loud = 0;
+                    // Only quiet frames move the floor, so speech can't raise it
+                    floor += FLOOR_ALPHA * (db - floor);
+                }
+            }
+        } catch (Exception e) {
+            DebugLogger.error("Barge-in: " + e.getMessage());
+        } finally {
+            if (aec != null) {
+                try { aec.release(); } catch (Exception e) {}
+            }
+            if (record != null) {
+                try { record.stop(); } catch (Exception e) {}
+                record.release();
+            }
+        }
+    }
+
+    /**
+     * RMS level of a frame in dB relative to full scale.
+     */
+    private static double frameDb(short[] frame, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += (double) frame[i] * frame[i];
+        }
+        double rms = Math.sqrt(sum / length) / 32768.0;
+        return rms <= 0 ? -100 : 20 * Math.log10(rms);
+    }
+}
@@ -0,0 +1,54 @@
+package com.voxnova;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes a stream through unchanged while keeping a copy of every byte read.
+ * The copy is handed to the sink only if the stream reaches a clean EOF, so
+ * truncated or failed downloads are never cached.
+ */
+public class CachingInputStream extends FilterInputStream {
+    public interface Sink {
+        void onComplete(byte[] data);
+    }
+
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream(64 * 1024);
+    private final Sink sink;
+    private boolean delivered = false;
+
+    public CachingInputStream(InputStream in, Sink sink) {
+        super(in);
+        this.sink = sink;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            deliver();
+        } else {
+            copy.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n == -1) {
+            deliver();
+        } else {
+            copy.write(buffer, offset, n);
+        }
+        return n;
+    }
+
+    private void deliver() {
+        if (delivered) return;
+        delivered = true;
+        sink.onComplete(copy.toByteArray());
+    }
+}
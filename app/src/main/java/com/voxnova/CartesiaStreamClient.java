@@ -0,0 +1,355 @@
+package com.voxnova;
+
+import android.os.SystemClock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Streaming synthesis over Cartesia's TTS WebSocket.
+ *
+ * One socket is kept open and shared across turns. Each utterance is a context:
+ * text is pushed into it piece by piece with "continue" so prosody carries over,
+ * and raw PCM chunks are exposed as an InputStream as soon as they arrive.
+ * Word timestamps are requested only to count how much of the text has been
+ * voiced, so a context that breaks part way can be finished elsewhere.
+ * The URL is injectable so a local stand-in server can replace the real API.
+ */
+public class CartesiaStreamClient {
+    public static final String DEFAULT_URL = "wss://api.cartesia.ai/tts/websocket";
+    private static final String CARTESIA_VERSION = "2024-06-10";
+    private static final String MODEL_ID = "sonic-2";
+
+    private static CartesiaStreamClient shared;
+
+    private final OkHttpClient client;
+    private final String url;
+    private final String apiKey;
+    private final Map<String, StreamContext> contexts = new ConcurrentHashMap<>();
+    private final List<String> pendingFrames = new ArrayList<>();
+    private WebSocket webSocket;
+    private boolean isOpen = false;
+    private int connectionCount = 0;
+    private int reuseCount = 0;
+
+    /**
+     * Process-wide client for the given key, so the socket survives across sessions.
+     */
+    public static synchronized CartesiaStreamClient shared(OkHttpClient client, String apiKey) {
+        if (shared == null || !shared.apiKey.equals(apiKey)) {
+            if (shared != null) shared.close();
+            shared = new CartesiaStreamClient(client, DEFAULT_URL, apiKey);
+        }
+        return shared;
+    }
+
+    public CartesiaStreamClient(OkHttpClient client, String url, String apiKey) {
+        this.client = client.newBuilder()
+                .pingInterval(20, TimeUnit.SECONDS)
+                .build();
+        this.url = url;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Start a new synthesis context. Text can be sent before the socket is open;
+     * frames are queued until the handshake completes.
+     */
+    public synchronized StreamContext openContext(String voiceId, String language, int sampleRate) {
+        if (webSocket != null) {
+            reuseCount++;
+        } else {
+            connect();
+        }
+        StreamContext context = new StreamContext(voiceId, language, sampleRate);
+        contexts.put(context.id, context);
+        DebugLogger.log("Cartesia WS: context " + context.id.substring(0, 8) + " (connections=" + connectionCount + ", reused=" + reuseCount + ")");
+        return context;
+    }
+
+    /**
+     * Open the socket ahead of the first context, so the handshake is done
+     * by the time text arrives.
+     */
+    public synchronized void warmUp() {
+        if (webSocket == null) connect();
+    }
+
+    private void connect() {
+        connectionCount++;
+        isOpen = false;
+        Request request = new Request.Builder()
+                .url(url + "?api_key=" + apiKey + "&cartesia_version=" + CARTESIA_VERSION)
+                .build();
+
+        webSocket = client.newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket ws, Response response) {
+                DebugLogger.success("Cartesia WS open");
+                synchronized (CartesiaStreamClient.this) {
+                    if (ws != webSocket) return;
+                    isOpen = true;
+                    for (String frame : pendingFrames) ws.send(frame);
+                    pendingFrames.clear();
+                }
+            }
+
+            @Override
+            public void onMessage(WebSocket ws, String text) {
+                try {
+                    JSONObject msg = new JSONObject(text);
+                    StreamContext context = contexts.get(msg.optString("context_id", ""));
+                    if (context == null) return;
+
+                    String type = msg.optString("type", "");
+                    if (type.equals("chunk")) {
+                        String data = msg.optString("data", "");
+                        if (!data.isEmpty()) context.onChunk(Base64.getMimeDecoder().decode(data));
+                        if (msg.optBoolean("done", false)) context.onDone();
+                    } else if (type.equals("timestamps")) {
+                        JSONObject timestamps = msg.optJSONObject("word_timestamps");
+                        JSONArray words = timestamps != null ? timestamps.optJSONArray("words") : null;
+                        if (words != null) context.onWords(words.length());
+                    } else if (type.equals("done")) {
+                        context.onDone();
+                    } else if (type.equals("error")) {
+                        context.onError(msg.optString("error", "Cartesia error"));
+                    }
+                } catch (JSONException e) {
+                    DebugLogger.error("Cartesia WS parse: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onFailure(WebSocket ws, Throwable t, Response response) {
+                DebugLogger.error("Cartesia WS failed: " + t.getMessage());
+                onSocketGone(ws, "Connection failed: " + t.getMessage());
+            }
+
+            @Override
+            public void onClosing(WebSocket ws, int code, String reason) {
+                // The server is closing; answer at once so open contexts fail now, not at its timeout
+                DebugLogger.log("Cartesia WS closing: " + code + " " + reason);
+                ws.close(1000, null);
+                onSocketGone(ws, "Connection closed: " + reason);
+            }
+
+            @Override
+            public void onClosed(WebSocket ws, int code, String reason) {
+                DebugLogger.log("Cartesia WS closed: " + code + " " + reason);
+                onSocketGone(ws, "Connection closed");
+            }
+        });
+    }
+
+    private void onSocketGone(WebSocket ws, String reason) {
+        synchronized (this) {
+            if (ws != webSocket) return;
+            webSocket = null;
+            isOpen = false;
+            pendingFrames.clear();
+        }
+        for (StreamContext context : contexts.values()) {
+            context.onError(reason);
+        }
+    }
+
+    private synchronized void sendFrame(String frame) {
+        if (webSocket == null) {
+            connect();
+        }
+        if (isOpen) {
+            webSocket.send(frame);
+        } else {
+            pendingFrames.add(frame);
+        }
+    }
+
+    public synchronized void close() {
+        if (webSocket != null) {
+            webSocket.close(1000, "Bye");
+            webSocket = null;
+        }
+        isOpen = false;
+        pendingFrames.clear();
+    }
+
+    public class StreamContext {
+        private final byte[] END = new byte[0];
+
+        private final String id = UUID.randomUUID().toString();
+        private final String voiceId;
+        private final String language;
+        private final int sampleRate;
+        private final LinkedBlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+        private final long openedAt = SystemClock.elapsedRealtime();
+        private volatile boolean closed = false;
+        private volatile String error;
+        private volatile int voicedWords = 0;
+        private boolean firstChunk = true;
+
+        private StreamContext(String voiceId, String language, int sampleRate) {
+            this.voiceId = voiceId;
+            this.language = language;
+            this.sampleRate = sampleRate;
+        }
+
+        /**
+         * Push more text into this context; audio continues seamlessly.
+         */
+        public void send(String text) {
+            sendTranscript(text, true);
+        }
+
+        /**
+         * No more text will follow; the server flushes the remaining audio.
+         */
+        public void end() {
+            sendTranscript("", false);
+        }
+
+        public void cancel() {
+            if (closed) return;
+            try {
+                JSONObject msg = new JSONObject();
+                msg.put("context_id", id);
+                msg.put("cancel", true);
+                sendFrame(msg.toString());
+            } catch (JSONException e) {
+                DebugLogger.error("Cartesia WS cancel: " + e.getMessage());
+            }
+            finishWith(null);
+        }
+
+        public InputStream getAudioStream() {
+            return new ChunkInputStream();
+        }
+
+        /**
+         * Words of the transcript the server has produced audio for so far.
+         */
+        public int getVoicedWords() {
+            return voicedWords;
+        }
+
+        /**
+         * Why the context ended, or null if it finished cleanly, was
+         * cancelled or is still open.
+         */
+        public String getError() {
+            return error;
+        }
+
+        private void sendTranscript(String text, boolean more) {
+            if (closed) return;
+            try {
+                JSONObject msg = new JSONObject();
+                msg.put("model_id", MODEL_ID);
+                msg.put("transcript", text);
+                msg.put("context_id", id);
+                msg.put("continue", more);
+                msg.put("language", language);
+                msg.put("add_timestamps", true);
+
+                JSONObject voice = new JSONObject();
+                voice.put("mode", "id");
+                voice.put("id", voiceId);
+                msg.put("voice", voice);
+
+                JSONObject format = new JSONObject();
+                format.put("container", "raw");
+                format.put("encoding", "pcm_s16le");
+                format.put("sample_rate", sampleRate);
+                msg.put("output_format", format);
+
+                sendFrame(msg.toString());
+            } catch (JSONException e) {
+                onError("Request failed: " + e.getMessage());
+            }
+        }
+
+        private void onChunk(byte[] pcm) {
+            if (closed) return;
+            if (firstChunk) {
+                firstChunk = false;
+                DebugLogger.log("Cartesia WS first chunk after " + (SystemClock.elapsedRealtime() - openedAt) + "ms");
+            }
+            chunks.offer(pcm);
+        }
+
+        private void onWords(int count) {
+            if (!closed) voicedWords += count;
+        }
+
+        private void onDone() {
+            finishWith(null);
+        }
+
+        private void onError(String message) {
+            DebugLogger.error("Cartesia WS context error: " + message);
+            finishWith(message);
+        }
+
+        private void finishWith(String message) {
+            if (closed) return;
+            error = message;
+            closed = true;
+            contexts.remove(id);
+            chunks.offer(END);
+        }
+
+        private class ChunkInputStream extends InputStream {
+            private byte[] current;
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                int n = read(one, 0, 1);
+                return n == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                while (current == null || position >= current.length) {
+                    if (current == END) return endOfStream();
+                    try {
+                        current = chunks.take();
+                        position = 0;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted");
+                    }
+                }
+                if (current == END) return endOfStream();
+                int count = Math.min(length, current.length - position);
+                System.arraycopy(current, position, buffer, offset, count);
+                position += count;
+                return count;
+            }
+
+            private int endOfStream() throws IOException {
+                if (error != null) throw new IOException(error);
+                return -1;
+            }
+        }
+    }
+}
@@ -8,6 +8,9 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -28,12 +31,17 @@ public class ClawdbotClient {
     private final DeviceIdentity deviceIdentity;
     private WebSocket webSocket;
     private ResponseCallback pendingCallback;
+    private StreamListener pendingStreamListener;
     private StringBuilder responseBuffer;
     private boolean isConnected = false;
     private String currentReqId;
     private String pendingMessageToSend;
     private String pendingResetReqId;
     private boolean pendingResetAfterConnect = false;
+    private Runnable pendingReadyCallback;
+    // Runs we gave up on; their remaining events are ignored
+    private final Set<String> abortedRunIds = Collections.synchronizedSet(new HashSet<>());
+    private final Set<String> abortReqIds = Collections.synchronizedSet(new HashSet<>());
     
     // Challenge handling
     private String pendingNonce;
@@ -44,6 +52,13 @@ public class ClawdbotClient {
         void onError(String error);
     }
 
+    /**
+     * Receives assistant text deltas as they stream in, before the final response.
+     */
+    public interface StreamListener {
+        void onDelta(String delta);
+    }
+
     public ClawdbotClient(Context context, String gatewayUrl, String authToken) {
         String wsUrl = gatewayUrl.replace("https://", "wss://").replace("http://", "ws://");
         this.gatewayUrl = wsUrl.endsWith("/") ? wsUrl.substring(0, wsUrl.length() - 1) : wsUrl;
@@ -69,8 +84,13 @@ public class ClawdbotClient {
     }
 
     public void sendMessage(String text, ResponseCallback callback) {
+        sendMessage(text, callback, null);
+    }
+
+    public void sendMessage(String text, ResponseCallback callback, StreamListener streamListener) {
         DebugLogger.log("sendMessage: " + text);
         this.pendingCallback = callback;
+        this.pendingStreamListener = streamListener;
         this.responseBuffer = new StringBuilder();
         this.currentReqId = UUID.randomUUID().toString();
         this.pendingMessageToSend = text;
@@ -80,12 +100,32 @@ public class ClawdbotClient {
         if (webSocket != null && isConnected) {
             DebugLogger.log("Already connected, sending directly");
             sendChatMessage(text);
+        } else if (webSocket != null) {
+            DebugLogger.log("Connection in progress, message will follow the handshake");
         } else {
             DebugLogger.log("Not connected, connecting first...");
             connect();
         }
     }
     
+    /**
+     * Open the connection and do the handshake ahead of the first message,
+     * e.g. while the user is still talking. onReady runs on the main thread
+     * once connected.
+     */
+    public void preconnect(Runnable onReady) {
+        if (webSocket != null && isConnected) {
+            if (onReady != null) mainHandler.post(onReady);
+            return;
+        }
+        pendingReadyCallback = onReady;
+        if (webSocket == null) connect();
+    }
+
+    public boolean isConnected() {
+        return webSocket != null && isConnected;
+    }
+
     private void connect() {
         DebugLogger.log("Connecting to " + gatewayUrl);
         pendingNonce = null;
@@ -127,6 +167,7 @@ public class ClawdbotClient {
                         }
                         
                         if (payload == null) return;
+                        if (abortedRunIds.contains(payload.optString("runId", ""))) return;
                         
                         // Agent event - stream response
                         if (event.equals("agent")) {
@@ -137,6 +178,7 @@ public class ClawdbotClient {
                                 String delta = data.optString("delta", "");
                                 if (!delta.isEmpty()) {
                                     responseBuffer.append(delta);
+                                    notifyDelta(delta);
                                 }
                             }
                             
@@ -183,6 +225,10 @@ public class ClawdbotClient {
                         if (payload != null && "hello-ok".equals(payload.optString("type"))) {
                             DebugLogger.success("Connected! hello-ok received");
                             isConnected = true;
+                            if (pendingReadyCallback != null) {
+                                mainHandler.post(pendingReadyCallback);
+                                pendingReadyCallback = null;
+                            }
                             
                             // Check for device token
                             JSONObject auth = payload.optJSONObject("auth");
@@ -229,6 +275,12 @@ public class ClawdbotClient {
                             }
                         }
                         
+                        // chat.abort responses don't belong to the message in flight
+                        if (abortReqIds.remove(msg.optString("id", ""))) {
+                            DebugLogger.log("chat.abort " + (msg.optBoolean("ok", false) ? "ok" : "rejected"));
+                            return;
+                        }
+                        
                         // Handle error responses
                         if (!msg.optBoolean("ok", true)) {
                             JSONObject error = msg.optJSONObject("error");
@@ -248,6 +300,7 @@ public class ClawdbotClient {
             public void onFailure(WebSocket ws, Throwable t, Response response) {
                 DebugLogger.error("WebSocket failed: " + t.getMessage());
                 isConnected = false;
+                if (ws == webSocket) webSocket = null;
                 pendingResetReqId = null;
                 pendingResetAfterConnect = false;
                 notifyError("Connection failed: " + t.getMessage());
@@ -257,6 +310,7 @@ public class ClawdbotClient {
             public void onClosed(WebSocket ws, int code, String reason) {
                 DebugLogger.log("WebSocket closed: " + code + " " + reason);
                 isConnected = false;
+                if (ws == webSocket) webSocket = null;
                 pendingResetReqId = null;
                 pendingResetAfterConnect = false;
             }
@@ -358,7 +412,15 @@ public class ClawdbotClient {
         }
     }
     
+    private void notifyDelta(String delta) {
+        if (pendingStreamListener != null) {
+            final StreamListener listener = pendingStreamListener;
+            mainHandler.post(() -> listener.onDelta(delta));
+        }
+    }
+
     private void notifySuccess(String response) {
+        pendingStreamListener = null;
         if (pendingCallback != null) {
             final ResponseCallback cb = pendingCallback;
             pendingCallback = null;
@@ -367,6 +429,7 @@ public class ClawdbotClient {
     }
     
     private void notifyError(String error) {
+        pendingStreamListener = null;
         if (pendingCallback != null) {
             final ResponseCallback cb = pendingCallback;
             pendingCallback = null;
@@ -374,6 +437,41 @@ public class ClawdbotClient {
         }
     }
     
+    /**
+     * Abandon the message in flight: ask the gateway to stop the run and drop
+     * its callbacks. Nothing is reported to the callback of the aborted message.
+     */
+    public void abort() {
+        if (currentReqId == null) return;
+        String runId = currentReqId;
+        abortedRunIds.add(runId);
+        pendingCallback = null;
+        pendingStreamListener = null;
+        pendingMessageToSend = null;
+        responseBuffer = new StringBuilder();
+        currentReqId = null;
+        if (webSocket == null || !isConnected) return;
+
+        try {
+            JSONObject abortMsg = new JSONObject();
+            abortMsg.put("type", "req");
+            abortMsg.put("method", "chat.abort");
+            String reqId = UUID.randomUUID().toString();
+            abortReqIds.add(reqId);
+            abortMsg.put("id", reqId);
+
+            JSONObject params = new JSONObject();
+            params.put("sessionKey", sessionKey);
+            params.put("runId", runId);
+            abortMsg.put("params", params);
+
+            DebugLogger.log("Sending chat.abort for run " + runId);
+            webSocket.send(abortMsg.toString());
+        } catch (JSONException e) {
+            DebugLogger.error("abort error: " + e.getMessage());
+        }
+    }
+
     public String getSessionKey() {
         return sessionKey;
     }
@@ -395,6 +493,7 @@ public class ClawdbotClient {
     public void resetSession(ResponseCallback callback) {
         DebugLogger.log("resetSession - using sessions.reset RPC");
         this.pendingCallback = callback;
+        this.pendingStreamListener = null;
         this.responseBuffer = new StringBuilder();
         this.pendingMessageToSend = null;
         
@@ -404,7 +503,7 @@ public class ClawdbotClient {
         } else {
             DebugLogger.log("Not connected, will reset after connect");
             pendingResetAfterConnect = true;
-            connect();
+            if (webSocket == null) connect();
         }
     }
     
@@ -0,0 +1,179 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short state-transition sounds, synthesized once and held in memory.
+ *
+ * Each earcon is rendered into a static AudioTrack when the voice interaction
+ * service comes up, so playing one is a restart of a buffer that is already in
+ * the mixer: no decoding or allocation on the critical path. A cue is dropped
+ * rather than queued when speech is playing or another cue played moments ago.
+ */
+public class EarconBank {
+    public enum Earcon {
+        LISTENING(new int[]{660, 880}, 60, 0.25f),
+        PROCESSING(new int[]{520}, 80, 0.2f),
+        ERROR(new int[]{440, 330}, 90, 0.25f),
+        FILLER(new int[]{392}, 120, 0.12f);
+
+        final int[] notesHz;
+        final int noteMs;
+        final float volume;
+
+        Earcon(int[] notesHz, int noteMs, float volume) {
+            this.notesHz = notesHz;
+            this.noteMs = noteMs;
+            this.volume = volume;
+        }
+
+        long durationMs() {
+            return (long) noteMs * notesHz.length;
+        }
+    }
+
+    private static final int SAMPLE_RATE = 24000;
+    private static final int FADE_MS = 5;
+    private static final long MIN_INTERVAL_MS = 400;
+
+    private static EarconBank instance;
+
+    private static final AtomicLong played = new AtomicLong();
+    private static final AtomicLong suppressed = new AtomicLong();
+    private static final AtomicLong fillers = new AtomicLong();
+
+    private final PreferencesManager prefs;
+    private final AudioTrack[] tracks = new AudioTrack[Earcon.values().length];
+    private boolean prepared = false;
+    private boolean speaking = false;
+    private long lastPlayedAt = 0;
+    private AudioTrack playing;
+
+    public static synchronized EarconBank getInstance(Context context) {
+        if (instance == null) {
+            instance = new EarconBank(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private EarconBank(Context context) {
+        this.prefs = new PreferencesManager(context);
+    }
+
+    /**
+     * Render every earcon into its own track. Called at service start; cues
+     * requested before this has run are skipped.
+     */
+    public synchronized void prepare() {
+        if (prepared) return;
+        long startedAt = SystemClock.elapsedRealtime();
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        AudioFormat format = new AudioFormat.Builder()
+                .setSampleRate(SAMPLE_RATE)
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                .build();
+        try {
+            for (Earcon earcon : Earcon.values()) {
+                short[] pcm = render(earcon);
+                AudioTrack track = new AudioTrack.Builder()
+                        .setAudioAttributes(attributes)
+                        .setAudioFormat(format)
+                        .setTransferMode(AudioTrack.MODE_STATIC)
+                        .setBufferSizeInBytes(pcm.length * 2)
+                        .build();
+                track.write(pcm, 0, pcm.length);
+                tracks[earcon.ordinal()] = track;
+            }
+            prepared = true;
+            DebugLogger.log("Earcons ready in " + (SystemClock.elapsedRealtime() - startedAt) + "ms");
+        } catch (Exception e) {
+            DebugLogger.error("Earcons: " + e.getMessage());
+            releaseTracks();
+        }
+    }
+
+    /**
+     * Play a cue unless earcons are off, speech is playing or a cue just played.
+     */
+    public synchronized void play(Earcon earcon) {
+        if (!prepared || !prefs.isEarcons()) return;
+        long now = SystemClock.elapsedRealtime();
+        if (speaking || now - lastPlayedAt < MIN_INTERVAL_MS) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        AudioTrack track = tracks[earcon.ordinal()];
+        try {
+            if (playing != null) playing.stop();
+            track.stop();
+            track.reloadStaticData();
+            track.play();
+            playing = track;
+            lastPlayedAt = now;
+            played.incrementAndGet();
+            if (earcon == Earcon.FILLER) fillers.incrementAndGet();
+        } catch (Exception e) {
+            DebugLogger.error("Earcon " + earcon + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Answer audio started or ended. While it plays no cue is allowed, and a
+     * cue that is still sounding is cut.
+     */
+    public synchronized void setSpeaking(boolean speaking) {
+        this.speaking = speaking;
+        if (speaking && playing != null) {
+            try { playing.stop(); } catch (Exception e) {}
+            playing = null;
+        }
+    }
+
+    public static String getStats() {
+        return played.get() + " played (" + fillers.get() + " fillers), "
+                + suppressed.get() + " suppressed";
+    }
+
+    public synchronized void release() {
+        releaseTracks();
+        prepared = false;
+        playing = null;
+    }
+
+    private void releaseTracks() {
+        for (int i = 0; i < tracks.length; i++) {
+            if (tracks[i] != null) {
+                try { tracks[i].release(); } catch (Exception e) {}
+                tracks[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Consecutive sine notes with a short fade at each edge to avoid clicks.
+     */
+    private static short[] render(Earcon earcon) {
+        int noteSamples = SAMPLE_RATE * earcon.noteMs / 1000;
+        int fadeSamples = SAMPLE_RATE * FADE_MS / 1000;
+        short[] pcm = new short[noteSamples * earcon.notesHz.length];
+        for (int n = 0; n < earcon.notesHz.length; n++) {
+            double step = 2 * Math.PI * earcon.notesHz[n] / SAMPLE_RATE;
+            for (int i = 0; i < noteSamples; i++) {
+                double envelope = Math.min(1.0, Math.min(i, noteSamples - 1 - i) / (double) fadeSamples);
+                double sample = Math.sin(step * i) * envelope * earcon.volume;
+                pcm[n * noteSamples + i] = (short) Math.round(sample * Short.MAX_VALUE);
+            }
+        }
+        return pcm;
+    }
+}
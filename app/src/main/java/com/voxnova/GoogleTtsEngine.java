@@ -0,0 +1,194 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide on-device TextToSpeech used as the last fallback.
+ *
+ * Binding the engine takes hundreds of milliseconds, so it is started once
+ * when the voice interaction service comes up and then shared by every
+ * session. Each utterance gets its own ID, which routes progress events to
+ * the caller that queued it. Requests made before the engine is ready are
+ * held and spoken as soon as it is.
+ */
+public class GoogleTtsEngine {
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_INITIALIZING = 1;
+    private static final int STATE_READY = 2;
+
+    private static GoogleTtsEngine instance;
+
+    private static final class PendingUtterance {
+        final String text;
+        final String[] langParts;
+        final TTSManager.TTSCallback callback;
+        final int queueMode;
+
+        PendingUtterance(String text, String[] langParts, TTSManager.TTSCallback callback, int queueMode) {
+            this.text = text;
+            this.langParts = langParts;
+            this.callback = callback;
+            this.queueMode = queueMode;
+        }
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, TTSManager.TTSCallback> callbacks = new ConcurrentHashMap<>();
+    private final AtomicInteger nextUtteranceId = new AtomicInteger();
+    private final List<PendingUtterance> pending = new ArrayList<>();
+    private TextToSpeech tts;
+    private int state = STATE_IDLE;
+    private Locale currentLocale;
+
+    public static synchronized GoogleTtsEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new GoogleTtsEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GoogleTtsEngine(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Start binding the engine if it is not already bound or binding.
+     */
+    public synchronized void warmUp() {
+        if (state != STATE_IDLE) return;
+        state = STATE_INITIALIZING;
+        final long startedAt = SystemClock.elapsedRealtime();
+        try {
+            tts = new TextToSpeech(context, status -> onInit(status, startedAt));
+        } catch (Exception e) {
+            DebugLogger.error("Google TTS init: " + e.getMessage());
+            state = STATE_IDLE;
+        }
+    }
+
+    private void onInit(int status, long startedAt) {
+        List<PendingUtterance> queued;
+        synchronized (this) {
+            if (status != TextToSpeech.SUCCESS) {
+                DebugLogger.error("Google TTS init failed: " + status);
+                try { tts.shutdown(); } catch (Exception e) {}
+                tts = null;
+                state = STATE_IDLE;
+                queued = new ArrayList<>(pending);
+                pending.clear();
+                for (PendingUtterance utterance : queued) utterance.callback.onError("TTS not ready");
+                return;
+            }
+            tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+                @Override public void onStart(String id) {
+                    TTSManager.TTSCallback cb = callbacks.get(id);
+                    if (cb != null) mainHandler.post(cb::onStart);
+                }
+                @Override public void onDone(String id) {
+                    TTSManager.TTSCallback cb = callbacks.remove(id);
+                    if (cb != null) mainHandler.post(cb::onDone);
+                }
+                @Override public void onError(String id) {
+                    TTSManager.TTSCallback cb = callbacks.remove(id);
+                    if (cb != null) mainHandler.post(() -> cb.onError("Google TTS error"));
+                }
+                @Override public void onStop(String id, boolean interrupted) {
+                    callbacks.remove(id);
+                }
+            });
+            applyLanguage(new PreferencesManager(context).getLanguageParts());
+            state = STATE_READY;
+            queued = new ArrayList<>(pending);
+            pending.clear();
+        }
+        DebugLogger.log("Google TTS ready after " + (SystemClock.elapsedRealtime() - startedAt) + "ms");
+        for (PendingUtterance utterance : queued) {
+            speak(utterance.text, utterance.langParts, utterance.callback, utterance.queueMode);
+        }
+    }
+
+    /**
+     * Only touch the engine's language when it actually changes; setLanguage
+     * can reload voice data.
+     */
+    private void applyLanguage(String[] langParts) {
+        Locale locale = new Locale(langParts[0], langParts[1]);
+        if (locale.equals(currentLocale)) return;
+        int result = tts.setLanguage(locale);
+        if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
+            DebugLogger.error("Google TTS: language " + locale + " unavailable (" + result + ")");
+        }
+        currentLocale = locale;
+    }
+
+    /**
+     * Speak text, replacing whatever the engine is currently saying.
+     */
+    public void speak(String text, String[] langParts, TTSManager.TTSCallback callback) {
+        speak(text, langParts, callback, TextToSpeech.QUEUE_FLUSH);
+    }
+
+    /**
+     * Speak text after everything already queued. The engine synthesizes it
+     * while the utterance before it is still playing.
+     */
+    public void enqueue(String text, String[] langParts, TTSManager.TTSCallback callback) {
+        speak(text, langParts, callback, TextToSpeech.QUEUE_ADD);
+    }
+
+    private void speak(String text, String[] langParts, TTSManager.TTSCallback callback, int queueMode) {
+        String utteranceId;
+        synchronized (this) {
+            if (state != STATE_READY) {
+                DebugLogger.log("Google TTS not ready yet, queueing utterance");
+                pending.add(new PendingUtterance(text, langParts, callback, queueMode));
+                warmUp();
+                return;
+            }
+            applyLanguage(langParts);
+            utteranceId = "voxnova-" + nextUtteranceId.incrementAndGet();
+            callbacks.put(utteranceId, callback);
+        }
+        int result = tts.speak(text, queueMode, null, utteranceId);
+        if (result != TextToSpeech.SUCCESS) {
+            callbacks.remove(utteranceId);
+            DebugLogger.error("Google TTS speak failed: " + result);
+            callback.onError("Google TTS error");
+        }
+    }
+
+    /**
+     * Silence the engine and drop every queued or in-flight utterance.
+     * Their callbacks are not invoked.
+     */
+    public synchronized void stop() {
+        pending.clear();
+        callbacks.clear();
+        if (state == STATE_READY) {
+            try { tts.stop(); } catch (Exception e) {}
+        }
+    }
+
+    public synchronized void shutdown() {
+        stop();
+        if (tts != null) {
+            try { tts.shutdown(); } catch (Exception e) {}
+            tts = null;
+        }
+        currentLocale = null;
+        state = STATE_IDLE;
+    }
+}
@@ -0,0 +1,273 @@
+package com.voxnova;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recognizes control phrases ("nueva conversación", "repite", "para") and
+ * quick command labels in a transcript, so the session can act on them
+ * without a gateway round trip.
+ *
+ * Phrases are normalized (case, accents, punctuation, filler words) and
+ * compiled into a character trie when the router is built. A transcript
+ * matches only as a whole, within a small edit distance that grows with its
+ * length, so "para" matches but "para qué sirve" goes to the gateway. A
+ * lookup walks the trie once and takes microseconds. When phrases are
+ * equally close, the one added first wins: built-in phrases, then custom
+ * ones, then command labels.
+ */
+public class IntentRouter {
+    public enum Action { RESET, CANCEL, REPEAT, STOP, COMMAND }
+
+    public static final class Match {
+        public final Action action;
+        public final QuickCommand command;
+        public final int distance;
+        // Position of the phrase in the index; breaks ties between equal distances
+        final int order;
+
+        Match(Action action, QuickCommand command, int distance, int order) {
+            this.action = action;
+            this.command = command;
+            this.distance = distance;
+            this.order = order;
+        }
+
+        Match withDistance(int distance) {
+            return new Match(action, command, distance, order);
+        }
+
+        boolean beats(Match other) {
+            return other == null || distance < other.distance || (distance == other.distance && order < other.order);
+        }
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>(4);
+        Match value;
+    }
+
+    private static final Map<String, String[][]> PHRASES = new HashMap<>();
+    static {
+        // Order per language: reset, cancel, repeat, stop
+        PHRASES.put("es", new String[][]{
+                {"nueva conversación", "nueva conversacion", "nuevo chat", "reinicia", "reinicia la conversación",
+                        "empieza de nuevo", "borra la conversación", "olvida todo"},
+                {"cancela", "cancelar", "olvídalo", "déjalo", "no importa", "nada"},
+                {"repite", "repítelo", "repite eso", "otra vez", "qué dijiste", "puedes repetir"},
+                {"para", "detente", "basta", "silencio", "cállate", "alto"}});
+        PHRASES.put("en", new String[][]{
+                {"new conversation", "new chat", "start over", "reset", "reset the conversation", "forget everything"},
+                {"cancel", "never mind", "nevermind", "forget it", "nothing"},
+                {"repeat", "repeat that", "say that again", "again", "what did you say", "come again"},
+                {"stop", "be quiet", "quiet", "shut up", "enough", "that's enough"}});
+        PHRASES.put("pt", new String[][]{
+                {"nova conversa", "novo chat", "recomeçar", "reiniciar", "começar de novo"},
+                {"cancela", "cancelar", "esquece", "deixa pra lá", "nada"},
+                {"repete", "repita", "de novo", "o que você disse"},
+                {"para", "pare", "chega", "silêncio", "cala a boca"}});
+        PHRASES.put("fr", new String[][]{
+                {"nouvelle conversation", "recommence", "recommencer", "réinitialise"},
+                {"annule", "annuler", "laisse tomber", "oublie", "rien"},
+                {"répète", "répète ça", "encore", "qu'est-ce que tu as dit"},
+                {"stop", "arrête", "tais-toi", "silence", "ça suffit"}});
+        PHRASES.put("de", new String[][]{
+                {"neues gespräch", "neuer chat", "von vorne", "zurücksetzen", "neu anfangen"},
+                {"abbrechen", "vergiss es", "egal", "nichts"},
+                {"wiederhole", "wiederholen", "nochmal", "noch einmal", "was hast du gesagt"},
+                {"stopp", "stop", "halt", "ruhe", "sei still", "genug"}});
+        PHRASES.put("it", new String[][]{
+                {"nuova conversazione", "nuova chat", "ricomincia", "ricominciamo", "resetta"},
+                {"annulla", "lascia perdere", "lascia stare", "niente"},
+                {"ripeti", "ripetilo", "di nuovo", "cosa hai detto"},
+                {"basta", "fermati", "stop", "silenzio", "zitto"}});
+    }
+
+    private static final Action[] TABLE_ACTIONS = {Action.RESET, Action.CANCEL, Action.REPEAT, Action.STOP};
+
+    // Dropped from either end of a transcript before matching
+    private static final String[] FILLERS = {
+            "por favor", "porfa", "oye", "ok", "okay", "vale", "please", "hey", "hmm", "bitte", "s'il te plaît", "per favore"
+    };
+
+    private static final AtomicLong routed = new AtomicLong();
+    private static final AtomicLong passed = new AtomicLong();
+    private static final AtomicLong lookupNanosTotal = new AtomicLong();
+
+    private final Node root = new Node();
+    private final String[] fillers;
+    private int phrases = 0;
+
+    /**
+     * Build the index for a language: the built-in table, extra phrases from
+     * settings (see {@link #parseCustomPhrases}) and the quick command labels.
+     */
+    public IntentRouter(String languageCode, String customPhrases, QuickCommand[] commands) {
+        String[][] table = PHRASES.get(languageCode);
+        if (table == null) table = PHRASES.get("es");
+        fillers = new String[FILLERS.length];
+        for (int i = 0; i < FILLERS.length; i++) fillers[i] = normalize(FILLERS[i]);
+
+        for (int i = 0; i < TABLE_ACTIONS.length; i++) {
+            for (String phrase : table[i]) add(phrase, TABLE_ACTIONS[i], null);
+        }
+        parseCustomPhrases(customPhrases);
+        for (QuickCommand command : commands) {
+            add(command.label, Action.COMMAND, command);
+        }
+    }
+
+    /**
+     * Extra phrases, one action per line: "reset: nueva charla, de cero".
+     * Unknown actions and malformed lines are ignored.
+     */
+    private void parseCustomPhrases(String text) {
+        if (text == null) return;
+        for (String line : text.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            Action action;
+            try {
+                action = Action.valueOf(line.substring(0, colon).trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (action == Action.COMMAND) continue;
+            for (String phrase : line.substring(colon + 1).split(",")) {
+                add(phrase, action, null);
+            }
+        }
+    }
+
+    private void add(String phrase, Action action, QuickCommand command) {
+        String key = normalize(phrase);
+        if (key.isEmpty()) return;
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            Node next = node.children.get(c);
+            if (next == null) {
+                next = new Node();
+                node.children.put(c, next);
+            }
+            node = next;
+        }
+        // First definition wins, so a quick command can't shadow "para"
+        if (node.value == null) node.value = new Match(action, command, 0, phrases++);
+    }
+
+    /**
+     * The local intent this transcript expresses, or null if it should go to
+     * the gateway.
+     */
+    public Match match(String transcript) {
+        long start = System.nanoTime();
+        String key = stripFillers(normalize(transcript));
+        Match best = key.isEmpty() ? null : search(key, maxDistance(key.length()));
+        lookupNanosTotal.addAndGet(System.nanoTime() - start);
+        if (best != null) {
+            routed.incrementAndGet();
+            DebugLogger.log("Local intent " + best.action + (best.command != null ? " (" + best.command.label + ")" : "")
+                    + " for \"" + transcript + "\", distance " + best.distance);
+        } else {
+            passed.incrementAndGet();
+        }
+        return best;
+    }
+
+    /**
+     * Same as {@link #match} but without counting or logging; for partial
+     * transcripts that may still change.
+     */
+    public boolean wouldMatch(String transcript) {
+        String key = stripFillers(normalize(transcript));
+        return !key.isEmpty() && search(key, maxDistance(key.length())) != null;
+    }
+
+    private static int maxDistance(int length) {
+        if (length <= 4) return 0;
+        return length <= 12 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein search over the trie, one DP row per node, pruned as soon
+     * as a row's minimum exceeds the allowed distance.
+     */
+    private Match search(String key, int maxDistance) {
+        int[] firstRow = new int[key.length() + 1];
+        for (int i = 0; i <= key.length(); i++) firstRow[i] = i;
+        Match[] best = new Match[1];
+        for (Map.Entry<Character, Node> child : root.children.entrySet()) {
+            searchNode(child.getValue(), child.getKey(), key, firstRow, maxDistance, best);
+        }
+        return best[0];
+    }
+
+    private static void searchNode(Node node, char c, String key, int[] previous, int maxDistance, Match[] best) {
+        int columns = key.length() + 1;
+        int[] row = new int[columns];
+        row[0] = previous[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i < columns; i++) {
+            int cost = key.charAt(i - 1) == c ? 0 : 1;
+            row[i] = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            rowMin = Math.min(rowMin, row[i]);
+        }
+        int distance = row[columns - 1];
+        if (node.value != null && distance <= maxDistance) {
+            Match candidate = node.value.withDistance(distance);
+            if (candidate.beats(best[0])) best[0] = candidate;
+        }
+        if (rowMin > maxDistance) return;
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+            searchNode(child.getValue(), child.getKey(), key, row, maxDistance, best);
+        }
+    }
+
+    private String stripFillers(String text) {
+        boolean changed = true;
+        while (changed && !text.isEmpty()) {
+            changed = false;
+            for (String filler : fillers) {
+                if (text.equals(filler)) return "";
+                if (text.startsWith(filler + " ")) {
+                    text = text.substring(filler.length() + 1);
+                    changed = true;
+                } else if (text.endsWith(" " + filler)) {
+                    text = text.substring(0, text.length() - filler.length() - 1);
+                    changed = true;
+                }
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Lowercase, accents removed, letters and digits only, single spaces.
+     */
+    static String normalize(String text) {
+        String folded = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK
+                    && sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') sb.setLength(end - 1);
+        return sb.toString();
+    }
+
+    public static String getStats() {
+        long total = routed.get() + passed.get();
+        return routed.get() + " handled locally, " + passed.get() + " sent to gateway"
+                + (total == 0 ? "" : String.format(Locale.ROOT, ", avg lookup %.1fus", lookupNanosTotal.get() / total / 1000.0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+/**
+ * Picks the TTS audio quality for the current network.
+ *
+ * The network class (Wi-Fi vs cellular, metered or not) sets the ceiling;
+ * throughput measured on real TTS downloads overrides the platform's link
+ * estimate once there is a sample on the current network. Also keeps
+ * account of how many bytes each spoken second of audio costs.
+ */
+public class NetworkMonitor {
+    public enum Quality {
+        HIGH,     // 128 kbps / 44.1 kHz MP3, raw PCM allowed
+        STANDARD, // 64 kbps MP3
+        LOW       // 32 kbps / 22.05 kHz MP3, no raw PCM
+    }
+
+    private static final int HIGH_MIN_KBPS = 2000;
+    private static final int LOW_MAX_KBPS = 400;
+    private static final double THROUGHPUT_ALPHA = 0.3;
+    // Downloads smaller than this finish before TCP ramps up and say little
+    private static final long MIN_SAMPLE_BYTES = 16 * 1024;
+
+    private static NetworkMonitor instance;
+
+    private final ConnectivityManager connectivity;
+    private double measuredKbps = -1;
+    private long audioBytes = 0;
+    private long audioMs = 0;
+    private final long[] bytesByQuality = new long[Quality.values().length];
+
+    public static synchronized NetworkMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new NetworkMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NetworkMonitor(Context context) {
+        this.connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        try {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    // Throughput measured on the previous network no longer applies
+                    synchronized (NetworkMonitor.this) {
+                        measuredKbps = -1;
+                    }
+                    DebugLogger.log("Network changed, throughput estimate reset");
+                }
+            });
+        } catch (Exception e) {
+            DebugLogger.error("NetworkMonitor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Quality to request right now. Data saver always means LOW.
+     */
+    public Quality currentQuality(boolean dataSaver) {
+        if (dataSaver) return Quality.LOW;
+        NetworkCapabilities caps;
+        try {
+            caps = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        } catch (Exception e) {
+            caps = null;
+        }
+        if (caps == null) return Quality.STANDARD;
+
+        boolean unmetered = caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        boolean wifi = caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                || caps.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET);
+        double kbps;
+        synchronized (this) {
+            kbps = measuredKbps >= 0 ? measuredKbps : caps.getLinkDownstreamBandwidthKbps();
+        }
+
+        if (kbps > 0 && kbps < LOW_MAX_KBPS) return Quality.LOW;
+        if (wifi && unmetered && (kbps <= 0 || kbps >= HIGH_MIN_KBPS)) return Quality.HIGH;
+        return Quality.STANDARD;
+    }
+
+    /**
+     * A TTS download moved this many bytes in this many ms after its first byte.
+     */
+    public synchronized void recordThroughput(long bytes, long millis) {
+        if (bytes < MIN_SAMPLE_BYTES || millis <= 0) return;
+        double kbps = bytes * 8.0 / millis;
+        measuredKbps = measuredKbps < 0 ? kbps : measuredKbps + THROUGHPUT_ALPHA * (kbps - measuredKbps);
+    }
+
+    /**
+     * A clip of durationMs of speech took this many bytes to download.
+     */
+    public synchronized void recordAudio(Quality quality, long bytes, long durationMs) {
+        if (bytes <= 0 || durationMs <= 0) return;
+        audioBytes += bytes;
+        audioMs += durationMs;
+        bytesByQuality[quality.ordinal()] += bytes;
+    }
+
+    public synchronized String getStatsSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(measuredKbps < 0 ? "throughput unmeasured" : Math.round(measuredKbps) + " kbps measured");
+        sb.append(", ").append(audioMs == 0 ? 0 : audioBytes * 1000 / audioMs).append(" B per spoken second");
+        sb.append(" (").append(audioMs / 1000).append("s spoken");
+        for (Quality quality : Quality.values()) {
+            long bytes = bytesByQuality[quality.ordinal()];
+            if (bytes > 0) sb.append(", ").append(quality.name().toLowerCase()).append(" ").append(bytes / 1024).append(" KB");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,334 @@
+package com.voxnova;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Low-latency playback of raw 16-bit mono PCM through a streaming AudioTrack.
+ *
+ * Network threads copy provider audio into a fixed pool of buffers; a dedicated
+ * urgent-audio thread drains them into the track. There is no decoder to warm up
+ * and no per-buffer allocation once the pool exists. Once everything written
+ * has played the track is paused and the thread sleeps until the next buffer.
+ */
+public class PcmAudioEngine {
+    public static final int SAMPLE_RATE = 24000;
+    private static final int BYTES_PER_FRAME = 2; // 16-bit mono
+    private static final int CHUNK_SIZE = 4096;
+    private static final int POOL_SIZE = 16;
+    // How often the playback head is checked while an utterance is draining
+    private static final int POLL_INTERVAL_MS = 10;
+    // Queued by flush() to wake the audio thread
+    private static final Chunk WAKE = new Chunk();
+
+    private static final class Chunk {
+        final byte[] data = new byte[CHUNK_SIZE];
+        int length;
+        int generation;
+        boolean first;
+        boolean last;
+        long requestedAt;
+        TTSManager.TTSCallback callback;
+    }
+
+    private static final class Completion {
+        final long frame;
+        final TTSManager.TTSCallback callback;
+
+        Completion(long frame, TTSManager.TTSCallback callback) {
+            this.frame = frame;
+            this.callback = callback;
+        }
+    }
+
+    private final ArrayBlockingQueue<Chunk> freeChunks = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final ArrayBlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<>(POOL_SIZE + 1);
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean running = false;
+    private Thread audioThread;
+
+    // Owned by the audio thread
+    private AudioTrack track;
+    private boolean playing = false;
+    private long framesWritten = 0;
+    private final ArrayDeque<Completion> completions = new ArrayDeque<>();
+
+    public PcmAudioEngine() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            freeChunks.add(new Chunk());
+        }
+    }
+
+    /**
+     * Build the track and start the audio thread. Returns false if the
+     * device has no usable audio output.
+     */
+    private synchronized boolean ensureStarted() {
+        if (running) return true;
+        AudioTrack created;
+        try {
+            created = buildTrack();
+        } catch (Exception e) {
+            DebugLogger.error("AudioTrack init: " + e.getMessage());
+            return false;
+        }
+        if (created.getState() != AudioTrack.STATE_INITIALIZED) {
+            DebugLogger.error("AudioTrack init: state " + created.getState());
+            created.release();
+            return false;
+        }
+        track = created;
+        running = true;
+        audioThread = new Thread(() -> runLoop(created), "VoxNova-PCM");
+        audioThread.start();
+        return true;
+    }
+
+    /**
+     * Stream one utterance of PCM into the track. Blocks the calling (network)
+     * thread until the input is exhausted or playback is flushed.
+     */
+    public void play(InputStream pcmStream, long requestedAt, TTSManager.TTSCallback callback) {
+        if (!ensureStarted()) {
+            try { pcmStream.close(); } catch (Exception e) {}
+            callback.onError("Audio output unavailable");
+            return;
+        }
+        int gen = generation.get();
+        boolean first = true;
+        boolean hasCarry = false;
+        byte carry = 0;
+        long total = 0;
+
+        try {
+            while (true) {
+                Chunk chunk = takeFreeChunk(gen);
+                if (chunk == null) {
+                    DebugLogger.log("PCM playback flushed after " + total + " bytes");
+                    return;
+                }
+                int offset = 0;
+                if (hasCarry) {
+                    chunk.data[0] = carry;
+                    offset = 1;
+                    hasCarry = false;
+                }
+                int read;
+                try {
+                    read = pcmStream.read(chunk.data, offset, CHUNK_SIZE - offset);
+                } catch (IOException e) {
+                    freeChunks.offer(chunk);
+                    throw e;
+                }
+                if (read == -1) {
+                    // A trailing odd byte is half a sample; drop it
+                    queueChunk(chunk, gen, 0, first, true, requestedAt, callback);
+                    DebugLogger.log("PCM stream complete: " + total + " bytes");
+                    return;
+                }
+                int available = offset + read;
+                int usable = available & ~1;
+                if (usable != available) {
+                    carry = chunk.data[usable];
+                    hasCarry = true;
+                }
+                total += read;
+                queueChunk(chunk, gen, usable, first, false, requestedAt, callback);
+                first = false;
+            }
+        } catch (IOException e) {
+            DebugLogger.error("PCM stream: " + e.getMessage());
+            if (first) {
+                callback.onError(e.getMessage());
+                return;
+            }
+            // Finish what was already queued
+            Chunk tail = takeFreeChunk(gen);
+            if (tail != null) queueChunk(tail, gen, 0, false, true, requestedAt, callback);
+        } finally {
+            try { pcmStream.close(); } catch (Exception e) {}
+        }
+    }
+
+    private Chunk takeFreeChunk(int gen) {
+        try {
+            while (gen == generation.get() && running) {
+                Chunk chunk = freeChunks.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (chunk != null) return chunk;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private void queueChunk(Chunk chunk, int gen, int length, boolean first, boolean last,
+                            long requestedAt, TTSManager.TTSCallback callback) {
+        chunk.generation = gen;
+        chunk.length = length;
+        chunk.first = first;
+        chunk.last = last;
+        chunk.requestedAt = requestedAt;
+        chunk.callback = callback;
+        filledChunks.offer(chunk);
+    }
+
+    private void recycle(Chunk chunk) {
+        chunk.callback = null;
+        chunk.length = 0;
+        freeChunks.offer(chunk);
+    }
+
+    /**
+     * Drop everything queued or buffered in the track. Pending utterances
+     * never report onDone.
+     */
+    public void flush() {
+        generation.incrementAndGet();
+        filledChunks.offer(WAKE);
+    }
+
+    public synchronized void release() {
+        flush();
+        running = false;
+        if (audioThread != null) {
+            audioThread.interrupt();
+            audioThread = null;
+        }
+    }
+
+    private void runLoop(AudioTrack audioTrack) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        DebugLogger.log("PCM engine started, buffer=" + audioTrack.getBufferSizeInFrames() + " frames");
+
+        int seenGeneration = generation.get();
+        try {
+            while (running) {
+                Chunk chunk;
+                if (completions.isEmpty() && playedFrames() >= framesWritten) {
+                    // Nothing left to play: stop the track instead of feeding it silence
+                    if (playing) {
+                        track.pause();
+                        playing = false;
+                    }
+                    chunk = filledChunks.take();
+                } else {
+                    chunk = filledChunks.poll(drainWaitMs(), TimeUnit.MILLISECONDS);
+                }
+
+                int current = generation.get();
+                if (current != seenGeneration) {
+                    seenGeneration = current;
+                    discardBuffered();
+                }
+                if (chunk != null && chunk != WAKE) {
+                    if (chunk.generation == seenGeneration) {
+                        writeChunk(chunk);
+                    }
+                    recycle(chunk);
+                }
+                deliverCompletions();
+            }
+        } catch (InterruptedException e) {
+            // release() interrupts the thread to stop it
+        } finally {
+            try { audioTrack.stop(); } catch (Exception e) {}
+            audioTrack.release();
+            DebugLogger.log("PCM engine stopped");
+        }
+    }
+
+    /**
+     * How long to wait for more audio before checking the playback head:
+     * briefly while an utterance end is due, otherwise until the track
+     * would run dry.
+     */
+    private long drainWaitMs() {
+        if (!completions.isEmpty()) return POLL_INTERVAL_MS;
+        long remainingFrames = framesWritten - playedFrames();
+        return Math.max(POLL_INTERVAL_MS, remainingFrames * 1000 / SAMPLE_RATE);
+    }
+
+    private long playedFrames() {
+        return track.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+    }
+
+    private AudioTrack buildTrack() {
+        int minBuffer = AudioTrack.getMinBufferSize(SAMPLE_RATE,
+                AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        return new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .setUsage(AudioAttributes.USAGE_ASSISTANT)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(SAMPLE_RATE)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .build())
+                .setBufferSizeInBytes(Math.max(minBuffer, CHUNK_SIZE * 2))
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                .build();
+    }
+
+    private void writeChunk(Chunk chunk) {
+        if (chunk.first) {
+            final TTSManager.TTSCallback cb = chunk.callback;
+            DebugLogger.log("TTS first audio (PCM): " + (SystemClock.elapsedRealtime() - chunk.requestedAt) + "ms after request");
+            mainHandler.post(cb::onStart);
+        }
+        if (!playing && chunk.length > 0) {
+            track.play();
+            playing = true;
+        }
+        int offset = 0;
+        while (offset < chunk.length) {
+            int written = track.write(chunk.data, offset, chunk.length - offset);
+            if (written < 0) {
+                DebugLogger.error("AudioTrack write: " + written);
+                break;
+            }
+            offset += written;
+        }
+        framesWritten += offset / BYTES_PER_FRAME;
+        if (chunk.last) {
+            completions.add(new Completion(framesWritten, chunk.callback));
+        }
+    }
+
+    private void deliverCompletions() {
+        if (completions.isEmpty()) return;
+        long played = playedFrames();
+        while (!completions.isEmpty() && played >= completions.peek().frame) {
+            final TTSManager.TTSCallback cb = completions.poll().callback;
+            mainHandler.post(cb::onDone);
+        }
+    }
+
+    /**
+     * Drop audio already in the track. Stale chunks still queued are
+     * recycled as they are taken.
+     */
+    private void discardBuffered() {
+        completions.clear();
+        track.pause();
+        track.flush();
+        playing = false;
+        // flush() resets the playback head to zero
+        framesWritten = 0;
+    }
+}
@@ -0,0 +1,371 @@
+package com.voxnova;
+
+import android.content.Context;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pre-rendered audio for the fixed phrases the assistant speaks: status
+ * prompts, recognizer errors and quick command acknowledgements.
+ *
+ * Phrases are rendered when settings or quick commands are saved, one at a
+ * time on the synthesis pool of an open TTSManager (which also gates each
+ * request on the provider's circuit), and stored in one indexed pack file per
+ * provider, language and audio format. A render asked for while no TTSManager
+ * is around waits for the next one. Unchanged phrases are copied from the
+ * previous pack, so only new text goes over the network.
+ *
+ * Pack layout: magic, version, header length, then the header (count and
+ * key/offset/length/format per entry) followed by the concatenated audio.
+ */
+public class PhraseBank {
+    private static final String DIR_NAME = "phrase_bank";
+    private static final int MAGIC = 0x56585042; // "VXPB"
+    private static final int VERSION = 1;
+    private static final int PREAMBLE_BYTES = 12;
+
+    private static PhraseBank instance;
+
+    /** Synthesizes phrases for the bank; a TTSManager in the app. */
+    public interface Synthesizer {
+        /**
+         * Queue one phrase; the callback gets its audio, or null if it could
+         * not be synthesized. False if the phrase could not be queued.
+         */
+        boolean synthesizePhrase(String provider, String text, String language, boolean rawPcm,
+                                 ClipCallback callback);
+    }
+
+    public interface ClipCallback {
+        void onClip(byte[] data);
+    }
+
+    private static final class Entry {
+        final int offset;
+        final int length;
+        final boolean pcm;
+
+        Entry(int offset, int length, boolean pcm) {
+            this.offset = offset;
+            this.length = length;
+            this.pcm = pcm;
+        }
+    }
+
+    private final File dir;
+    private String loadedPack;
+    private Map<String, Entry> index = Collections.emptyMap();
+    private MappedByteBuffer audio;
+    private Synthesizer renderer;
+    // The latest render asked for and not started yet; supersedes older ones
+    private Render pending;
+    private boolean rendering = false;
+
+    public static synchronized PhraseBank getInstance(Context context) {
+        if (instance == null) {
+            instance = new PhraseBank(new File(context.getApplicationContext().getFilesDir(), DIR_NAME));
+        }
+        return instance;
+    }
+
+    PhraseBank(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Acknowledgement spoken when a quick command is tapped.
+     */
+    public static String acknowledgement(String languageCode, String label) {
+        switch (languageCode) {
+            case "en": return "Sure, " + label;
+            case "fr": return "D'accord, " + label;
+            case "de": return "Okay, " + label;
+            case "it": return "Certo, " + label;
+            default: return "Claro, " + label; // es, pt
+        }
+    }
+
+    /**
+     * The given prompts plus the acknowledgement of every command.
+     */
+    public static List<String> fixedPhrases(List<String> prompts, String languageCode, QuickCommand[] commands) {
+        Set<String> phrases = new LinkedHashSet<>(prompts);
+        for (QuickCommand cmd : commands) {
+            phrases.add(acknowledgement(languageCode, cmd.label));
+        }
+        return new ArrayList<>(phrases);
+    }
+
+    /**
+     * The network provider phrases are rendered with, or null if only the
+     * local Google engine is available (which needs no pre-rendering).
+     */
+    static String resolveProvider(PreferencesManager prefs) {
+        boolean hasCartesia = !prefs.getCartesiaApiKey().isEmpty();
+        boolean hasElevenLabs = !prefs.getElevenLabsApiKey().isEmpty();
+        switch (prefs.getTtsProvider()) {
+            case PreferencesManager.TTS_PROVIDER_CARTESIA:
+                return hasCartesia ? PreferencesManager.TTS_PROVIDER_CARTESIA : null;
+            case PreferencesManager.TTS_PROVIDER_ELEVENLABS:
+                return hasElevenLabs ? PreferencesManager.TTS_PROVIDER_ELEVENLABS : null;
+            case PreferencesManager.TTS_PROVIDER_GOOGLE:
+                return null;
+            default:
+                if (hasCartesia) return PreferencesManager.TTS_PROVIDER_CARTESIA;
+                if (hasElevenLabs) return PreferencesManager.TTS_PROVIDER_ELEVENLABS;
+                return null;
+        }
+    }
+
+    private static String packName(String provider, String languageCode, boolean rawPcm) {
+        return provider + "_" + languageCode + "_" + (rawPcm ? "pcm" : "mp3") + ".pack";
+    }
+
+    /**
+     * Look up a phrase by its TTS cache key in the pack for these settings.
+     */
+    public synchronized AudioCache.CachedAudio get(String provider, String languageCode, boolean rawPcm, String key) {
+        String name = packName(provider, languageCode, rawPcm);
+        if (!name.equals(loadedPack)) {
+            load(name);
+        }
+        Entry entry = index.get(key);
+        if (entry == null || audio == null) return null;
+        byte[] data = new byte[entry.length];
+        ByteBuffer view = audio.duplicate();
+        view.position(entry.offset);
+        view.get(data);
+        return new AudioCache.CachedAudio(data, entry.pcm);
+    }
+
+    private void load(String name) {
+        loadedPack = name;
+        index = Collections.emptyMap();
+        audio = null;
+        File file = new File(dir, name);
+        if (!file.exists()) return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            int magic = raf.readInt();
+            int version = raf.readInt();
+            int headerLength = raf.readInt();
+            if (magic != MAGIC || version != VERSION) {
+                DebugLogger.error("PhraseBank: bad pack " + name);
+                return;
+            }
+            byte[] header = new byte[headerLength];
+            raf.readFully(header);
+            index = readHeader(header);
+            long dataStart = PREAMBLE_BYTES + headerLength;
+            audio = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, dataStart, raf.length() - dataStart);
+            DebugLogger.log("PhraseBank: loaded " + index.size() + " phrases from " + name);
+        } catch (IOException e) {
+            DebugLogger.error("PhraseBank load: " + e.getMessage());
+            index = Collections.emptyMap();
+            audio = null;
+        }
+    }
+
+    private static Map<String, Entry> readHeader(byte[] header) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        int count = in.readInt();
+        Map<String, Entry> entries = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            int offset = in.readInt();
+            int length = in.readInt();
+            boolean pcm = in.readBoolean();
+            entries.put(key, new Entry(offset, length, pcm));
+        }
+        return entries;
+    }
+
+    /**
+     * Bring the pack for the current settings up to date in the background,
+     * with the given prompts and the command acknowledgements. Only the
+     * latest request is kept while a render is running.
+     */
+    public void renderAsync(PreferencesManager prefs, List<String> prompts) {
+        String provider = resolveProvider(prefs);
+        if (provider == null) {
+            DebugLogger.log("PhraseBank: no network TTS provider, nothing to render");
+            return;
+        }
+        String languageCode = prefs.getTtsLanguageCode();
+        QuickCommand[] commands = QuickCommand.fromJson(prefs.getQuickCommandsJson());
+        render(provider, languageCode, prefs.isLowLatencyAudio(), fixedPhrases(prompts, languageCode, commands));
+    }
+
+    synchronized void render(String provider, String languageCode, boolean rawPcm, List<String> phrases) {
+        pending = new Render(provider, languageCode, rawPcm, phrases);
+        startPending();
+    }
+
+    /**
+     * The synthesizer renders go through while it is open; starts any render
+     * that was waiting for one.
+     */
+    public synchronized void setRenderer(Synthesizer synthesizer) {
+        renderer = synthesizer;
+        startPending();
+    }
+
+    public synchronized void clearRenderer(Synthesizer synthesizer) {
+        if (renderer == synthesizer) renderer = null;
+    }
+
+    private void startPending() {
+        if (rendering || pending == null || renderer == null) return;
+        Render render = pending;
+        pending = null;
+        rendering = true;
+        render.start(renderer);
+    }
+
+    /** One pass over the phrases of a pack, a phrase at a time. */
+    private final class Render {
+        final String provider;
+        final String languageCode;
+        final boolean rawPcm;
+        final List<String> phrases;
+        final String name;
+        final List<String> keys = new ArrayList<>();
+        final List<byte[]> clips = new ArrayList<>();
+        Set<String> previousKeys;
+        Synthesizer synthesizer;
+        int position = 0;
+        int reused = 0;
+        int rendered = 0;
+
+        Render(String provider, String languageCode, boolean rawPcm, List<String> phrases) {
+            this.provider = provider;
+            this.languageCode = languageCode;
+            this.rawPcm = rawPcm;
+            this.phrases = phrases;
+            this.name = packName(provider, languageCode, rawPcm);
+        }
+
+        void start(Synthesizer synthesizer) {
+            this.synthesizer = synthesizer;
+            synchronized (PhraseBank.this) {
+                if (!name.equals(loadedPack)) load(name);
+                previousKeys = new LinkedHashSet<>(index.keySet());
+            }
+            next();
+        }
+
+        /**
+         * Copy phrases already in the pack up to the first one that is not,
+         * and queue that one; finish once every phrase is done.
+         */
+        void next() {
+            while (position < phrases.size()) {
+                String phrase = phrases.get(position);
+                String key = TTSManager.cacheKey(provider, languageCode, rawPcm, phrase);
+                AudioCache.CachedAudio existing = get(provider, languageCode, rawPcm, key);
+                if (existing == null) {
+                    boolean queued = synthesizer.synthesizePhrase(provider, phrase, languageCode, rawPcm, data -> {
+                        if (data != null) {
+                            keys.add(key);
+                            clips.add(data);
+                            rendered++;
+                        } else {
+                            DebugLogger.error("PhraseBank: no audio for \"" + phrase + "\"");
+                        }
+                        position++;
+                        next();
+                    });
+                    if (!queued) finish(false);
+                    return;
+                }
+                keys.add(key);
+                clips.add(existing.data);
+                reused++;
+                position++;
+            }
+            finish(true);
+        }
+
+        /**
+         * Write what was rendered. An interrupted pass is queued again, to
+         * resume with the next synthesizer or request; it is not restarted
+         * here, as the pool that turned it away is likely still busy.
+         */
+        private void finish(boolean complete) {
+            try {
+                if (rendered == 0 && previousKeys.equals(new LinkedHashSet<>(keys))) {
+                    DebugLogger.log("PhraseBank: " + name + " up to date (" + reused + " phrases)");
+                } else {
+                    write(name, keys, clips, rawPcm);
+                    synchronized (PhraseBank.this) {
+                        load(name);
+                    }
+                    DebugLogger.success("PhraseBank: " + name + " rendered " + rendered + ", reused " + reused);
+                }
+            } catch (IOException e) {
+                DebugLogger.error("PhraseBank render: " + e.getMessage());
+            }
+            synchronized (PhraseBank.this) {
+                rendering = false;
+                if (complete) {
+                    startPending();
+                } else if (pending == null) {
+                    pending = new Render(provider, languageCode, rawPcm, phrases);
+                }
+            }
+        }
+    }
+
+    private void write(String name, List<String> keys, List<byte[]> clips, boolean rawPcm) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(keys.size());
+        int offset = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            header.writeUTF(keys.get(i));
+            header.writeInt(offset);
+            header.writeInt(clips.get(i).length);
+            header.writeBoolean(rawPcm);
+            offset += clips.get(i).length;
+        }
+        header.flush();
+
+        File tmp = new File(dir, name + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            for (byte[] clip : clips) out.write(clip);
+        }
+        synchronized (this) {
+            // Drop the mapping before replacing the file underneath it
+            index = Collections.emptyMap();
+            audio = null;
+            loadedPack = null;
+            if (!tmp.renameTo(new File(dir, name))) {
+                tmp.delete();
+                throw new IOException("Cannot replace " + name);
+            }
+        }
+    }
+}
@@ -13,6 +13,17 @@ public class PreferencesManager {
     private static final String KEY_SILENCE_TIMEOUT = "silence_timeout";
     private static final String KEY_TTS_PROVIDER = "tts_provider";
     private static final String KEY_QUICK_COMMANDS = "quick_commands";
+    private static final String KEY_LOW_LATENCY_AUDIO = "low_latency_audio";
+    private static final String KEY_HEDGE_DELAY_MS = "hedge_delay_ms";
+    private static final String KEY_DATA_SAVER = "data_saver";
+    private static final String KEY_BARGE_IN = "barge_in";
+    private static final String KEY_EARCONS = "earcons";
+    private static final String KEY_FILLER_CUE = "filler_cue";
+    private static final String KEY_CONTINUOUS_CONVERSATION = "continuous_conversation";
+    private static final String KEY_CONVERSATION_IDLE_MS = "conversation_idle_ms";
+    private static final String KEY_SPECULATIVE_DISPATCH = "speculative_dispatch";
+    private static final String KEY_ADAPTIVE_ENDPOINTING = "adaptive_endpointing";
+    private static final String KEY_CONTROL_PHRASES = "control_phrases";
 
     public static final String DEFAULT_LANGUAGE = "es-MX";
     public static final String TTS_PROVIDER_AUTO = "auto";
@@ -20,6 +31,7 @@ public class PreferencesManager {
     public static final String TTS_PROVIDER_ELEVENLABS = "elevenlabs";
     public static final String TTS_PROVIDER_GOOGLE = "google";
     public static final int DEFAULT_SILENCE_TIMEOUT = 2000; // 2 seconds
+    public static final int DEFAULT_CONVERSATION_IDLE_MS = 8000;
 
     private final SharedPreferences prefs;
 
@@ -116,4 +128,137 @@ public class PreferencesManager {
     public void setQuickCommandsJson(String json) {
         prefs.edit().putString(KEY_QUICK_COMMANDS, json).apply();
     }
+
+    public static boolean isQuickCommandsKey(String key) {
+        return KEY_QUICK_COMMANDS.equals(key);
+    }
+
+    /**
+     * Listen for preference changes. SharedPreferences only keeps a weak reference.
+     */
+    public void registerChangeListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    /**
+     * Request raw PCM from providers and play it through AudioTrack instead of MP3/MediaPlayer
+     */
+    public boolean isLowLatencyAudio() {
+        return prefs.getBoolean(KEY_LOW_LATENCY_AUDIO, false);
+    }
+
+    public void setLowLatencyAudio(boolean enabled) {
+        prefs.edit().putBoolean(KEY_LOW_LATENCY_AUDIO, enabled).apply();
+    }
+
+    /**
+     * Delay before a hedged TTS request goes to the secondary provider; 0 = derive from latency
+     */
+    public int getHedgeDelayMs() {
+        return prefs.getInt(KEY_HEDGE_DELAY_MS, 0);
+    }
+
+    public void setHedgeDelayMs(int delayMs) {
+        prefs.edit().putInt(KEY_HEDGE_DELAY_MS, delayMs).apply();
+    }
+
+    /**
+     * Always request the smallest TTS audio format, whatever the network
+     */
+    public boolean isDataSaver() {
+        return prefs.getBoolean(KEY_DATA_SAVER, false);
+    }
+
+    public void setDataSaver(boolean enabled) {
+        prefs.edit().putBoolean(KEY_DATA_SAVER, enabled).apply();
+    }
+
+    /**
+     * Let the user interrupt a spoken answer by talking over it
+     */
+    public boolean isBargeIn() {
+        return prefs.getBoolean(KEY_BARGE_IN, false);
+    }
+
+    public void setBargeIn(boolean enabled) {
+        prefs.edit().putBoolean(KEY_BARGE_IN, enabled).apply();
+    }
+
+    /**
+     * Short sounds on listening, processing and error transitions
+     */
+    public boolean isEarcons() {
+        return prefs.getBoolean(KEY_EARCONS, false);
+    }
+
+    public void setEarcons(boolean enabled) {
+        prefs.edit().putBoolean(KEY_EARCONS, enabled).apply();
+    }
+
+    /**
+     * Soft repeating cue while a slow answer has not started playing
+     */
+    public boolean isFillerCue() {
+        return prefs.getBoolean(KEY_FILLER_CUE, false);
+    }
+
+    public void setFillerCue(boolean enabled) {
+        prefs.edit().putBoolean(KEY_FILLER_CUE, enabled).apply();
+    }
+
+    /**
+     * Keep the session open and listen again after each answer
+     */
+    public boolean isContinuousConversation() {
+        return prefs.getBoolean(KEY_CONTINUOUS_CONVERSATION, false);
+    }
+
+    public void setContinuousConversation(boolean enabled) {
+        prefs.edit().putBoolean(KEY_CONTINUOUS_CONVERSATION, enabled).apply();
+    }
+
+    /**
+     * Silence after an answer that ends a continuous conversation
+     */
+    public int getConversationIdleMs() {
+        return prefs.getInt(KEY_CONVERSATION_IDLE_MS, DEFAULT_CONVERSATION_IDLE_MS);
+    }
+
+    public void setConversationIdleMs(int idleMs) {
+        prefs.edit().putInt(KEY_CONVERSATION_IDLE_MS, idleMs).apply();
+    }
+
+    /**
+     * Send a partial transcript to the gateway once it stops changing, before the final result
+     */
+    public boolean isSpeculativeDispatch() {
+        return prefs.getBoolean(KEY_SPECULATIVE_DISPATCH, false);
+    }
+
+    public void setSpeculativeDispatch(boolean enabled) {
+        prefs.edit().putBoolean(KEY_SPECULATIVE_DISPATCH, enabled).apply();
+    }
+
+    /**
+     * End the utterance from input levels once the user's usual pause has clearly passed;
+     * the silence timeout becomes the upper bound
+     */
+    public boolean isAdaptiveEndpointing() {
+        return prefs.getBoolean(KEY_ADAPTIVE_ENDPOINTING, false);
+    }
+
+    public void setAdaptiveEndpointing(boolean enabled) {
+        prefs.edit().putBoolean(KEY_ADAPTIVE_ENDPOINTING, enabled).apply();
+    }
+
+    /**
+     * Extra local control phrases, one action per line: "stop: silencio, ya basta"
+     */
+    public String getControlPhrases() {
+        return prefs.getString(KEY_CONTROL_PHRASES, "");
+    }
+
+    public void setControlPhrases(String phrases) {
+        prefs.edit().putString(KEY_CONTROL_PHRASES, phrases).apply();
+    }
 }
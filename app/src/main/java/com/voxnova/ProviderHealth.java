@@ -0,0 +1,268 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-provider TTS health: smoothed time-to-first-byte, error rate and the
+ * most recent status codes, plus a circuit breaker per provider.
+ *
+ * A provider that keeps failing (or says it is rate limited) is skipped for a
+ * cool-down that doubles on every re-trip. When the cool-down ends a single
+ * trial request is let through; success closes the circuit again. State is
+ * kept in its own SharedPreferences file so it survives process restarts.
+ */
+public class ProviderHealth {
+    private static final String PREFS_NAME = "voxnova_provider_health";
+    private static final double EWMA_ALPHA = 0.3;
+    private static final int RECENT_CODES = 10;
+    private static final int FAILURES_TO_OPEN = 3;
+    private static final long BASE_COOLDOWN_MS = 30 * 1000;
+    private static final long MAX_COOLDOWN_MS = 5 * 60 * 1000;
+    // Unmeasured providers rank as if this fast, so they get tried
+    private static final double UNKNOWN_TTFB_MS = 800;
+    // A provider failing every request ranks this many ms slower
+    private static final double ERROR_PENALTY_MS = 4000;
+
+    private static ProviderHealth instance;
+
+    private static final class Stats {
+        double ttfbMs = -1;
+        double errorRate = 0;
+        long successes = 0;
+        long failures = 0;
+        int consecutiveFailures = 0;
+        int trips = 0;
+        long openUntil = 0;
+        // When the current half-open trial was let through, 0 if none
+        long trialStartedAt = 0;
+        final ArrayDeque<Integer> recentCodes = new ArrayDeque<>();
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("ttfb", ttfbMs);
+            json.put("errorRate", errorRate);
+            json.put("successes", successes);
+            json.put("failures", failures);
+            json.put("consecutiveFailures", consecutiveFailures);
+            json.put("trips", trips);
+            json.put("openUntil", openUntil);
+            JSONArray codes = new JSONArray();
+            for (int code : recentCodes) codes.put(code);
+            json.put("codes", codes);
+            return json;
+        }
+
+        static Stats fromJson(JSONObject json) {
+            Stats stats = new Stats();
+            stats.ttfbMs = json.optDouble("ttfb", -1);
+            stats.errorRate = json.optDouble("errorRate", 0);
+            stats.successes = json.optLong("successes", 0);
+            stats.failures = json.optLong("failures", 0);
+            stats.consecutiveFailures = json.optInt("consecutiveFailures", 0);
+            stats.trips = json.optInt("trips", 0);
+            stats.openUntil = json.optLong("openUntil", 0);
+            JSONArray codes = json.optJSONArray("codes");
+            if (codes != null) {
+                for (int i = 0; i < codes.length(); i++) stats.recentCodes.add(codes.optInt(i));
+            }
+            return stats;
+        }
+    }
+
+    private final SharedPreferences store;
+    private final Map<String, Stats> providers = new HashMap<>();
+
+    public static synchronized ProviderHealth getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProviderHealth(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ProviderHealth(Context context) {
+        this(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+
+    ProviderHealth(SharedPreferences store) {
+        this.store = store;
+        for (Map.Entry<String, ?> entry : store.getAll().entrySet()) {
+            try {
+                providers.put(entry.getKey(), Stats.fromJson(new JSONObject(String.valueOf(entry.getValue()))));
+            } catch (JSONException e) {
+                DebugLogger.error("ProviderHealth: bad entry for " + entry.getKey());
+            }
+        }
+    }
+
+    private Stats stats(String provider) {
+        Stats stats = providers.get(provider);
+        if (stats == null) {
+            stats = new Stats();
+            providers.put(provider, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * A request delivered its first audio byte after ttfbMs (-1 if not comparable,
+     * e.g. a streamed context whose latency depends on when text arrived).
+     */
+    public synchronized void recordSuccess(String provider, long ttfbMs, int statusCode) {
+        Stats stats = stats(provider);
+        if (ttfbMs >= 0) {
+            stats.ttfbMs = stats.ttfbMs < 0 ? ttfbMs : stats.ttfbMs + EWMA_ALPHA * (ttfbMs - stats.ttfbMs);
+        }
+        stats.errorRate -= EWMA_ALPHA * stats.errorRate;
+        stats.successes++;
+        stats.consecutiveFailures = 0;
+        stats.trialStartedAt = 0;
+        if (stats.openUntil != 0) {
+            DebugLogger.success("Circuit closed: " + provider);
+            stats.openUntil = 0;
+            stats.trips = 0;
+        }
+        addCode(stats, statusCode);
+        save(provider, stats);
+    }
+
+    /**
+     * A request was cancelled after waitedMs without its first byte, so its
+     * time-to-first-byte was at least that long. Only raises the estimate;
+     * the request counts as neither a success nor a failure.
+     */
+    public synchronized void recordCensored(String provider, long waitedMs) {
+        Stats stats = stats(provider);
+        if (stats.ttfbMs >= 0 && waitedMs <= stats.ttfbMs) return;
+        stats.ttfbMs = stats.ttfbMs < 0 ? waitedMs : stats.ttfbMs + EWMA_ALPHA * (waitedMs - stats.ttfbMs);
+        save(provider, stats);
+    }
+
+    /**
+     * A request failed. statusCode is the HTTP status, or 0 for network errors.
+     */
+    public synchronized void recordFailure(String provider, int statusCode) {
+        Stats stats = stats(provider);
+        stats.errorRate += EWMA_ALPHA * (1 - stats.errorRate);
+        stats.failures++;
+        stats.consecutiveFailures++;
+        addCode(stats, statusCode);
+
+        // Rate limits and rejected keys will not fix themselves on retry
+        boolean fatal = statusCode == 429 || statusCode == 401 || statusCode == 403;
+        if (stats.trialStartedAt != 0 || fatal || stats.consecutiveFailures >= FAILURES_TO_OPEN) {
+            long cooldown = Math.min(MAX_COOLDOWN_MS, BASE_COOLDOWN_MS << Math.min(stats.trips, 4));
+            stats.trips++;
+            stats.trialStartedAt = 0;
+            stats.openUntil = now() + cooldown;
+            DebugLogger.error("Circuit open: " + provider + " for " + cooldown / 1000 + "s (last status " + statusCode + ")");
+        }
+        save(provider, stats);
+    }
+
+    private static void addCode(Stats stats, int statusCode) {
+        stats.recentCodes.add(statusCode);
+        while (stats.recentCodes.size() > RECENT_CODES) stats.recentCodes.poll();
+    }
+
+    /**
+     * Whether this provider could take a request now: its circuit is closed,
+     * or its cool-down has passed and no trial is running. Changes nothing,
+     * so it is safe to ask while ranking or planning.
+     */
+    public synchronized boolean isAvailable(String provider) {
+        Stats stats = providers.get(provider);
+        return stats == null || stats.openUntil == 0 || trialOpen(stats, now());
+    }
+
+    /**
+     * Call right before sending a request. True while the circuit is closed;
+     * once a cool-down has passed, true for exactly one caller, which becomes
+     * the half-open trial. A trial that never reports back (cancelled, served
+     * from cache) expires after the base cool-down so the provider is not
+     * locked out forever.
+     */
+    public synchronized boolean tryAcquireTrial(String provider) {
+        Stats stats = providers.get(provider);
+        if (stats == null || stats.openUntil == 0) return true;
+        long now = now();
+        if (!trialOpen(stats, now)) return false;
+        stats.trialStartedAt = now;
+        DebugLogger.log("Circuit half-open: trying " + provider);
+        return true;
+    }
+
+    private static boolean trialOpen(Stats stats, long now) {
+        return now >= stats.openUntil
+                && (stats.trialStartedAt == 0 || now - stats.trialStartedAt >= BASE_COOLDOWN_MS);
+    }
+
+    /**
+     * Smoothed time-to-first-byte, or -1 if never measured.
+     */
+    public synchronized double getTtfbMs(String provider) {
+        Stats stats = providers.get(provider);
+        return stats == null ? -1 : stats.ttfbMs;
+    }
+
+    /**
+     * Available providers from the candidates, best first. Latency is the
+     * main criterion; recent errors push a provider down the list. Read-only:
+     * whoever dispatches still has to call tryAcquireTrial().
+     */
+    public synchronized List<String> rank(List<String> candidates) {
+        List<String> ranked = new ArrayList<>();
+        for (String provider : candidates) {
+            if (isAvailable(provider)) ranked.add(provider);
+        }
+        ranked.sort((a, b) -> Double.compare(score(a), score(b)));
+        return ranked;
+    }
+
+    private double score(String provider) {
+        Stats stats = providers.get(provider);
+        if (stats == null) return UNKNOWN_TTFB_MS;
+        double ttfb = stats.ttfbMs < 0 ? UNKNOWN_TTFB_MS : stats.ttfbMs;
+        return ttfb + stats.errorRate * ERROR_PENALTY_MS;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private void save(String provider, Stats stats) {
+        try {
+            store.edit().putString(provider, stats.toJson().toString()).apply();
+        } catch (JSONException e) {
+            DebugLogger.error("ProviderHealth save: " + e.getMessage());
+        }
+    }
+
+    public synchronized String getSummary() {
+        if (providers.isEmpty()) return "no data yet";
+        StringBuilder sb = new StringBuilder();
+        long now = now();
+        for (Map.Entry<String, Stats> entry : providers.entrySet()) {
+            Stats stats = entry.getValue();
+            if (sb.length() > 0) sb.append("\n");
+            sb.append("  ").append(entry.getKey()).append(": ");
+            sb.append(stats.ttfbMs < 0 ? "-" : Math.round(stats.ttfbMs) + "ms").append(" TTFB, ");
+            sb.append(Math.round(stats.errorRate * 100)).append("% errors, ");
+            sb.append(stats.successes).append(" ok/").append(stats.failures).append(" failed, codes ").append(stats.recentCodes);
+            if (stats.openUntil > now) {
+                sb.append(", OPEN ").append((stats.openUntil - now) / 1000).append("s");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,318 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last answers to quick commands, so a repeated tap can be answered without
+ * waiting for the gateway.
+ *
+ * Each command chooses a policy in its JSON ("cache": "none", "ttl" or
+ * "refresh", with "ttlSec"). A TTL answer is served until it expires. A
+ * refresh-ahead answer is always served, and once it is past a fraction of
+ * its TTL a background request replaces it for the next tap; while a session
+ * is open its audio is synthesized into the audio cache too, through that
+ * session's TTS. Requests run on their own gateway client, so they survive
+ * the session that started them, and taps of a command whose request is
+ * still running join that request. Answers are kept in their own
+ * SharedPreferences file. Main thread only.
+ */
+public class QuickAnswerCache {
+    public enum Policy { NONE, TTL, REFRESH_AHEAD }
+
+    enum Serve { MISS, FRESH, STALE }
+
+    public static final long DEFAULT_TTL_MS = 10 * 60 * 1000;
+
+    private static final String PREFS_NAME = "voxnova_quick_answers";
+    // Refresh-ahead starts a background refresh once an answer is this far into its TTL
+    private static final double REFRESH_AT = 0.75;
+    // Older than this even refresh-ahead waits for a fresh answer
+    private static final long MAX_STALE_MS = 24 * 60 * 60 * 1000;
+
+    private static QuickAnswerCache instance;
+
+    private static final AtomicLong freshServes = new AtomicLong();
+    private static final AtomicLong staleServes = new AtomicLong();
+    private static final AtomicLong staleAgeMsTotal = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong collapsed = new AtomicLong();
+    private static final AtomicLong refreshes = new AtomicLong();
+
+    public static final class Entry {
+        public final String text;
+        public final List<String> audioKeys;
+        public final long fetchedAt;
+
+        Entry(String text, List<String> audioKeys, long fetchedAt) {
+            this.text = text;
+            this.audioKeys = audioKeys;
+            this.fetchedAt = fetchedAt;
+        }
+
+        long ageMs() {
+            return System.currentTimeMillis() - fetchedAt;
+        }
+    }
+
+    /** One gateway request for a command and everyone waiting on it. */
+    private final class Flight {
+        final String command;
+        final ClawdbotClient client;
+        final StringBuilder received = new StringBuilder();
+        final List<ClawdbotClient.ResponseCallback> callbacks = new ArrayList<>();
+        final List<ClawdbotClient.StreamListener> listeners = new ArrayList<>();
+
+        Flight(String command) {
+            this.command = command;
+            this.client = new ClawdbotClient(context, prefs.getGatewayUrl(), prefs.getAuthToken());
+        }
+
+        void join(ClawdbotClient.ResponseCallback callback, ClawdbotClient.StreamListener listener) {
+            if (callback != null) callbacks.add(callback);
+            if (listener != null) {
+                listeners.add(listener);
+                if (received.length() > 0) listener.onDelta(received.toString());
+            }
+        }
+
+        void start() {
+            client.sendMessage(command, new ClawdbotClient.ResponseCallback() {
+                @Override public void onSuccess(String response) {
+                    land();
+                    store(command, response, null);
+                    for (ClawdbotClient.ResponseCallback callback : callbacks) callback.onSuccess(response);
+                }
+                @Override public void onError(String error) {
+                    land();
+                    DebugLogger.error("Quick answer for " + command + " failed: " + error);
+                    for (ClawdbotClient.ResponseCallback callback : callbacks) callback.onError(error);
+                }
+            }, delta -> {
+                received.append(delta);
+                for (ClawdbotClient.StreamListener listener : listeners) listener.onDelta(delta);
+            });
+        }
+
+        private void land() {
+            inFlight.remove(command);
+            client.disconnect();
+        }
+    }
+
+    private final Context context;
+    private final PreferencesManager prefs;
+    private final SharedPreferences store;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    private TTSManager renderer;
+
+    public static synchronized QuickAnswerCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new QuickAnswerCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private QuickAnswerCache(Context context) {
+        this.context = context;
+        this.prefs = new PreferencesManager(context);
+        this.store = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> saved : store.getAll().entrySet()) {
+            Entry entry = parse(String.valueOf(saved.getValue()));
+            if (entry != null) entries.put(saved.getKey(), entry);
+        }
+    }
+
+    /**
+     * The answer to serve for this tap, or null if it must come from the
+     * gateway. May start a background refresh.
+     */
+    public Entry serve(QuickCommand cmd) {
+        Policy policy = cmd.cachePolicy();
+        if (policy == Policy.NONE) return null;
+        Entry entry = entries.get(cmd.command);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        long age = entry.ageMs();
+        long ttl = cmd.cacheTtlMs();
+        switch (decide(policy, age, ttl)) {
+            case MISS:
+                misses.incrementAndGet();
+                return null;
+            case STALE:
+                staleServes.incrementAndGet();
+                staleAgeMsTotal.addAndGet(age);
+                break;
+            default:
+                freshServes.incrementAndGet();
+        }
+        if (needsRefresh(policy, age, ttl)) refresh(cmd);
+        DebugLogger.log("Quick answer for " + cmd.command + " from cache, " + age / 1000 + "s old");
+        return entry;
+    }
+
+    /**
+     * How a cached answer this old is served under the policy.
+     */
+    static Serve decide(Policy policy, long ageMs, long ttlMs) {
+        switch (policy) {
+            case TTL:
+                return ageMs < ttlMs ? Serve.FRESH : Serve.MISS;
+            case REFRESH_AHEAD:
+                if (ageMs >= MAX_STALE_MS) return Serve.MISS;
+                return ageMs < ttlMs ? Serve.FRESH : Serve.STALE;
+            default:
+                return Serve.MISS;
+        }
+    }
+
+    /**
+     * Whether serving an answer this old should start a background refresh.
+     */
+    static boolean needsRefresh(Policy policy, long ageMs, long ttlMs) {
+        return policy == Policy.REFRESH_AHEAD && ageMs < MAX_STALE_MS && ageMs >= ttlMs * REFRESH_AT;
+    }
+
+    /**
+     * Ask the gateway, joining a request already running for this command.
+     * Callbacks run on the main thread.
+     */
+    public void fetch(QuickCommand cmd, ClawdbotClient.ResponseCallback callback,
+                      ClawdbotClient.StreamListener listener) {
+        Flight flight = inFlight.get(cmd.command);
+        if (flight != null) {
+            collapsed.incrementAndGet();
+            DebugLogger.log("Quick command " + cmd.command + " already in flight, joining it");
+            flight.join(callback, listener);
+            return;
+        }
+        flight = new Flight(cmd.command);
+        inFlight.put(cmd.command, flight);
+        flight.join(callback, listener);
+        flight.start();
+    }
+
+    private void refresh(QuickCommand cmd) {
+        if (inFlight.containsKey(cmd.command)) return;
+        refreshes.incrementAndGet();
+        DebugLogger.log("Refreshing quick answer for " + cmd.command + " in the background");
+        fetch(cmd, new ClawdbotClient.ResponseCallback() {
+            @Override public void onSuccess(String response) {
+                prerender(cmd.command, response);
+            }
+            @Override public void onError(String error) {}
+        }, null);
+    }
+
+    /**
+     * The clips a fresh answer was just spoken with, so the next tap can
+     * replay them. Ignored if the answer has changed since.
+     */
+    public void attachAudio(QuickCommand cmd, String text, List<String> keys) {
+        attachAudio(cmd.command, text, keys);
+    }
+
+    /**
+     * The TTS of the open session, used to synthesize refreshed answers.
+     */
+    public void setRenderer(TTSManager tts) {
+        renderer = tts;
+    }
+
+    public void clearRenderer(TTSManager tts) {
+        if (renderer == tts) renderer = null;
+    }
+
+    /**
+     * Synthesize a refreshed answer nobody is listening to. Without an open
+     * session it is left to be synthesized when it is first played.
+     */
+    private void prerender(String command, String text) {
+        if (renderer == null) {
+            DebugLogger.log("Quick answer for " + command + " refreshed with no session open, not prerendered");
+            return;
+        }
+        renderer.prerender(text, keys -> attachAudio(command, text, keys));
+    }
+
+    private void attachAudio(String command, String text, List<String> keys) {
+        Entry entry = entries.get(command);
+        if (entry == null || keys.isEmpty() || keys.contains(AudioCache.UNCACHED)
+                || !entry.text.trim().equals(text.trim())) return;
+        store(command, text, keys, entry.fetchedAt);
+    }
+
+    private void store(String command, String text, List<String> keys) {
+        store(command, text, keys, System.currentTimeMillis());
+    }
+
+    private void store(String command, String text, List<String> keys, long fetchedAt) {
+        Entry entry = new Entry(text, keys != null ? keys : Collections.emptyList(), fetchedAt);
+        entries.put(command, entry);
+        try {
+            JSONObject json = new JSONObject();
+            json.put("text", entry.text);
+            json.put("keys", new JSONArray(entry.audioKeys));
+            json.put("at", entry.fetchedAt);
+            store.edit().putString(command, json.toString()).apply();
+        } catch (JSONException e) {
+            DebugLogger.error("Quick answer store: " + e.getMessage());
+        }
+    }
+
+    private static Entry parse(String saved) {
+        try {
+            JSONObject json = new JSONObject(saved);
+            JSONArray keysJson = json.optJSONArray("keys");
+            List<String> keys = new ArrayList<>();
+            if (keysJson != null) {
+                for (int i = 0; i < keysJson.length(); i++) keys.add(keysJson.getString(i));
+            }
+            return new Entry(json.getString("text"), keys, json.getLong("at"));
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    public static Policy parsePolicy(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "ttl": return Policy.TTL;
+            case "refresh": case "refresh-ahead": return Policy.REFRESH_AHEAD;
+            default: return Policy.NONE;
+        }
+    }
+
+    public static String policyName(Policy policy) {
+        switch (policy) {
+            case TTL: return "ttl";
+            case REFRESH_AHEAD: return "refresh";
+            default: return "none";
+        }
+    }
+
+    public String getStats() {
+        long stale = staleServes.get();
+        long oldestMs = 0;
+        for (Entry entry : entries.values()) oldestMs = Math.max(oldestMs, entry.ageMs());
+        return entries.size() + " cached" + (entries.isEmpty() ? "" : " (oldest " + oldestMs / 60000 + " min)")
+                + ", " + freshServes.get() + " fresh, " + stale + " stale"
+                + (stale == 0 ? "" : " (avg " + staleAgeMsTotal.get() / stale / 60000 + " min old)")
+                + ", " + misses.get() + " misses, " + collapsed.get() + " taps joined, "
+                + refreshes.get() + " background refreshes";
+    }
+}
@@ -6,27 +6,97 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class QuickCommand {
+    public static final String DEFAULT_ICON = "status";
+
+    /** Icon names usable in the "icon" field, in picker order. */
+    public static final Map<String, Integer> ICONS = new LinkedHashMap<>();
+    static {
+        ICONS.put(DEFAULT_ICON, R.drawable.ic_cmd_status);
+        ICONS.put("morning", R.drawable.ic_cmd_morning);
+        ICONS.put("coffee", R.drawable.ic_cmd_coffee);
+        ICONS.put("food", R.drawable.ic_cmd_food);
+        ICONS.put("fitness", R.drawable.ic_cmd_fitness);
+        ICONS.put("sleep", R.drawable.ic_cmd_sleep);
+        ICONS.put("help", R.drawable.ic_cmd_help);
+    }
+
     public final int iconRes;
+    public final String icon;
     public final String label;
     public final String command;
+    // Any other fields of the command's JSON object, kept as they were
+    private final JSONObject meta;
 
-    public QuickCommand(int iconRes, String label, String command) {
-        this.iconRes = iconRes;
+    public QuickCommand(String label, String command) {
+        this(label, command, DEFAULT_ICON, new JSONObject());
+    }
+
+    public QuickCommand(String label, String command, String icon, JSONObject meta) {
+        Integer res = icon != null ? ICONS.get(icon) : null;
+        this.iconRes = res != null ? res : R.drawable.ic_cmd_status;
+        this.icon = res != null ? icon : DEFAULT_ICON;
         this.label = label;
         this.command = command;
+        this.meta = meta;
     }
 
-    public QuickCommand(String label, String command) {
-        this(R.drawable.ic_cmd_status, label, command);
+    /**
+     * Same command with new text, keeping its icon and metadata
+     */
+    public QuickCommand withText(String label, String command) {
+        return new QuickCommand(label, command, icon, meta);
+    }
+
+    public QuickCommand withIcon(String icon) {
+        return new QuickCommand(label, command, icon, meta);
+    }
+
+    /**
+     * Extra field from the command's JSON, or fallback if absent
+     */
+    public String getMeta(String name, String fallback) {
+        return meta.optString(name, fallback);
+    }
+
+    /**
+     * Same command with one metadata field set, or removed if value is null
+     */
+    public QuickCommand withMeta(String name, Object value) {
+        try {
+            JSONObject copy = new JSONObject(meta.toString());
+            if (value == null) copy.remove(name);
+            else copy.put(name, value);
+            return new QuickCommand(label, command, icon, copy);
+        } catch (JSONException e) {
+            return this;
+        }
+    }
+
+    /**
+     * How answers to this command are cached: the "cache" field
+     */
+    public QuickAnswerCache.Policy cachePolicy() {
+        return QuickAnswerCache.parsePolicy(meta.optString("cache", "none"));
+    }
+
+    /**
+     * How long a cached answer stays fresh: the "ttlSec" field
+     */
+    public long cacheTtlMs() {
+        long ttlSec = meta.optLong("ttlSec", 0);
+        return ttlSec > 0 ? ttlSec * 1000 : QuickAnswerCache.DEFAULT_TTL_MS;
     }
 
     /**
-     * Load commands from user preferences
+     * Commands from the process-wide registry; parsed once, not per call
      */
     public static QuickCommand[] getCommands(Context context) {
-        PreferencesManager prefs = new PreferencesManager(context);
-        return fromJson(prefs.getQuickCommandsJson());
+        return QuickCommandRegistry.getInstance(context).getCommands();
     }
 
     /**
@@ -40,7 +110,16 @@ public class QuickCommand {
                 JSONObject obj = arr.getJSONObject(i);
                 String label = obj.getString("label");
                 String command = obj.getString("command");
-                commands[i] = new QuickCommand(label, command);
+                String icon = obj.optString("icon", DEFAULT_ICON);
+                JSONObject meta = new JSONObject();
+                Iterator<String> keys = obj.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    if (!key.equals("label") && !key.equals("command") && !key.equals("icon")) {
+                        meta.put(key, obj.get(key));
+                    }
+                }
+                commands[i] = new QuickCommand(label, command, icon, meta);
             }
             return commands;
         } catch (JSONException e) {
@@ -58,6 +137,12 @@ public class QuickCommand {
                 JSONObject obj = new JSONObject();
                 obj.put("label", cmd.label);
                 obj.put("command", cmd.command);
+                if (!DEFAULT_ICON.equals(cmd.icon)) obj.put("icon", cmd.icon);
+                Iterator<String> keys = cmd.meta.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    obj.put(key, cmd.meta.get(key));
+                }
                 arr.put(obj);
             }
             return arr.toString();
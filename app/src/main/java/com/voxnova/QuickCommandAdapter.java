@@ -0,0 +1,98 @@
+package com.voxnova;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rows of the session's quick command panel.
+ *
+ * Rows are inflated ahead of time into the list's recycled view pool, so
+ * opening the panel only binds a label and an icon to existing views.
+ */
+public class QuickCommandAdapter extends RecyclerView.Adapter<QuickCommandAdapter.Row> {
+    public interface OnCommandClickListener {
+        void onCommandClick(QuickCommand command);
+    }
+
+    // About what the panel shows at once; further rows are recycled while scrolling
+    private static final int PREINFLATED_ROWS = 6;
+
+    private static final AtomicLong inflations = new AtomicLong();
+    private static final AtomicLong binds = new AtomicLong();
+
+    private final OnCommandClickListener clickListener;
+    private QuickCommand[] commands;
+
+    static class Row extends RecyclerView.ViewHolder {
+        final ImageView icon;
+        final TextView label;
+        QuickCommand command;
+
+        Row(View itemView) {
+            super(itemView);
+            icon = itemView.findViewById(R.id.commandIcon);
+            label = itemView.findViewById(R.id.commandLabel);
+        }
+    }
+
+    public QuickCommandAdapter(QuickCommand[] commands, OnCommandClickListener clickListener) {
+        this.commands = commands;
+        this.clickListener = clickListener;
+    }
+
+    /**
+     * Replace the list contents. Main thread.
+     */
+    public void setCommands(QuickCommand[] commands) {
+        this.commands = commands;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Inflate rows for the list now, while the panel is still hidden.
+     */
+    public void preinflate(RecyclerView list) {
+        int rows = Math.min(PREINFLATED_ROWS, commands.length);
+        RecyclerView.RecycledViewPool pool = list.getRecycledViewPool();
+        pool.setMaxRecycledViews(0, PREINFLATED_ROWS);
+        for (int i = pool.getRecycledViewCount(0); i < rows; i++) {
+            pool.putRecycledView(createViewHolder(list, 0));
+        }
+    }
+
+    @Override
+    public Row onCreateViewHolder(ViewGroup parent, int viewType) {
+        inflations.incrementAndGet();
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_quick_command, parent, false);
+        Row row = new Row(view);
+        view.setOnClickListener(v -> {
+            if (row.command != null) clickListener.onCommandClick(row.command);
+        });
+        return row;
+    }
+
+    @Override
+    public void onBindViewHolder(Row row, int position) {
+        binds.incrementAndGet();
+        QuickCommand cmd = commands[position];
+        row.command = cmd;
+        row.icon.setImageResource(cmd.iconRes);
+        row.label.setText(cmd.label);
+    }
+
+    @Override
+    public int getItemCount() {
+        return commands.length;
+    }
+
+    public static String getStats() {
+        return inflations.get() + " rows inflated, " + binds.get() + " binds";
+    }
+}
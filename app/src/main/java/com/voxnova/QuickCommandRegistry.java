@@ -0,0 +1,89 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The quick commands, parsed once per process.
+ *
+ * The JSON in preferences is parsed when the registry is first used and
+ * again only when that preference changes; readers get the same immutable
+ * array until then. Listeners hear about changes on the main thread, where
+ * SharedPreferences delivers them.
+ */
+public class QuickCommandRegistry implements SharedPreferences.OnSharedPreferenceChangeListener {
+    public interface Listener {
+        void onCommandsChanged(QuickCommand[] commands);
+    }
+
+    private static QuickCommandRegistry instance;
+
+    private static final AtomicLong parses = new AtomicLong();
+    private static final AtomicLong reads = new AtomicLong();
+    private static final AtomicLong parseNanosTotal = new AtomicLong();
+
+    private final PreferencesManager prefs;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile QuickCommand[] commands;
+
+    public static synchronized QuickCommandRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new QuickCommandRegistry(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private QuickCommandRegistry(Context context) {
+        this.prefs = new PreferencesManager(context);
+        // SharedPreferences holds listeners weakly; the singleton keeps this one alive
+        prefs.registerChangeListener(this);
+        reload();
+    }
+
+    /**
+     * Current commands. The array is shared; callers must not modify it.
+     */
+    public QuickCommand[] getCommands() {
+        reads.incrementAndGet();
+        return commands;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        // A null key means the preferences were cleared
+        if (key != null && !PreferencesManager.isQuickCommandsKey(key)) return;
+        reload();
+        QuickCommand[] current = commands;
+        for (Listener listener : listeners) {
+            listener.onCommandsChanged(current);
+        }
+    }
+
+    private void reload() {
+        long start = System.nanoTime();
+        QuickCommand[] parsed = QuickCommand.fromJson(prefs.getQuickCommandsJson());
+        long spent = System.nanoTime() - start;
+        parses.incrementAndGet();
+        parseNanosTotal.addAndGet(spent);
+        commands = parsed;
+        DebugLogger.log("Quick commands parsed: " + parsed.length + " in " + spent / 1000 + "us");
+    }
+
+    public static String getStats() {
+        long parseCount = parses.get();
+        return reads.get() + " reads, " + parseCount + " parses"
+                + (parseCount == 0 ? "" : ", avg " + parseNanosTotal.get() / parseCount / 1000 + "us")
+                + ", " + QuickCommandAdapter.getStats();
+    }
+}
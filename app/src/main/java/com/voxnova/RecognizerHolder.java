@@ -0,0 +1,275 @@
+package com.voxnova;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.speech.RecognitionListener;
+import android.speech.RecognitionSupport;
+import android.speech.RecognitionSupportCallback;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One SpeechRecognizer for the whole process, created ahead of the first turn
+ * and reused by every turn and session after it.
+ *
+ * Binding to the recognition service pushes onReadyForSpeech back far
+ * enough to lose the first words, and creating a recognizer does not bind
+ * yet, so prewarm() also makes the service connect. Turns end with cancel()
+ * instead of destroy(), and the recognizer is only rebuilt after an error
+ * that leaves it unusable. Events go to the listener of the current turn
+ * only. A cancelled turn can still report ERROR_CLIENT or
+ * ERROR_RECOGNIZER_BUSY after the next turn has started; such an error is
+ * held back until that turn has had a moment to become ready. All methods
+ * must be called on the main thread.
+ */
+public class RecognizerHolder {
+    // How long an error that may belong to a cancelled turn is held back
+    private static final long STALE_ERROR_GRACE_MS = 1000;
+
+    private static RecognizerHolder instance;
+
+    private static final AtomicLong creations = new AtomicLong();
+    private static final AtomicLong rebuilds = new AtomicLong();
+    private static final AtomicLong createMsTotal = new AtomicLong();
+    private static final AtomicLong turns = new AtomicLong();
+    private static final AtomicLong readyMsTotal = new AtomicLong();
+    private static final AtomicLong readyCount = new AtomicLong();
+    private static final AtomicLong bindMsTotal = new AtomicLong();
+    private static final AtomicLong bindCount = new AtomicLong();
+    private static final AtomicLong staleErrors = new AtomicLong();
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private SpeechRecognizer recognizer;
+    private RecognitionListener target;
+    private long startedAt = 0;
+    // Bumped by every start(); a held-back error only counts for its own turn
+    private int listenGeneration = 0;
+    // A turn was cancelled and the service may still answer for it
+    private boolean cancelPending = false;
+    // The current turn started while cancelPending was set
+    private boolean turnFollowsCancel = false;
+    private boolean ready = false;
+
+    public static synchronized RecognizerHolder getInstance(Context context) {
+        if (instance == null) {
+            instance = new RecognizerHolder(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private RecognizerHolder(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Create the recognizer and bind it to the service now, so the first
+     * turn doesn't pay for either. From Android 13 a support query binds
+     * without touching the microphone; before that a start cancelled at once
+     * does it.
+     */
+    public void prewarm() {
+        if (recognizer != null || !SpeechRecognizer.isRecognitionAvailable(context)) return;
+        long begin = SystemClock.elapsedRealtime();
+        recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+        recognizer.setRecognitionListener(forwarder);
+        long createMs = SystemClock.elapsedRealtime() - begin;
+        creations.incrementAndGet();
+        createMsTotal.addAndGet(createMs);
+        DebugLogger.log("Speech recognizer created in " + createMs + "ms");
+
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            SpeechRecognizer bound = recognizer;
+            long bindBegin = SystemClock.elapsedRealtime();
+            recognizer.checkRecognitionSupport(intent, context.getMainExecutor(), new RecognitionSupportCallback() {
+                @Override public void onSupportResult(RecognitionSupport support) {
+                    if (recognizer == bound) recordBind(bindBegin);
+                }
+                @Override public void onError(int error) {
+                    // Answered by the service, so it is bound all the same
+                    if (recognizer == bound) recordBind(bindBegin);
+                }
+            });
+        } else {
+            recognizer.startListening(intent);
+            recognizer.cancel();
+            cancelPending = true;
+        }
+    }
+
+    private void recordBind(long begin) {
+        long bindMs = SystemClock.elapsedRealtime() - begin;
+        bindCount.incrementAndGet();
+        bindMsTotal.addAndGet(bindMs);
+        DebugLogger.log("Speech recognizer bound in " + bindMs + "ms");
+    }
+
+    /**
+     * Start a turn. Any turn still running is cancelled first and its
+     * listener stops receiving events.
+     */
+    public void start(Intent intent, RecognitionListener listener) {
+        prewarm();
+        if (recognizer == null) {
+            listener.onError(SpeechRecognizer.ERROR_CLIENT);
+            return;
+        }
+        if (target != null) {
+            recognizer.cancel();
+            cancelPending = true;
+        }
+        target = listener;
+        listenGeneration++;
+        turnFollowsCancel = cancelPending;
+        cancelPending = false;
+        ready = false;
+        startedAt = SystemClock.elapsedRealtime();
+        turns.incrementAndGet();
+        recognizer.startListening(intent);
+    }
+
+    /**
+     * Stop capturing and deliver the result for what was heard so far.
+     */
+    public void stopListening() {
+        if (recognizer != null && target != null) recognizer.stopListening();
+    }
+
+    /**
+     * Abandon the current turn; the recognizer stays bound for the next one.
+     */
+    public void cancel() {
+        if (recognizer != null && target != null) {
+            recognizer.cancel();
+            cancelPending = true;
+        }
+        target = null;
+    }
+
+    public void release() {
+        target = null;
+        cancelPending = false;
+        if (recognizer != null) {
+            recognizer.destroy();
+            recognizer = null;
+        }
+    }
+
+    public static String getStats() {
+        long created = creations.get();
+        long ready = readyCount.get();
+        long bound = bindCount.get();
+        return turns.get() + " turns on " + created + " recognizers (" + rebuilds.get() + " rebuilt"
+                + (created == 0 ? "" : ", create avg " + createMsTotal.get() / created + "ms")
+                + (bound == 0 ? "" : ", bind avg " + bindMsTotal.get() / bound + "ms")
+                + (ready == 0 ? "" : ", ready avg " + readyMsTotal.get() / ready + "ms")
+                + ", " + staleErrors.get() + " stale errors held)";
+    }
+
+    /**
+     * Errors after which the service connection can't be trusted.
+     */
+    private static boolean isFatal(int error) {
+        return error == SpeechRecognizer.ERROR_CLIENT
+                || error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY
+                || error == SpeechRecognizer.ERROR_SERVER
+                || error == SpeechRecognizer.ERROR_SERVER_DISCONNECTED;
+    }
+
+    /**
+     * Whether this error may be the cancelled turn's rather than the current
+     * one's: the current turn followed a cancel and is not ready yet.
+     */
+    private boolean mayBeStale(int error) {
+        return isCancelEcho(error) && target != null && turnFollowsCancel && !ready;
+    }
+
+    /**
+     * Errors a cancelled start can answer with after the fact.
+     */
+    private static boolean isCancelEcho(int error) {
+        return error == SpeechRecognizer.ERROR_CLIENT || error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY;
+    }
+
+    private final RecognitionListener forwarder = new RecognitionListener() {
+        @Override public void onReadyForSpeech(Bundle params) {
+            ready = true;
+            if (startedAt != 0) {
+                long readyMs = SystemClock.elapsedRealtime() - startedAt;
+                readyCount.incrementAndGet();
+                readyMsTotal.addAndGet(readyMs);
+                DebugLogger.log("Speech recognizer ready in " + readyMs + "ms");
+                startedAt = 0;
+            }
+            if (target != null) target.onReadyForSpeech(params);
+        }
+
+        @Override public void onBeginningOfSpeech() {
+            if (target != null) target.onBeginningOfSpeech();
+        }
+
+        @Override public void onRmsChanged(float rmsdB) {
+            if (target != null) target.onRmsChanged(rmsdB);
+        }
+
+        @Override public void onBufferReceived(byte[] buffer) {
+            if (target != null) target.onBufferReceived(buffer);
+        }
+
+        @Override public void onEndOfSpeech() {
+            if (target != null) target.onEndOfSpeech();
+        }
+
+        @Override public void onError(int error) {
+            if (target == null && isCancelEcho(error)) {
+                // Nobody is listening, so it answers a cancelled start; rebuilding would only start another
+                DebugLogger.log("Speech recognizer error " + error + " with no turn, ignored");
+                return;
+            }
+            if (mayBeStale(error)) {
+                // Only the first such error gets the benefit of the doubt
+                turnFollowsCancel = false;
+                staleErrors.incrementAndGet();
+                DebugLogger.log("Speech recognizer error " + error + " right after a cancel, holding it back");
+                int generation = listenGeneration;
+                mainHandler.postDelayed(() -> {
+                    if (listenGeneration == generation && target != null && !ready) onError(error);
+                }, STALE_ERROR_GRACE_MS);
+                return;
+            }
+            RecognitionListener listener = target;
+            target = null;
+            startedAt = 0;
+            if (isFatal(error)) {
+                DebugLogger.error("Speech recognizer error " + error + ", rebuilding");
+                release();
+                rebuilds.incrementAndGet();
+                prewarm();
+            }
+            if (listener != null) listener.onError(error);
+        }
+
+        @Override public void onResults(Bundle results) {
+            RecognitionListener listener = target;
+            target = null;
+            if (listener != null) listener.onResults(results);
+        }
+
+        @Override public void onPartialResults(Bundle partialResults) {
+            if (target != null) target.onPartialResults(partialResults);
+        }
+
+        @Override public void onEvent(int eventType, Bundle params) {
+            if (target != null) target.onEvent(eventType, params);
+        }
+    };
+}
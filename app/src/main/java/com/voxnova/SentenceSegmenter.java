@@ -0,0 +1,162 @@
+package com.voxnova;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incrementally splits streamed text into speakable segments.
+ *
+ * Text is fed in arbitrary deltas (as they arrive from the gateway) and whole
+ * sentences are returned as soon as their boundary is confirmed. Long sentences
+ * are additionally cut at clause punctuation so synthesis can start early.
+ */
+public class SentenceSegmenter {
+    // The first segment is cut more eagerly to reduce time-to-first-audio
+    private static final int FIRST_CLAUSE_MIN_LENGTH = 24;
+    private static final int CLAUSE_MIN_LENGTH = 80;
+    private static final int MAX_SEGMENT_LENGTH = 240;
+
+    private static final Set<String> ABBREVIATIONS_ES = new HashSet<>(Arrays.asList(
+            "sr", "sra", "srta", "dr", "dra", "ud", "uds", "lic", "ing", "etc", "pág", "núm", "aprox", "av", "no"));
+    private static final Set<String> ABBREVIATIONS_EN = new HashSet<>(Arrays.asList(
+            "mr", "mrs", "ms", "dr", "st", "vs", "etc", "e.g", "i.e", "approx", "no", "jr", "sr"));
+    private static final Set<String> ABBREVIATIONS_PT = new HashSet<>(Arrays.asList(
+            "sr", "sra", "dr", "dra", "etc", "pág", "núm", "av"));
+    private static final Set<String> ABBREVIATIONS_FR = new HashSet<>(Arrays.asList(
+            "m", "mme", "mlle", "dr", "etc", "p", "av"));
+    private static final Set<String> ABBREVIATIONS_DE = new HashSet<>(Arrays.asList(
+            "hr", "fr", "dr", "z.b", "usw", "bzw", "ca", "nr", "str"));
+    private static final Set<String> ABBREVIATIONS_IT = new HashSet<>(Arrays.asList(
+            "sig", "sig.ra", "dott", "dr", "ecc", "pag", "ca"));
+
+    private final Set<String> abbreviations;
+    private final StringBuilder pending = new StringBuilder();
+    private int emitted = 0;
+
+    public SentenceSegmenter(String languageCode) {
+        this.abbreviations = abbreviationsFor(languageCode);
+    }
+
+    private static Set<String> abbreviationsFor(String languageCode) {
+        String lang = languageCode == null ? "" : languageCode.toLowerCase();
+        if (lang.startsWith("en")) return ABBREVIATIONS_EN;
+        if (lang.startsWith("pt")) return ABBREVIATIONS_PT;
+        if (lang.startsWith("fr")) return ABBREVIATIONS_FR;
+        if (lang.startsWith("de")) return ABBREVIATIONS_DE;
+        if (lang.startsWith("it")) return ABBREVIATIONS_IT;
+        return ABBREVIATIONS_ES;
+    }
+
+    /**
+     * Append a text delta and return any segments completed by it.
+     */
+    public List<String> append(CharSequence delta) {
+        List<String> segments = new ArrayList<>();
+        if (delta == null || delta.length() == 0) return segments;
+        pending.append(delta);
+
+        int start = 0;
+        int i = 0;
+        while (i < pending.length()) {
+            int cut = boundaryAt(start, i);
+            if (cut > 0) {
+                addSegment(segments, pending.substring(start, cut));
+                start = cut;
+                i = cut;
+            } else {
+                i++;
+            }
+        }
+        pending.delete(0, start);
+        return segments;
+    }
+
+    /**
+     * Return whatever text is left once the stream has ended.
+     */
+    public String flush() {
+        String rest = pending.toString().trim();
+        pending.setLength(0);
+        if (!rest.isEmpty()) emitted++;
+        return rest;
+    }
+
+    public void reset() {
+        pending.setLength(0);
+        emitted = 0;
+    }
+
+    private void addSegment(List<String> segments, String segment) {
+        String trimmed = segment.trim();
+        if (!trimmed.isEmpty()) {
+            segments.add(trimmed);
+            emitted++;
+        }
+    }
+
+    /**
+     * Returns the end index (exclusive) of a segment ending at position i,
+     * or -1 if i is not a confirmed boundary yet.
+     */
+    private int boundaryAt(int start, int i) {
+        char c = pending.charAt(i);
+        int length = i - start + 1;
+
+        if (c == '\n') {
+            return i + 1;
+        }
+
+        if (isTerminator(c)) {
+            // Swallow runs like "?!" or "..." and closing quotes/brackets
+            int end = i + 1;
+            while (end < pending.length() && (isTerminator(pending.charAt(end)) || isCloser(pending.charAt(end)))) {
+                end++;
+            }
+            // Need to see what follows before the boundary is confirmed
+            if (end >= pending.length()) return -1;
+            if (!Character.isWhitespace(pending.charAt(end))) return -1;
+            if (c == '.' && isAbbreviation(start, i)) return -1;
+            return end;
+        }
+
+        int clauseMin = emitted == 0 ? FIRST_CLAUSE_MIN_LENGTH : CLAUSE_MIN_LENGTH;
+        if (isClauseBreak(c) && length >= clauseMin) {
+            if (i + 1 >= pending.length()) return -1;
+            if (!Character.isWhitespace(pending.charAt(i + 1))) return -1;
+            return i + 1;
+        }
+
+        // Hard cap for run-on text without punctuation: cut at the last space
+        if (length >= MAX_SEGMENT_LENGTH && Character.isWhitespace(c)) {
+            return i + 1;
+        }
+        return -1;
+    }
+
+    private boolean isAbbreviation(int start, int dot) {
+        int wordStart = dot;
+        while (wordStart > start && !Character.isWhitespace(pending.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        if (wordStart == dot) return false;
+        String word = pending.substring(wordStart, dot).toLowerCase();
+        // Single letters are initials ("J. Pérez")
+        if (word.length() == 1 && Character.isLetter(word.charAt(0))) return true;
+        return abbreviations.contains(word);
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '…' || c == '。';
+    }
+
+    private static boolean isCloser(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '»' || c == '”' || c == '’';
+    }
+
+    private static boolean isClauseBreak(char c) {
+        return c == ',' || c == ';' || c == ':' || c == '—';
+    }
+}
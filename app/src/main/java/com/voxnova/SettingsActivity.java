@@ -8,6 +8,7 @@ import android.os.Bundle;
 import android.provider.Settings;
 import android.view.View;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -17,6 +18,7 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.materialswitch.MaterialSwitch;
 import com.google.android.material.slider.Slider;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
@@ -28,11 +30,17 @@ import java.util.List;
 
 public class SettingsActivity extends AppCompatActivity {
     private TextInputEditText editGatewayUrl, editAuthToken, editCartesiaKey, editElevenLabsKey;
-    private TextView txtStatus, txtSilenceValue, txtTtsProviderWarning, txtNoCommands;
+    private TextInputEditText editControlPhrases;
+    private TextView txtStatus, txtSilenceValue, txtIdleValue, txtHedgeValue, txtTtsProviderWarning, txtNoCommands;
     private Spinner spinnerLanguage, spinnerTtsProvider;
-    private Slider sliderSilenceTimeout;
+    private Slider sliderSilenceTimeout, sliderIdleTimeout, sliderHedgeDelay;
+    private MaterialSwitch switchLowLatencyAudio, switchDataSaver, switchBargeIn;
+    private MaterialSwitch switchEarcons, switchFillerCue, switchContinuous, switchSpeculative;
+    private MaterialSwitch switchAdaptiveEndpointing;
     private LinearLayout commandsList;
     private PreferencesManager prefs;
+    // Renders the phrase bank while settings are open; created on the first save
+    private TTSManager phraseRenderer;
     private List<QuickCommand> commands = new ArrayList<>();
 
     private static final String[] LANGUAGE_CODES = {"es-MX", "es-ES", "en-US", "en-GB", "pt-BR", "fr-FR", "de-DE", "it-IT"};
@@ -63,13 +71,26 @@ public class SettingsActivity extends AppCompatActivity {
         editAuthToken = findViewById(R.id.editAuthToken);
         editCartesiaKey = findViewById(R.id.editCartesiaKey);
         editElevenLabsKey = findViewById(R.id.editElevenLabsKey);
+        editControlPhrases = findViewById(R.id.editControlPhrases);
         txtStatus = findViewById(R.id.txtStatus);
         txtSilenceValue = findViewById(R.id.txtSilenceValue);
+        txtIdleValue = findViewById(R.id.txtIdleValue);
+        txtHedgeValue = findViewById(R.id.txtHedgeValue);
         txtTtsProviderWarning = findViewById(R.id.txtTtsProviderWarning);
         txtNoCommands = findViewById(R.id.txtNoCommands);
         spinnerLanguage = findViewById(R.id.spinnerLanguage);
         spinnerTtsProvider = findViewById(R.id.spinnerTtsProvider);
         sliderSilenceTimeout = findViewById(R.id.sliderSilenceTimeout);
+        sliderIdleTimeout = findViewById(R.id.sliderIdleTimeout);
+        sliderHedgeDelay = findViewById(R.id.sliderHedgeDelay);
+        switchLowLatencyAudio = findViewById(R.id.switchLowLatencyAudio);
+        switchDataSaver = findViewById(R.id.switchDataSaver);
+        switchBargeIn = findViewById(R.id.switchBargeIn);
+        switchEarcons = findViewById(R.id.switchEarcons);
+        switchFillerCue = findViewById(R.id.switchFillerCue);
+        switchContinuous = findViewById(R.id.switchContinuous);
+        switchSpeculative = findViewById(R.id.switchSpeculative);
+        switchAdaptiveEndpointing = findViewById(R.id.switchAdaptiveEndpointing);
         commandsList = findViewById(R.id.commandsList);
 
         // Setup language spinner
@@ -102,6 +123,12 @@ public class SettingsActivity extends AppCompatActivity {
         sliderSilenceTimeout.addOnChangeListener((slider, value, fromUser) -> {
             txtSilenceValue.setText((int) value + "s");
         });
+        sliderIdleTimeout.addOnChangeListener((slider, value, fromUser) -> {
+            txtIdleValue.setText((int) value + "s");
+        });
+        sliderHedgeDelay.addOnChangeListener((slider, value, fromUser) -> {
+            txtHedgeValue.setText(hedgeDelayLabel((int) value));
+        });
 
         findViewById(R.id.btnSave).setOnClickListener(v -> saveSettings());
         findViewById(R.id.btnTestConnection).setOnClickListener(v -> testConnection());
@@ -114,6 +141,15 @@ public class SettingsActivity extends AppCompatActivity {
         editAuthToken.setText(prefs.getAuthToken());
         editCartesiaKey.setText(prefs.getCartesiaApiKey());
         editElevenLabsKey.setText(prefs.getElevenLabsApiKey());
+        editControlPhrases.setText(prefs.getControlPhrases());
+        switchLowLatencyAudio.setChecked(prefs.isLowLatencyAudio());
+        switchDataSaver.setChecked(prefs.isDataSaver());
+        switchBargeIn.setChecked(prefs.isBargeIn());
+        switchEarcons.setChecked(prefs.isEarcons());
+        switchFillerCue.setChecked(prefs.isFillerCue());
+        switchContinuous.setChecked(prefs.isContinuousConversation());
+        switchSpeculative.setChecked(prefs.isSpeculativeDispatch());
+        switchAdaptiveEndpointing.setChecked(prefs.isAdaptiveEndpointing());
 
         // Load language
         String savedLang = prefs.getLanguage();
@@ -139,9 +175,22 @@ public class SettingsActivity extends AppCompatActivity {
         sliderSilenceTimeout.setValue(Math.max(1, Math.min(10, timeoutSec)));
         txtSilenceValue.setText(timeoutSec + "s");
 
+        int idleSec = prefs.getConversationIdleMs() / 1000;
+        sliderIdleTimeout.setValue(Math.max(3, Math.min(30, idleSec)));
+        txtIdleValue.setText(idleSec + "s");
+
+        // 0 leaves the delay to the measured latency of the primary provider
+        int hedgeMs = Math.max(0, Math.min(3000, prefs.getHedgeDelayMs() / 100 * 100));
+        sliderHedgeDelay.setValue(hedgeMs);
+        txtHedgeValue.setText(hedgeDelayLabel(hedgeMs));
+
         updateTtsProviderWarning();
     }
 
+    private String hedgeDelayLabel(int delayMs) {
+        return delayMs == 0 ? getString(R.string.hedge_delay_auto) : delayMs / 1000f + "s";
+    }
+
     private void loadCommands() {
         QuickCommand[] cmds = QuickCommand.getCommands(this);
         commands.clear();
@@ -154,6 +203,16 @@ public class SettingsActivity extends AppCompatActivity {
     private void saveCommands() {
         QuickCommand[] cmds = commands.toArray(new QuickCommand[0]);
         prefs.setQuickCommandsJson(QuickCommand.toJson(cmds));
+        renderPhrases();
+    }
+
+    private void renderPhrases() {
+        PhraseBank bank = PhraseBank.getInstance(this);
+        if (phraseRenderer == null) {
+            phraseRenderer = new TTSManager(getApplicationContext(), prefs);
+            bank.setRenderer(phraseRenderer);
+        }
+        bank.renderAsync(prefs, VoxNovaVoiceInteractionSession.fixedPrompts(this, prefs.getTtsLanguageCode()));
     }
 
     private void refreshCommandsList() {
@@ -173,6 +232,12 @@ public class SettingsActivity extends AppCompatActivity {
                 itemLayout.setPadding(0, dpToPx(8), 0, dpToPx(8));
                 itemLayout.setGravity(android.view.Gravity.CENTER_VERTICAL);
 
+                ImageView iconView = new ImageView(this);
+                iconView.setImageResource(cmd.iconRes);
+                LinearLayout.LayoutParams iconParams = new LinearLayout.LayoutParams(dpToPx(24), dpToPx(24));
+                iconParams.setMarginEnd(dpToPx(12));
+                iconView.setLayoutParams(iconParams);
+
                 // Command info
                 LinearLayout infoLayout = new LinearLayout(this);
                 infoLayout.setOrientation(LinearLayout.VERTICAL);
@@ -205,6 +270,7 @@ public class SettingsActivity extends AppCompatActivity {
                 btnDelete.setPadding(dpToPx(8), dpToPx(8), dpToPx(8), dpToPx(8));
                 btnDelete.setOnClickListener(v -> deleteCommand(index));
 
+                itemLayout.addView(iconView);
                 itemLayout.addView(infoLayout);
                 itemLayout.addView(btnEdit);
                 itemLayout.addView(btnDelete);
@@ -215,16 +281,17 @@ public class SettingsActivity extends AppCompatActivity {
     }
 
     private void showAddCommandDialog() {
-        showCommandDialog(-1, "", "");
+        showCommandDialog(-1, new QuickCommand("", ""));
     }
 
     private void showEditCommandDialog(int index) {
-        QuickCommand cmd = commands.get(index);
-        showCommandDialog(index, cmd.label, cmd.command);
+        showCommandDialog(index, commands.get(index));
     }
 
-    private void showCommandDialog(int index, String currentLabel, String currentCommand) {
+    private void showCommandDialog(int index, QuickCommand current) {
         boolean isEdit = index >= 0;
+        String currentLabel = current.label;
+        String currentCommand = current.command;
 
         LinearLayout layout = new LinearLayout(this);
         layout.setOrientation(LinearLayout.VERTICAL);
@@ -242,8 +309,52 @@ public class SettingsActivity extends AppCompatActivity {
         commandEdit.setText(currentCommand);
         commandLayout.addView(commandEdit);
 
+        // Icon picker: the selected icon is fully opaque
+        final String[] selectedIcon = {current.icon};
+        LinearLayout iconRow = new LinearLayout(this);
+        iconRow.setOrientation(LinearLayout.HORIZONTAL);
+        iconRow.setPadding(0, dpToPx(12), 0, 0);
+        List<ImageView> iconViews = new ArrayList<>();
+        for (String name : QuickCommand.ICONS.keySet()) {
+            ImageView iconView = new ImageView(this);
+            iconView.setImageResource(QuickCommand.ICONS.get(name));
+            iconView.setPadding(dpToPx(6), dpToPx(6), dpToPx(6), dpToPx(6));
+            iconView.setLayoutParams(new LinearLayout.LayoutParams(dpToPx(36), dpToPx(36)));
+            iconView.setContentDescription(name);
+            iconView.setAlpha(name.equals(selectedIcon[0]) ? 1f : 0.35f);
+            iconView.setOnClickListener(v -> {
+                selectedIcon[0] = name;
+                for (ImageView other : iconViews) other.setAlpha(other == v ? 1f : 0.35f);
+            });
+            iconViews.add(iconView);
+            iconRow.addView(iconView);
+        }
+
+        // Answer cache policy, order matches QuickAnswerCache.Policy
+        Spinner policySpinner = new Spinner(this);
+        String[] policyNames = {
+                getString(R.string.cache_policy_none),
+                getString(R.string.cache_policy_ttl),
+                getString(R.string.cache_policy_refresh)
+        };
+        ArrayAdapter<String> policyAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, policyNames);
+        policyAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        policySpinner.setAdapter(policyAdapter);
+        policySpinner.setSelection(current.cachePolicy().ordinal());
+
+        TextInputLayout ttlLayout = new TextInputLayout(this);
+        ttlLayout.setHint(getString(R.string.cache_ttl_minutes));
+        TextInputEditText ttlEdit = new TextInputEditText(this);
+        ttlEdit.setInputType(android.text.InputType.TYPE_CLASS_NUMBER);
+        ttlEdit.setText(String.valueOf(current.cacheTtlMs() / 60000));
+        ttlLayout.addView(ttlEdit);
+
         layout.addView(labelLayout);
         layout.addView(commandLayout);
+        layout.addView(iconRow);
+        layout.addView(policySpinner);
+        layout.addView(ttlLayout);
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle(isEdit ? R.string.edit_command : R.string.add_command);
@@ -257,10 +368,21 @@ public class SettingsActivity extends AppCompatActivity {
                 return;
             }
 
+            QuickAnswerCache.Policy policy = QuickAnswerCache.Policy.values()[policySpinner.getSelectedItemPosition()];
+            long ttlMinutes;
+            try {
+                ttlMinutes = Math.max(1, Long.parseLong(getText(ttlEdit)));
+            } catch (NumberFormatException e) {
+                ttlMinutes = QuickAnswerCache.DEFAULT_TTL_MS / 60000;
+            }
+            boolean cached = policy != QuickAnswerCache.Policy.NONE;
+            QuickCommand updated = current.withText(label, command).withIcon(selectedIcon[0])
+                    .withMeta("cache", cached ? QuickAnswerCache.policyName(policy) : null)
+                    .withMeta("ttlSec", cached ? ttlMinutes * 60 : null);
             if (isEdit) {
-                commands.set(index, new QuickCommand(label, command));
+                commands.set(index, updated);
             } else {
-                commands.add(new QuickCommand(label, command));
+                commands.add(updated);
             }
             saveCommands();
             refreshCommandsList();
@@ -300,6 +422,13 @@ public class SettingsActivity extends AppCompatActivity {
         prefs.setAuthToken(token);
         prefs.setCartesiaApiKey(getText(editCartesiaKey));
         prefs.setElevenLabsApiKey(getText(editElevenLabsKey));
+        prefs.setControlPhrases(getText(editControlPhrases));
+        prefs.setLowLatencyAudio(switchLowLatencyAudio.isChecked());
+        prefs.setDataSaver(switchDataSaver.isChecked());
+        prefs.setHedgeDelayMs((int) sliderHedgeDelay.getValue());
+        prefs.setBargeIn(switchBargeIn.isChecked());
+        prefs.setEarcons(switchEarcons.isChecked());
+        prefs.setFillerCue(switchFillerCue.isChecked());
 
         // Save language
         int langIndex = spinnerLanguage.getSelectedItemPosition();
@@ -316,6 +445,12 @@ public class SettingsActivity extends AppCompatActivity {
         // Save silence timeout (convert seconds to ms)
         int timeoutSec = (int) sliderSilenceTimeout.getValue();
         prefs.setSilenceTimeout(timeoutSec * 1000);
+        prefs.setContinuousConversation(switchContinuous.isChecked());
+        prefs.setSpeculativeDispatch(switchSpeculative.isChecked());
+        prefs.setAdaptiveEndpointing(switchAdaptiveEndpointing.isChecked());
+        prefs.setConversationIdleMs((int) sliderIdleTimeout.getValue() * 1000);
+
+        renderPhrases();
 
         Toast.makeText(this, "Saved", Toast.LENGTH_SHORT).show();
         updateStatus();
@@ -410,13 +545,11 @@ public class SettingsActivity extends AppCompatActivity {
                 break;
             default: // auto
                 sb.append("TTS: Auto (");
-                if (!prefs.getCartesiaApiKey().isEmpty()) {
-                    sb.append("Cartesia");
-                } else if (!prefs.getElevenLabsApiKey().isEmpty()) {
-                    sb.append("ElevenLabs");
-                } else {
-                    sb.append("Google");
-                }
+                List<String> withKeys = new ArrayList<>();
+                if (!prefs.getCartesiaApiKey().isEmpty()) withKeys.add(PreferencesManager.TTS_PROVIDER_CARTESIA);
+                if (!prefs.getElevenLabsApiKey().isEmpty()) withKeys.add(PreferencesManager.TTS_PROVIDER_ELEVENLABS);
+                List<String> ranked = ProviderHealth.getInstance(this).rank(withKeys);
+                sb.append(ranked.isEmpty() ? "google" : ranked.get(0));
                 sb.append(")\n");
                 break;
         }
@@ -424,8 +557,38 @@ public class SettingsActivity extends AppCompatActivity {
         sb.append("Language: ").append(prefs.getLanguage()).append("\n");
         sb.append("Silence timeout: ").append(prefs.getSilenceTimeout() / 1000).append("s\n");
         sb.append("Quick commands: ").append(commands.size()).append("\n");
+        sb.append("TTS cache: ").append(AudioCache.getInstance(this).getStatsSummary()).append("\n");
+        sb.append("TTS cancellations: ").append(TTSManager.getCancellationStats()).append("\n");
+        sb.append("TTS hedging: ").append(TTSManager.getHedgeStats()).append("\n");
+        sb.append("Speech recognizer: ").append(RecognizerHolder.getStats()).append("\n");
+        sb.append("Command registry: ").append(QuickCommandRegistry.getStats()).append("\n");
+        sb.append("Quick answers: ").append(QuickAnswerCache.getInstance(this).getStats()).append("\n");
+        sb.append("Local intents: ").append(IntentRouter.getStats()).append("\n");
+        sb.append("Turns: ").append(TurnStateMachine.getStats()).append("\n");
+        sb.append("Transcript rendering: ").append(TranscriptRenderer.getStats()).append("\n");
+        sb.append("Endpointing: ").append(AdaptiveEndpointer.getInstance(this).getStatsSummary()).append("\n");
+        sb.append("Speculative sends: ").append(SpeculativeDispatch.getStats()).append("\n");
+        sb.append("Conversation: ").append(VoxNovaVoiceInteractionSession.getConversationStats()).append("\n");
+        sb.append("Earcons: ").append(EarconBank.getStats()).append("\n");
+        sb.append("Barge-in: ").append(BargeInDetector.getStats()).append("\n");
+        sb.append("TTS connections: ").append(TTSManager.getConnectionStats()).append("\n");
+        sb.append("TTS chunking: ").append(TTSManager.getChunkStats()).append("\n");
+        NetworkMonitor network = NetworkMonitor.getInstance(this);
+        sb.append("TTS audio: ").append(network.currentQuality(prefs.isDataSaver()).name().toLowerCase())
+                .append(" quality, ").append(network.getStatsSummary()).append("\n");
+        sb.append("TTS providers:\n").append(ProviderHealth.getInstance(this).getSummary()).append("\n");
         txtStatus.setText(sb.toString());
     }
 
     @Override protected void onResume() { super.onResume(); updateStatus(); }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (phraseRenderer != null) {
+            // A render still running resumes with the next session
+            PhraseBank.getInstance(this).clearRenderer(phraseRenderer);
+            phraseRenderer.shutdown();
+        }
+    }
 }
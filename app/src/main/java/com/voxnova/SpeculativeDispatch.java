@@ -0,0 +1,126 @@
+package com.voxnova;
+
+import android.os.SystemClock;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A message sent to the gateway from a partial transcript, before the
+ * recognizer has declared the utterance complete.
+ *
+ * The response is held back while the user may still be talking: deltas and
+ * the final result are buffered until the session adopts the request (the
+ * final transcript says the same thing) or aborts it (it doesn't). Adopting
+ * replays everything buffered so far and then streams through. All methods
+ * run on the main thread, where the client delivers its callbacks.
+ */
+public class SpeculativeDispatch implements ClawdbotClient.ResponseCallback, ClawdbotClient.StreamListener {
+    /** How long a partial transcript must stay unchanged before it is sent. */
+    public static final long STABLE_MS = 600;
+
+    private static final AtomicLong sent = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong savedMsTotal = new AtomicLong();
+
+    private final ClawdbotClient client;
+    private final String text;
+    private final String key;
+    private final long sentAt;
+    private final StringBuilder buffered = new StringBuilder();
+    private String response;
+    private String error;
+    private ClawdbotClient.ResponseCallback callback;
+    private ClawdbotClient.StreamListener listener;
+
+    private SpeculativeDispatch(ClawdbotClient client, String text) {
+        this.client = client;
+        this.text = text;
+        this.key = utteranceKey(text);
+        this.sentAt = SystemClock.elapsedRealtime();
+    }
+
+    public static SpeculativeDispatch send(ClawdbotClient client, String text) {
+        SpeculativeDispatch dispatch = new SpeculativeDispatch(client, text);
+        sent.incrementAndGet();
+        DebugLogger.log("Speculative send: " + text);
+        client.sendMessage(text, dispatch, dispatch);
+        return dispatch;
+    }
+
+    /**
+     * Whether a transcript says the same as what was sent, ignoring case,
+     * accents, punctuation and spacing.
+     */
+    public boolean matches(String transcript) {
+        return key.equals(utteranceKey(transcript));
+    }
+
+    /**
+     * The final transcript confirmed the guess: hand the response, including
+     * whatever already arrived, to the real callbacks.
+     */
+    public void adopt(ClawdbotClient.ResponseCallback callback, ClawdbotClient.StreamListener listener) {
+        long savedMs = SystemClock.elapsedRealtime() - sentAt;
+        hits.incrementAndGet();
+        savedMsTotal.addAndGet(savedMs);
+        DebugLogger.log("Speculation hit, request went out " + savedMs + "ms early");
+        this.callback = callback;
+        this.listener = listener;
+        if (buffered.length() > 0 && listener != null) listener.onDelta(buffered.toString());
+        buffered.setLength(0);
+        if (response != null) callback.onSuccess(response);
+        else if (error != null) callback.onError(error);
+    }
+
+    /**
+     * The guess was wrong or the turn went away: stop the run on the gateway.
+     */
+    public void abort() {
+        misses.incrementAndGet();
+        DebugLogger.log("Speculation miss: " + text);
+        client.abort();
+    }
+
+    @Override
+    public void onDelta(String delta) {
+        if (listener != null) listener.onDelta(delta);
+        else buffered.append(delta);
+    }
+
+    @Override
+    public void onSuccess(String response) {
+        if (callback != null) callback.onSuccess(response);
+        else this.response = response;
+    }
+
+    @Override
+    public void onError(String error) {
+        if (callback != null) callback.onError(error);
+        else this.error = error;
+    }
+
+    public static String getStats() {
+        long hitCount = hits.get();
+        long decided = hitCount + misses.get();
+        return sent.get() + " sent, " + hitCount + " hits, " + misses.get() + " misses"
+                + (decided == 0 ? "" : " (" + hitCount * 100 / decided + "% hit)")
+                + (hitCount == 0 ? "" : ", avg " + savedMsTotal.get() / hitCount + "ms saved");
+    }
+
+    private static String utteranceKey(String text) {
+        String folded = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else if (Character.isWhitespace(c) && sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,370 @@
+package com.voxnova;
+
+/**
+ * Turns agent output into two strings in one pass over its code points:
+ * a display string for the transcript and a speech string for TTS.
+ *
+ * Emoji are dropped from both. Markdown emphasis, headings, bullets and
+ * link syntax are removed; fenced code is shown but not spoken; bare URLs are
+ * shown but spoken as a short word. A few symbols are expanded for speech
+ * in the answer's language (50% → "50 por ciento").
+ *
+ * Text can be fed incrementally as it streams in. Only the current word is
+ * held back until the next whitespace, and the working buffers are reused,
+ * so appending a delta allocates nothing but the returned speech text.
+ */
+public class SpeechTextNormalizer {
+    private static final String[] WORDS_ES = {"por ciento", "y", "grados", "enlace"};
+    private static final String[] WORDS_EN = {"percent", "and", "degrees", "link"};
+    private static final String[] WORDS_PT = {"por cento", "e", "graus", "link"};
+    private static final String[] WORDS_FR = {"pour cent", "et", "degrés", "lien"};
+    private static final String[] WORDS_DE = {"Prozent", "und", "Grad", "Link"};
+    private static final String[] WORDS_IT = {"per cento", "e", "gradi", "link"};
+    private static final int PERCENT = 0;
+    private static final int AND = 1;
+    private static final int DEGREES = 2;
+    private static final int LINK = 3;
+
+    private static final int LINK_NONE = 0;
+    private static final int LINK_TEXT = 1;
+    private static final int LINK_URL = 2;
+
+    private final String[] words;
+    private final StringBuilder display;
+    private final StringBuilder speech;
+    private final StringBuilder word = new StringBuilder();
+    private int speechTaken = 0;
+    private int displayTaken = 0;
+    // Spaces are written lazily so words dropped entirely leave no gaps
+    private boolean displaySpace = false;
+    private boolean speechSpace = false;
+    // After a spoken expansion ("por ciento"), a following letter needs a space
+    private boolean speechSpaceBeforeWord = false;
+    private boolean atLineStart = true;
+    private boolean afterFence = false;
+    private boolean inCodeBlock = false;
+    private int linkState = LINK_NONE;
+
+    public SpeechTextNormalizer(String languageCode) {
+        this(languageCode, 256);
+    }
+
+    /**
+     * Sized for about this many characters of input, so a known text is
+     * normalized without growing the buffers.
+     */
+    private SpeechTextNormalizer(String languageCode, int capacity) {
+        this.words = wordsFor(languageCode);
+        this.display = new StringBuilder(capacity);
+        this.speech = new StringBuilder(capacity);
+    }
+
+    private static String[] wordsFor(String languageCode) {
+        String lang = languageCode == null ? "" : languageCode.toLowerCase();
+        if (lang.startsWith("en")) return WORDS_EN;
+        if (lang.startsWith("pt")) return WORDS_PT;
+        if (lang.startsWith("fr")) return WORDS_FR;
+        if (lang.startsWith("de")) return WORDS_DE;
+        if (lang.startsWith("it")) return WORDS_IT;
+        return WORDS_ES;
+    }
+
+    /**
+     * Normalize a whole text for speaking.
+     */
+    public static String forSpeech(String text, String languageCode) {
+        if (text == null) return "";
+        SpeechTextNormalizer normalizer = new SpeechTextNormalizer(languageCode, text.length());
+        normalizer.append(text);
+        normalizer.flush();
+        return normalizer.speech.toString().trim();
+    }
+
+    /**
+     * Normalize a whole text for the transcript view.
+     */
+    public static String forDisplay(String text) {
+        if (text == null) return "";
+        SpeechTextNormalizer normalizer = new SpeechTextNormalizer(null, text.length());
+        normalizer.append(text);
+        normalizer.flush();
+        return normalizer.getDisplayText();
+    }
+
+    public void append(CharSequence delta) {
+        if (delta == null) return;
+        int length = delta.length();
+        int i = 0;
+        while (i < length) {
+            int cp = Character.codePointAt(delta, i);
+            i += Character.charCount(cp);
+            if (Character.isWhitespace(cp)) {
+                processWord();
+                appendWhitespace(cp);
+            } else {
+                word.appendCodePoint(cp);
+            }
+        }
+    }
+
+    /**
+     * The stream has ended; release the word being held back.
+     */
+    public void flush() {
+        processWord();
+    }
+
+    /**
+     * Speech text produced since the last call.
+     */
+    public String takeSpeech() {
+        if (speechTaken == speech.length()) return "";
+        String text = speech.substring(speechTaken);
+        speechTaken = speech.length();
+        return text;
+    }
+
+    public String getDisplayText() {
+        return display.substring(0, displayEnd());
+    }
+
+    /**
+     * Display text produced since the last call. Trailing whitespace is held
+     * back until something follows it, so the pieces joined give
+     * getDisplayText().
+     */
+    public String takeDisplay() {
+        int end = displayEnd();
+        if (end <= displayTaken) return "";
+        String text = display.substring(displayTaken, end);
+        displayTaken = end;
+        return text;
+    }
+
+    private int displayEnd() {
+        int end = display.length();
+        while (end > 0 && Character.isWhitespace(display.charAt(end - 1))) end--;
+        return end;
+    }
+
+    private void appendWhitespace(int cp) {
+        if (afterFence) {
+            // The rest of a fence line (its newline) is dropped with the fence
+            if (cp == '\n') afterFence = false;
+            return;
+        }
+        if (inCodeBlock) {
+            display.appendCodePoint(cp);
+            return;
+        }
+        if (cp == '\n') {
+            displaySpace = false;
+            speechSpace = false;
+            display.append('\n');
+            // Blank lines carry nothing extra for speech; one break ends the sentence
+            if (speech.length() > 0 && speech.charAt(speech.length() - 1) != '\n') speech.append('\n');
+            atLineStart = true;
+        } else {
+            displaySpace = display.length() > 0 && display.charAt(display.length() - 1) != '\n';
+            speechSpace = speech.length() > 0 && speech.charAt(speech.length() - 1) != '\n';
+        }
+    }
+
+    private void display(int cp) {
+        if (displaySpace) {
+            display.append(' ');
+            displaySpace = false;
+        }
+        display.appendCodePoint(cp);
+    }
+
+    private void display(CharSequence text) {
+        if (displaySpace) {
+            display.append(' ');
+            displaySpace = false;
+        }
+        display.append(text);
+    }
+
+    private void speech(int cp) {
+        if (speechSpaceBeforeWord && Character.isLetterOrDigit(cp)) speechSpace = true;
+        speechSpaceBeforeWord = false;
+        if (speechSpace) {
+            speech.append(' ');
+            speechSpace = false;
+        }
+        speech.appendCodePoint(cp);
+    }
+
+    private void speech(CharSequence text) {
+        speechSpaceBeforeWord = false;
+        if (speechSpace) {
+            speech.append(' ');
+            speechSpace = false;
+        }
+        speech.append(text);
+    }
+
+    private void processWord() {
+        if (word.length() == 0) return;
+        boolean lineStart = atLineStart;
+        atLineStart = false;
+
+        if (startsWith(word, "```")) {
+            // Fence lines, including the language tag, are dropped entirely
+            inCodeBlock = !inCodeBlock;
+            afterFence = true;
+            word.setLength(0);
+            return;
+        }
+        if (inCodeBlock) {
+            display(word);
+            word.setLength(0);
+            return;
+        }
+        if (lineStart && processLineMarker()) {
+            word.setLength(0);
+            return;
+        }
+        if (linkState == LINK_NONE && isUrl()) {
+            display(word);
+            speechWord(words[LINK]);
+            // Keep sentence punctuation that trailed the URL
+            char last = word.charAt(word.length() - 1);
+            if (last == '.' || last == ',' || last == ';' || last == ':' || last == '!' || last == '?') {
+                speech(last);
+            }
+            word.setLength(0);
+            return;
+        }
+
+        int length = word.length();
+        int i = 0;
+        while (i < length) {
+            int cp = word.codePointAt(i);
+            i += Character.charCount(cp);
+
+            if (linkState == LINK_URL) {
+                if (cp == ')') linkState = LINK_NONE;
+                continue;
+            }
+            if (cp == '[' && linkState == LINK_NONE) {
+                linkState = LINK_TEXT;
+                continue;
+            }
+            if (cp == ']' && linkState == LINK_TEXT) {
+                if (i < length && word.charAt(i) == '(') {
+                    linkState = LINK_URL;
+                    i++;
+                } else {
+                    linkState = LINK_NONE;
+                }
+                continue;
+            }
+            if (cp == '*' || cp == '`' || cp == '~') continue;
+            if (cp == '_' && !(i > 1 && i < length
+                    && Character.isLetterOrDigit(word.charAt(i - 2)) && Character.isLetterOrDigit(word.charAt(i)))) {
+                // Emphasis marker, but keep snake_case identifiers intact
+                continue;
+            }
+            if (cp == '%') {
+                display(cp);
+                speechWord(words[PERCENT]);
+                continue;
+            }
+            if (cp == '&') {
+                display(cp);
+                speechWord(words[AND]);
+                continue;
+            }
+            if (cp == '°') {
+                display(cp);
+                speechWord(words[DEGREES]);
+                continue;
+            }
+            if (isEmoji(cp)) continue;
+            display(cp);
+            speech(cp);
+        }
+        word.setLength(0);
+    }
+
+    /**
+     * Headings, bullets, numbered items and quotes at the start of a line.
+     * Returns true if the whole word was a marker.
+     */
+    private boolean processLineMarker() {
+        int length = word.length();
+        char first = word.charAt(0);
+        if (first == '#') {
+            int i = 0;
+            while (i < length && word.charAt(i) == '#') i++;
+            if (i == length) {
+                atLineStart = true;
+                return true;
+            }
+        }
+        if (length == 1 && (first == '-' || first == '*' || first == '+' || first == '•')) {
+            display("•");
+            atLineStart = true;
+            return true;
+        }
+        if (first == '>') {
+            int i = 0;
+            while (i < length && word.charAt(i) == '>') i++;
+            word.delete(0, i);
+            atLineStart = true;
+            return word.length() == 0;
+        }
+        if (Character.isDigit(first)) {
+            int i = 0;
+            while (i < length && Character.isDigit(word.charAt(i))) i++;
+            if (i == length - 1 && (word.charAt(i) == '.' || word.charAt(i) == ')')) {
+                // "1." would read as the end of a sentence
+                display(word);
+                speech(word.subSequence(0, i));
+                speech(',');
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isUrl() {
+        return startsWith(word, "http://") || startsWith(word, "https://") || startsWith(word, "www.");
+    }
+
+    private static boolean startsWith(StringBuilder sb, String prefix) {
+        if (sb.length() < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (sb.charAt(i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A spoken expansion, set off from the neighbouring characters.
+     */
+    private void speechWord(String spoken) {
+        if (speech.length() > 0 && !Character.isWhitespace(speech.charAt(speech.length() - 1))) {
+            speechSpace = true;
+        }
+        speech(spoken);
+        speechSpaceBeforeWord = true;
+    }
+
+    /**
+     * Same set the old regex removed (other symbols and lone surrogates),
+     * plus the joiners and modifiers that glue emoji sequences together.
+     */
+    static boolean isEmoji(int cp) {
+        if (cp < 0x80) return false;
+        int type = Character.getType(cp);
+        return type == Character.OTHER_SYMBOL
+                || type == Character.SURROGATE
+                || cp == 0x200D // zero-width joiner
+                || cp == 0xFE0F // emoji presentation selector
+                || cp == 0x20E3 // combining keycap
+                || (cp >= 0x1F3FB && cp <= 0x1F3FF); // skin tones
+    }
+}
@@ -0,0 +1,128 @@
+package com.voxnova;
+
+import android.media.MediaDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * In-memory MediaDataSource filled from the network while MediaPlayer reads it.
+ *
+ * The extractor may seek back to headers, so the whole clip is kept (speech
+ * clips are small) instead of a fixed ring. Reads past the written end block
+ * until more bytes arrive or the stream is marked complete. The same bytes
+ * can also be read front to back as an InputStream, for the PCM engine.
+ */
+public class StreamingAudioSource extends MediaDataSource {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final Object lock = new Object();
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int length = 0;
+    private boolean complete = false;
+    private boolean closed = false;
+
+    public void write(byte[] buffer, int offset, int count) {
+        synchronized (lock) {
+            if (closed) return;
+            if (length + count > data.length) {
+                byte[] grown = new byte[Math.max(data.length * 2, length + count)];
+                System.arraycopy(data, 0, grown, 0, length);
+                data = grown;
+            }
+            System.arraycopy(buffer, offset, data, length, count);
+            length += count;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * No more bytes will be written; readers see EOF after the last byte.
+     */
+    public void markComplete() {
+        synchronized (lock) {
+            complete = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * A source already holding a whole clip.
+     */
+    public static StreamingAudioSource of(byte[] clip) {
+        StreamingAudioSource source = new StreamingAudioSource();
+        source.write(clip, 0, clip.length);
+        source.markComplete();
+        return source;
+    }
+
+    /**
+     * Read the clip from the start, blocking like readAt() while it is still
+     * being written. Closing the stream leaves the source open.
+     */
+    public InputStream openInputStream() {
+        return new InputStream() {
+            private long position = 0;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int size) throws IOException {
+                if (size == 0) return 0;
+                int count = readAt(position, buffer, offset, size);
+                if (count > 0) position += count;
+                return count;
+            }
+        };
+    }
+
+    public int getBufferedBytes() {
+        synchronized (lock) {
+            return length;
+        }
+    }
+
+    public boolean isComplete() {
+        synchronized (lock) {
+            return complete;
+        }
+    }
+
+    @Override
+    public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        synchronized (lock) {
+            while (position >= length && !complete && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for audio");
+                }
+            }
+            if (closed || position >= length) return -1;
+            int count = (int) Math.min(size, length - position);
+            System.arraycopy(data, (int) position, buffer, offset, count);
+            return count;
+        }
+    }
+
+    @Override
+    public long getSize() {
+        synchronized (lock) {
+            // Unknown until the download finishes; MediaPlayer treats it as a stream
+            return complete ? length : -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+}
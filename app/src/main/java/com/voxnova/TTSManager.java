@@ -5,28 +5,88 @@ import android.media.AudioAttributes;
 import android.media.MediaPlayer;
 import android.os.Handler;
 import android.os.Looper;
-import android.speech.tts.TextToSpeech;
-import android.speech.tts.UtteranceProgressListener;
+import android.os.SystemClock;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Locale;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
-public class TTSManager {
+public class TTSManager implements PhraseBank.Synthesizer {
     private static final String CARTESIA_URL = "https://api.cartesia.ai/tts/bytes";
     private static final String CARTESIA_VOICE_ID = "5c5ad5e7-1020-476b-8b91-fdcbe9cc313c"; // Daniela MX
     private static final String ELEVENLABS_URL = "https://api.elevenlabs.io/v1/text-to-speech/";
     private static final String ELEVENLABS_VOICE_ID = "pFZP5JQG7iQjIQuC4Bku"; // Lily - Spanish
+    // ~1s of 128 kbps MP3 before playback starts, enough for the extractor to sync
+    private static final int PLAYBACK_START_THRESHOLD_BYTES = 16 * 1024;
+
+    private static final int SYNTHESIS_THREADS = 4;
+    private static final long DEFAULT_HEDGE_DELAY_MS = 1500;
+    private static final long MIN_HEDGE_DELAY_MS = 400;
+    private static final long MAX_HEDGE_DELAY_MS = 3000;
+    private static final int SYNTHESIS_QUEUE = 16;
+    // Plain text longer than this is split and synthesized ahead in chunks
+    private static final int LONG_TEXT_CHARS = 300;
+    // Chunks synthesized ahead of the one playing
+    private static final int CHUNK_LOOKAHEAD = 3;
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    // A warm-up within this window of the last one for the same provider is skipped
+    private static final long WARM_UP_INTERVAL_MS = 15 * 1000;
+
+    // Process-wide cancellation metrics, shown on the settings screen
+    private static final AtomicLong cancelledCalls = new AtomicLong();
+    private static final AtomicLong bytesAvoided = new AtomicLong();
+    private static final AtomicLong bytesDiscarded = new AtomicLong();
+    private static final AtomicLong hedgesFired = new AtomicLong();
+    private static final AtomicLong hedgeWins = new AtomicLong();
+    private static final AtomicLong hedgeLosersCancelled = new AtomicLong();
+    private static final AtomicLong chunkedAnswers = new AtomicLong();
+    private static final AtomicLong chunksPlayed = new AtomicLong();
+    private static final AtomicLong chunkRetries = new AtomicLong();
+    private static final AtomicLong chunkGapMs = new AtomicLong();
+    private static final AtomicLong chunkMaxGapMs = new AtomicLong();
+    private static final AtomicLong warmUps = new AtomicLong();
+    private static final AtomicLong connectionsOpened = new AtomicLong();
+    private static final AtomicLong connectionsReused = new AtomicLong();
+    private static final AtomicLong connectMsTotal = new AtomicLong();
+    private static final Map<String, Long> lastWarmUp = new ConcurrentHashMap<>();
+    private static OkHttpClient sharedHttpClient;
+    private static AudioAttributes speechAttributes;
 
     public interface TTSCallback {
         void onStart();
@@ -34,60 +94,190 @@ public class TTSManager {
         void onError(String error);
     }
 
+    public interface PrerenderCallback {
+        void onRendered(List<String> keys);
+    }
+
     private final Context context;
     private final PreferencesManager prefs;
     private final Handler mainHandler;
     private final OkHttpClient httpClient;
-    private TextToSpeech googleTTS;
-    private boolean googleReady = false;
+    private final GoogleTtsEngine googleEngine;
     private MediaPlayer mediaPlayer;
-    private TTSCallback pendingCallback;
+    private PcmAudioEngine pcmEngine;
+    private SpeechStream activeStream;
+    // A long speak() in progress; kept apart so it leaves activeStream alone
+    private SpeechStream spokenStream;
+    private final AudioCache audioCache;
+    private final ThreadPoolExecutor synthesisExecutor;
+    // Disk writes for audio that is already playing; never competes with synthesis
+    private final ThreadPoolExecutor cacheWriter;
+    // Feeds chunk audio into the PCM engine, which blocks while a chunk downloads
+    private final ThreadPoolExecutor pcmFeeder;
+    // Bumped by stop(); work started under an older generation is discarded
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Set<TrackedCall> activeCalls = ConcurrentHashMap.newKeySet();
+    private final PhraseBank phraseBank;
+    private final ProviderHealth health;
+    private final NetworkMonitor network;
+    // Set while a prompt may still be playing; streams opened meanwhile wait for it
+    private Object pendingPrompt;
+    // Told when the pending prompt starts and ends; may be null
+    private TTSCallback promptListener;
 
     public TTSManager(Context context, PreferencesManager prefs) {
         this.context = context;
         this.prefs = prefs;
         this.mainHandler = new Handler(Looper.getMainLooper());
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(15, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
+        this.httpClient = sharedHttpClient();
+        this.audioCache = AudioCache.getInstance(context);
+        this.synthesisExecutor = new ThreadPoolExecutor(SYNTHESIS_THREADS, SYNTHESIS_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(SYNTHESIS_QUEUE),
+                r -> new Thread(r, "VoxNova-TTS"));
+        this.synthesisExecutor.allowCoreThreadTimeOut(true);
+        this.cacheWriter = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "VoxNova-CacheWrite"));
+        this.cacheWriter.allowCoreThreadTimeOut(true);
+        this.pcmFeeder = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "VoxNova-PcmFeed"));
+        this.pcmFeeder.allowCoreThreadTimeOut(true);
+        this.phraseBank = PhraseBank.getInstance(context);
+        this.health = ProviderHealth.getInstance(context);
+        this.network = NetworkMonitor.getInstance(context);
+        // Normally already bound by the service; this only covers a cold start
+        this.googleEngine = GoogleTtsEngine.getInstance(context);
+        this.googleEngine.warmUp();
+    }
+
+    /**
+     * One client per process, so pooled provider connections (and any
+     * warm-up) outlive the session that opened them.
+     */
+    private static synchronized OkHttpClient sharedHttpClient() {
+        if (sharedHttpClient == null) {
+            sharedHttpClient = new OkHttpClient.Builder()
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+                    .eventListenerFactory(call -> new ConnectionCounter())
+                    .build();
+        }
+        return sharedHttpClient;
+    }
+
+    /**
+     * Counts whether each call had to open a new connection or got a pooled one.
+     */
+    private static final class ConnectionCounter extends EventListener {
+        private long connectStartedAt = 0;
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connectStartedAt = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            if (connectStartedAt != 0) {
+                long connectMs = SystemClock.elapsedRealtime() - connectStartedAt;
+                connectionsOpened.incrementAndGet();
+                connectMsTotal.addAndGet(connectMs);
+                DebugLogger.log("TTS connection opened to " + call.request().url().host() + " in " + connectMs + "ms");
+            } else {
+                connectionsReused.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Open, or keep alive, the connection to the provider the next answer will
+     * most likely use, while the gateway is still thinking. Cheap to call on
+     * every turn: repeats are throttled and a pooled connection is reused.
+     */
+    public void warmUp() {
+        String provider = warmUpProvider();
+        if (provider == null) return;
+        long now = SystemClock.elapsedRealtime();
+        Long last = lastWarmUp.get(provider);
+        if (last != null && now - last < WARM_UP_INTERVAL_MS) return;
+        lastWarmUp.put(provider, now);
+        warmUps.incrementAndGet();
+
+        String apiKey = apiKeyFor(provider);
+        if (provider.equals(PreferencesManager.TTS_PROVIDER_CARTESIA) && usePcm(currentQuality())) {
+            // Streams will go over the WebSocket, so that is the connection to open
+            DebugLogger.log("TTS warm-up: Cartesia WebSocket");
+            CartesiaStreamClient.shared(httpClient, apiKey).warmUp();
+            return;
+        }
+        String url = provider.equals(PreferencesManager.TTS_PROVIDER_ELEVENLABS) ? ELEVENLABS_URL : CARTESIA_URL;
+        Request request = new Request.Builder()
+                .url(HttpUrl.get(url).newBuilder().encodedPath("/").build())
+                .head()
                 .build();
-        initGoogleTTS();
+        DebugLogger.log("TTS warm-up: " + request.url().host());
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                DebugLogger.error("TTS warm-up failed: " + e.getMessage());
+            }
+        });
     }
 
-    private void initGoogleTTS() {
-        try {
-            googleTTS = new TextToSpeech(context, status -> {
-                if (status == TextToSpeech.SUCCESS) {
-                    String[] langParts = prefs.getLanguageParts();
-                    googleTTS.setLanguage(new Locale(langParts[0], langParts[1]));
-                    googleTTS.setOnUtteranceProgressListener(new UtteranceProgressListener() {
-                        @Override public void onStart(String id) { 
-                            if (pendingCallback != null) pendingCallback.onStart(); 
-                        }
-                        @Override public void onDone(String id) { 
-                            if (pendingCallback != null) pendingCallback.onDone(); 
-                        }
-                        @Override public void onError(String id) { 
-                            if (pendingCallback != null) pendingCallback.onError("Google TTS error"); 
-                        }
-                    });
-                    googleReady = true;
-                    DebugLogger.log("Google TTS ready");
-                }
-            });
-        } catch (Exception e) {
-            DebugLogger.error("Google TTS init: " + e.getMessage());
+    /**
+     * The provider speak() would pick first, without using up a circuit
+     * breaker's half-open trial.
+     */
+    private String warmUpProvider() {
+        String provider = prefs.getTtsProvider();
+        List<String> candidates = new ArrayList<>();
+        if (provider.equals(PreferencesManager.TTS_PROVIDER_AUTO)) {
+            if (apiKeyFor(PreferencesManager.TTS_PROVIDER_CARTESIA) != null) candidates.add(PreferencesManager.TTS_PROVIDER_CARTESIA);
+            if (apiKeyFor(PreferencesManager.TTS_PROVIDER_ELEVENLABS) != null) candidates.add(PreferencesManager.TTS_PROVIDER_ELEVENLABS);
+        } else if (!provider.equals(PreferencesManager.TTS_PROVIDER_GOOGLE) && apiKeyFor(provider) != null) {
+            candidates.add(provider);
         }
+        List<String> ranked = health.rank(candidates);
+        return ranked.isEmpty() ? null : ranked.get(0);
+    }
+
+    public static String getConnectionStats() {
+        long opened = connectionsOpened.get();
+        return warmUps.get() + " warm-ups, " + opened + " opened"
+                + (opened == 0 ? "" : " (avg " + connectMsTotal.get() / opened + "ms)")
+                + ", " + connectionsReused.get() + " reused";
     }
 
+    /**
+     * Display form of an answer: emoji and markdown removed.
+     */
     public static String stripEmojis(String text) {
-        if (text == null) return "";
-        return text.replaceAll("[\\p{So}\\p{Cs}]", "").trim();
+        return SpeechTextNormalizer.forDisplay(text);
     }
 
     public void speak(String text, TTSCallback callback) {
-        this.pendingCallback = callback;
-        String cleanText = stripEmojis(text);
+        // A new speak() replaces the last one, even one still downloading
+        if (spokenStream != null) spokenStream.cancel();
+        if (text != null && text.length() > LONG_TEXT_CHARS) {
+            // Long answers are chunked and synthesized ahead instead of sent
+            // whole, on a stream of their own so an open stream keeps going
+            spokenStream = new SpeechStream(callback, false);
+            spokenStream.append(text);
+            spokenStream.finish();
+            return;
+        }
+        speakNormalized(SpeechTextNormalizer.forSpeech(text, prefs.getTtsLanguageCode()), callback);
+    }
+
+    /**
+     * Speak text that has already been through the speech normalizer.
+     */
+    private void speakNormalized(String cleanText, TTSCallback callback) {
         DebugLogger.log("TTS speak: " + cleanText.substring(0, Math.min(40, cleanText.length())) + "...");
 
         String provider = prefs.getTtsProvider();
@@ -99,8 +289,13 @@ public class TTSManager {
         switch (provider) {
             case "cartesia":
                 if (cartesiaKey != null && !cartesiaKey.isEmpty()) {
-                    DebugLogger.log("Using Cartesia (selected)");
-                    speakWithCartesiaOnly(cleanText, cartesiaKey, callback);
+                    if (health.isAvailable(PreferencesManager.TTS_PROVIDER_CARTESIA)) {
+                        DebugLogger.log("Using Cartesia (selected)");
+                        speakWithCartesiaOnly(cleanText, cartesiaKey, callback);
+                    } else {
+                        DebugLogger.log("Cartesia circuit open, using Google");
+                        speakWithGoogle(cleanText, callback);
+                    }
                 } else {
                     DebugLogger.log("Cartesia selected but no API key, falling back to Google");
                     speakWithGoogle(cleanText, callback);
@@ -109,8 +304,13 @@ public class TTSManager {
 
             case "elevenlabs":
                 if (elevenLabsKey != null && !elevenLabsKey.isEmpty()) {
-                    DebugLogger.log("Using ElevenLabs (selected)");
-                    speakWithElevenLabsOnly(cleanText, elevenLabsKey, callback);
+                    if (health.isAvailable(PreferencesManager.TTS_PROVIDER_ELEVENLABS)) {
+                        DebugLogger.log("Using ElevenLabs (selected)");
+                        speakWithElevenLabsOnly(cleanText, elevenLabsKey, callback);
+                    } else {
+                        DebugLogger.log("ElevenLabs circuit open, using Google");
+                        speakWithGoogle(cleanText, callback);
+                    }
                 } else {
                     DebugLogger.log("ElevenLabs selected but no API key, falling back to Google");
                     speakWithGoogle(cleanText, callback);
@@ -122,219 +322,1870 @@ public class TTSManager {
                 speakWithGoogle(cleanText, callback);
                 break;
 
-            default: // auto - use fallback chain
-                if (cartesiaKey != null && !cartesiaKey.isEmpty()) {
+            default: // auto - fastest healthy provider first
+                List<String> ranked = rankProviders();
+                if (ranked.size() >= 2) {
+                    DebugLogger.log("Auto: " + ranked.get(0) + " with " + ranked.get(1) + " hedge...");
+                    speakHedged(cleanText, ranked.get(0), ranked.get(1), callback);
+                } else if (ranked.size() == 1 && ranked.get(0).equals(PreferencesManager.TTS_PROVIDER_CARTESIA)) {
                     DebugLogger.log("Auto: Trying Cartesia...");
                     speakWithCartesia(cleanText, cartesiaKey, callback);
-                } else if (elevenLabsKey != null && !elevenLabsKey.isEmpty()) {
+                } else if (ranked.size() == 1) {
                     DebugLogger.log("Auto: Trying ElevenLabs...");
                     speakWithElevenLabs(cleanText, elevenLabsKey, callback);
                 } else {
-                    DebugLogger.log("Auto: Using Google TTS (no API keys)");
+                    DebugLogger.log("Auto: Using Google TTS (no healthy provider)");
                     speakWithGoogle(cleanText, callback);
                 }
                 break;
         }
     }
 
-    private void speakWithCartesiaOnly(String text, String apiKey, TTSCallback callback) {
-        executeCartesiaRequest(text, apiKey, callback, false);
+    /**
+     * Cloud providers with a key whose circuit would let a request through,
+     * fastest first. Claims no half-open trial; that happens at dispatch.
+     */
+    private List<String> rankProviders() {
+        List<String> candidates = new ArrayList<>();
+        if (apiKeyFor(PreferencesManager.TTS_PROVIDER_CARTESIA) != null) {
+            candidates.add(PreferencesManager.TTS_PROVIDER_CARTESIA);
+        }
+        if (apiKeyFor(PreferencesManager.TTS_PROVIDER_ELEVENLABS) != null) {
+            candidates.add(PreferencesManager.TTS_PROVIDER_ELEVENLABS);
+        }
+        return health.rank(candidates);
     }
 
-    private void speakWithCartesia(String text, String apiKey, TTSCallback callback) {
-        executeCartesiaRequest(text, apiKey, callback, true);
+    private String apiKeyFor(String provider) {
+        String key = provider.equals(PreferencesManager.TTS_PROVIDER_ELEVENLABS)
+                ? prefs.getElevenLabsApiKey() : prefs.getCartesiaApiKey();
+        return key != null && !key.isEmpty() ? key : null;
     }
 
-    private void executeCartesiaRequest(String text, String apiKey, TTSCallback callback, boolean allowFallback) {
-        new Thread(() -> {
-            try {
-                DebugLogger.log("Cartesia: building request...");
-
-                JSONObject body = new JSONObject();
-                body.put("model_id", "sonic-2");
-                body.put("transcript", text);
-                body.put("language", prefs.getTtsLanguageCode());
-
-                JSONObject voice = new JSONObject();
-                voice.put("mode", "id");
-                voice.put("id", CARTESIA_VOICE_ID);
-                body.put("voice", voice);
-
-                JSONObject format = new JSONObject();
-                format.put("container", "mp3");
-                format.put("bit_rate", 128000);
-                format.put("sample_rate", 44100);
-                body.put("output_format", format);
+    /**
+     * Open a streaming utterance fed with text as it is generated. Completed
+     * sentences are spoken in order while the rest is still arriving; the
+     * callback sees a single onStart/onDone for the whole stream. If a prompt
+     * is still playing, text is held back until it has finished.
+     * Must be used from the main thread.
+     */
+    public SpeechStream openStream(TTSCallback callback) {
+        if (activeStream != null) {
+            activeStream.cancel();
+        }
+        activeStream = new SpeechStream(callback, true);
+        return activeStream;
+    }
 
-                DebugLogger.log("Cartesia: sending request...");
+    public class SpeechStream {
+        private final TTSCallback callback;
+        private final SentenceSegmenter segmenter;
+        private final SpeechTextNormalizer normalizer;
+        private final ArrayDeque<String> queue = new ArrayDeque<>();
+        private final StringBuilder fullText = new StringBuilder();
+        // Cache keys of the clips played, in order
+        private final List<String> keys = Collections.synchronizedList(new ArrayList<>());
+        private final long openedAt;
+        private boolean receivedText = false;
+        private boolean finished = false;
+        private boolean cancelled = false;
+        private boolean started = false;
+        // Waiting for a prompt to finish before anything is synthesized
+        private boolean held;
+        private int spokenSegments = 0;
+        private int failedSegments = 0;
+        // Segments handed to Google when no cloud provider is usable
+        private int googleSegments = 0;
 
-                Request request = new Request.Builder()
-                        .url(CARTESIA_URL)
-                        .addHeader("X-API-Key", apiKey)
-                        .addHeader("Cartesia-Version", "2024-06-10")
-                        .addHeader("Content-Type", "application/json")
-                        .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
-                        .build();
+        // Set while the whole stream goes through one Cartesia WebSocket context
+        private CartesiaStreamClient.StreamContext wsContext;
+        private final StringBuilder wsSentText = new StringBuilder();
+        // Set while segments are synthesized ahead through the chunk pipeline
+        private ChunkPipeline pipeline;
 
-                Response response = httpClient.newCall(request).execute();
+        private SpeechStream(TTSCallback callback, boolean afterPrompt) {
+            this.callback = callback;
+            this.segmenter = new SentenceSegmenter(prefs.getTtsLanguageCode());
+            this.normalizer = new SpeechTextNormalizer(prefs.getTtsLanguageCode());
+            this.openedAt = SystemClock.elapsedRealtime();
+            this.held = afterPrompt && pendingPrompt != null;
+            String cartesiaKey = getWebSocketCartesiaKey();
+            if (cartesiaKey != null) {
+                startWebSocketContext(cartesiaKey);
+            } else {
+                startPipeline();
+            }
+        }
 
-                DebugLogger.log("Cartesia response: " + response.code());
+        private void startPipeline() {
+            List<String> providers = chunkProviders();
+            if (providers.isEmpty()) return;
+            DebugLogger.log("TTS stream: chunk pipeline via " + providers);
+            NetworkMonitor.Quality quality = currentQuality();
+            pipeline = new ChunkPipeline(providers, usePcm(quality), quality, prefs.getTtsLanguageCode(), keys, new TTSCallback() {
+                @Override public void onStart() {
+                    if (cancelled || started) return;
+                    started = true;
+                    DebugLogger.log("TTS stream first audio after " + (SystemClock.elapsedRealtime() - openedAt) + "ms");
+                    callback.onStart();
+                }
+                @Override public void onDone() {
+                    if (cancelled) return;
+                    spokenSegments += pipeline.played;
+                    failedSegments += pipeline.failed;
+                    complete();
+                }
+                @Override public void onError(String error) {
+                    onDone();
+                }
+            });
+        }
 
-                if (response.isSuccessful() && response.body() != null) {
-                    DebugLogger.log("Cartesia: got audio, playing...");
-                    playAudioStream(response.body().byteStream(), callback);
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "no body";
-                    DebugLogger.error("Cartesia failed " + response.code() + ": " + errorBody.substring(0, Math.min(100, errorBody.length())));
+        private void startWebSocketContext(String apiKey) {
+            DebugLogger.log("TTS stream: using Cartesia WebSocket");
+            wsContext = CartesiaStreamClient.shared(httpClient, apiKey)
+                    .openContext(CARTESIA_VOICE_ID, prefs.getTtsLanguageCode(), PcmAudioEngine.SAMPLE_RATE);
+            final CartesiaStreamClient.StreamContext context = wsContext;
+            InputStream audio = new CachingInputStream(context.getAudioStream(),
+                    data -> mainHandler.post(() -> {
+                        if (cancelled || wsContext != context) return;
+                        String key = cacheKey(PreferencesManager.TTS_PROVIDER_CARTESIA,
+                                prefs.getTtsLanguageCode(), true, wsSentText.toString());
+                        keys.add(key);
+                        network.recordAudio(NetworkMonitor.Quality.HIGH, data.length, pcmDurationMs(data.length));
+                        cacheWriter.execute(() -> audioCache.put(key, data, true));
+                    }));
+            submitSynthesis(callback, () -> obtainPcmEngine().play(audio, openedAt, new TTSCallback() {
+                @Override public void onStart() {
+                    health.recordSuccess(PreferencesManager.TTS_PROVIDER_CARTESIA, -1, 200);
                     mainHandler.post(() -> {
-                        if (allowFallback) {
-                            String elevenLabsKey = prefs.getElevenLabsApiKey();
-                            if (elevenLabsKey != null && !elevenLabsKey.isEmpty()) {
-                                speakWithElevenLabs(text, elevenLabsKey, callback);
-                            } else {
-                                speakWithGoogle(text, callback);
-                            }
-                        } else {
-                            speakWithGoogle(text, callback);
-                        }
+                        if (cancelled || started) return;
+                        started = true;
+                        DebugLogger.log("TTS stream first audio after " + (SystemClock.elapsedRealtime() - openedAt) + "ms");
+                        callback.onStart();
                     });
                 }
-            } catch (Exception e) {
-                DebugLogger.error("Cartesia exception: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-                mainHandler.post(() -> {
-                    if (allowFallback) {
-                        String elevenLabsKey = prefs.getElevenLabsApiKey();
-                        if (elevenLabsKey != null && !elevenLabsKey.isEmpty()) {
-                            speakWithElevenLabs(text, elevenLabsKey, callback);
+                @Override public void onDone() {
+                    mainHandler.post(() -> {
+                        if (cancelled || wsContext != context) return;
+                        spokenSegments++;
+                        // Everything received has played; the context may still have ended early
+                        if (finished && queue.isEmpty() && context.getError() == null) {
+                            complete();
                         } else {
-                            speakWithGoogle(text, callback);
+                            fallBackFromWebSocket(context, context.getError(), context.getVoicedWords());
                         }
-                    } else {
-                        speakWithGoogle(text, callback);
-                    }
-                });
+                    });
+                }
+                @Override public void onError(String error) {
+                    mainHandler.post(() -> fallBackFromWebSocket(context, error, 0));
+                }
+            }));
+        }
+
+        /**
+         * The context ended before the whole answer was voiced: hand the
+         * words it never spoke, and everything still to come, to the
+         * per-segment path (next ranked provider, or Google).
+         */
+        private void fallBackFromWebSocket(CartesiaStreamClient.StreamContext context, String error, int voicedWords) {
+            if (cancelled || wsContext != context) return;
+            if (error != null) {
+                DebugLogger.error("Cartesia WS failed (" + error + ") after " + voicedWords + " words, falling back to per-segment synthesis");
+                health.recordFailure(PreferencesManager.TTS_PROVIDER_CARTESIA, 0);
+                // The voiced part played but a broken stream is never cached
+                if (voicedWords > 0) keys.add(AudioCache.UNCACHED);
+            } else {
+                DebugLogger.log("Cartesia WS context ended after " + voicedWords + " words, continuing per segment");
+            }
+            wsContext = null;
+            context.cancel();
+            startPipeline();
+            // Re-split so the unspoken part is synthesized sentence by sentence
+            SentenceSegmenter resplit = new SentenceSegmenter(prefs.getTtsLanguageCode());
+            List<String> rest = new ArrayList<>(resplit.append(dropWords(wsSentText.toString(), voicedWords) + " "));
+            rest.add(resplit.flush());
+            for (int i = rest.size() - 1; i >= 0; i--) {
+                if (!rest.get(i).isEmpty()) queue.addFirst(rest.get(i));
+            }
+            pump();
+        }
+
+        /**
+         * Feed more of the answer. Text is normalized once here; the display
+         * form keeps building even after the stream has been cancelled.
+         */
+        public void append(String delta) {
+            if (finished || delta == null || delta.isEmpty()) return;
+            receivedText = true;
+            fullText.append(delta);
+            normalizer.append(delta);
+            if (cancelled) return;
+            for (String segment : segmenter.append(normalizer.takeSpeech())) {
+                enqueue(segment);
+            }
+            pump();
+        }
+
+        public void finish() {
+            if (finished) return;
+            normalizer.flush();
+            finished = true;
+            if (cancelled) return;
+            for (String segment : segmenter.append(normalizer.takeSpeech())) {
+                enqueue(segment);
+            }
+            enqueue(segmenter.flush());
+            pump();
+        }
+
+        public boolean hasText() {
+            return receivedText;
+        }
+
+        private void release() {
+            if (!held) return;
+            held = false;
+            pump();
+        }
+
+        /**
+         * Transcript text added since the last call, cleaned up for display.
+         */
+        public String takeDisplayText() {
+            return normalizer.takeDisplay();
+        }
+
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            if (wsContext != null) wsContext.cancel();
+            if (pipeline != null) pipeline.cancel();
+            queue.clear();
+            segmenter.reset();
+            if (spokenStream == this) spokenStream = null;
+            if (activeStream == this) {
+                activeStream = null;
+                // Silence what is already playing and abort requests still downloading
+                stop();
+            }
+        }
+
+        private void enqueue(String segment) {
+            if (segment.trim().isEmpty()) return;
+            queue.add(segment);
+        }
+
+        private void pump() {
+            if (cancelled || held) return;
+            if (wsContext != null) {
+                String segment;
+                while ((segment = queue.poll()) != null) {
+                    // Trailing space keeps word boundaries between continued transcripts
+                    wsContext.send(segment + " ");
+                    wsSentText.append(segment).append(' ');
+                }
+                if (finished) wsContext.end();
+                return;
+            }
+            if (pipeline != null) {
+                String segment;
+                while ((segment = queue.poll()) != null) {
+                    pipeline.add(segment);
+                }
+                if (finished) pipeline.finish();
+                return;
+            }
+            // Only Google is usable: each segment joins the engine's queue as
+            // soon as it is complete and is synthesized while the one before
+            // it is still playing
+            String segment;
+            while ((segment = queue.poll()) != null) {
+                speakSegmentWithGoogle(segment);
+            }
+            if (!cancelled && finished && spokenSegments + failedSegments == googleSegments) complete();
+        }
+
+        private void speakSegmentWithGoogle(String segment) {
+            boolean first = googleSegments++ == 0;
+            keys.add(AudioCache.UNCACHED);
+            TTSCallback segmentCallback = new TTSCallback() {
+                @Override public void onStart() {
+                    if (cancelled || started) return;
+                    started = true;
+                    DebugLogger.log("TTS stream first audio after " + (SystemClock.elapsedRealtime() - openedAt) + "ms");
+                    callback.onStart();
+                }
+                @Override public void onDone() {
+                    if (cancelled) return;
+                    spokenSegments++;
+                    pump();
+                }
+                @Override public void onError(String error) {
+                    if (cancelled) return;
+                    DebugLogger.error("TTS stream segment failed: " + error);
+                    failedSegments++;
+                    pump();
+                }
+            };
+            if (first) {
+                googleEngine.speak(segment, prefs.getLanguageParts(), segmentCallback);
+            } else {
+                googleEngine.enqueue(segment, prefs.getLanguageParts(), segmentCallback);
             }
-        }).start();
+        }
+
+        private void complete() {
+            if (activeStream == this) activeStream = null;
+            if (spokenStream == this) spokenStream = null;
+            cancelled = true;
+            audioCache.setLastAnswer(keys, fullText.toString());
+            DebugLogger.log("TTS stream complete: " + spokenSegments + " spoken, " + failedSegments + " failed");
+            if (spokenSegments == 0 && failedSegments > 0) {
+                callback.onError("All segments failed");
+            } else {
+                callback.onDone();
+            }
+        }
     }
 
-    private void speakWithElevenLabsOnly(String text, String apiKey, TTSCallback callback) {
-        executeElevenLabsRequest(text, apiKey, callback);
+    /**
+     * The text after its first count words, or "" if there are no more.
+     */
+    static String dropWords(String text, int count) {
+        String[] words = text.trim().split("\\s+");
+        if (count >= words.length || words[0].isEmpty()) return "";
+        return String.join(" ", Arrays.asList(words).subList(count, words.length));
     }
 
-    private void speakWithElevenLabs(String text, String apiKey, TTSCallback callback) {
-        executeElevenLabsRequest(text, apiKey, callback);
+    /**
+     * Cloud providers to synthesize chunks with, in order of preference.
+     * Empty when only Google is usable.
+     */
+    private List<String> chunkProviders() {
+        String provider = prefs.getTtsProvider();
+        if (provider.equals(PreferencesManager.TTS_PROVIDER_AUTO)) return rankProviders();
+        List<String> providers = new ArrayList<>();
+        if ((provider.equals(PreferencesManager.TTS_PROVIDER_CARTESIA) || provider.equals(PreferencesManager.TTS_PROVIDER_ELEVENLABS))
+                && apiKeyFor(provider) != null && health.isAvailable(provider)) {
+            providers.add(provider);
+        }
+        return providers;
     }
 
-    private void executeElevenLabsRequest(String text, String apiKey, TTSCallback callback) {
-        new Thread(() -> {
-            try {
-                DebugLogger.log("ElevenLabs: building request...");
+    /**
+     * Synthesizes the segments of an answer ahead of playback, a bounded
+     * number at a time, and plays them strictly in order. PCM chunks are fed
+     * back to back into the audio engine; MP3 chunks are chained with
+     * setNextMediaPlayer so the hand-off has no gap. A chunk is playable from
+     * its first bytes, so the one at the front starts while it is still
+     * downloading. A chunk that fails before any audio arrives is retried on
+     * its own (rotating providers) and spoken by Google as a last resort.
+     */
+    private final class ChunkPipeline {
+        private final class Chunk {
+            final int index;
+            final String text;
+            // Filled as the chunk downloads; null if Google has to speak it
+            StreamingAudioSource source;
+            boolean pcm;
+            String cacheKey;
+            boolean resolved;
 
-                JSONObject body = new JSONObject();
-                body.put("text", text);
-                body.put("model_id", "eleven_multilingual_v2");
+            Chunk(int index, String text) {
+                this.index = index;
+                this.text = text;
+            }
+        }
 
-                JSONObject voiceSettings = new JSONObject();
-                voiceSettings.put("stability", 0.5);
-                voiceSettings.put("similarity_boost", 0.75);
-                body.put("voice_settings", voiceSettings);
+        private final int gen;
+        private final List<String> providers;
+        private final boolean rawPcm;
+        private final NetworkMonitor.Quality quality;
+        private final String language;
+        private final List<String> keys;
+        private final TTSCallback callback;
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final long createdAt = SystemClock.elapsedRealtime();
+        private long firstAudioAt = 0;
+        private int nextToFetch = 0;
+        private int nextToPlay = 0;
+        // Only one chunk is handed to the player at a time
+        private boolean feeding = false;
+        private boolean finished = false;
+        private boolean closed = false;
+        private Chunk googleChunk;
+        int played = 0;
+        int failed = 0;
+        private int retries = 0;
 
-                DebugLogger.log("ElevenLabs: sending request...");
+        // Hand-off gaps between consecutive chunks
+        private long estimatedEnd = 0; // PCM: when the audio fed so far should finish, guarded by this
+        private long gapStartedAt = 0; // MP3: a player ended with nothing queued, main thread
+        private long totalGapMs = 0;
+        private long maxGapMs = 0;
 
-                Request request = new Request.Builder()
-                        .url(ELEVENLABS_URL + ELEVENLABS_VOICE_ID)
-                        .addHeader("xi-api-key", apiKey)
-                        .addHeader("Content-Type", "application/json")
-                        .addHeader("Accept", "audio/mpeg")
-                        .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
-                        .build();
+        // MP3 chain, main thread only. Finished players are reset and reused;
+        // the chain never needs more than the current one and the next.
+        private final List<MediaPlayer> players = new ArrayList<>();
+        private final ArrayDeque<MediaPlayer> idlePlayers = new ArrayDeque<>();
+        private MediaPlayer currentPlayer;
+        private MediaPlayer nextPlayer;
 
-                Response response = httpClient.newCall(request).execute();
+        ChunkPipeline(List<String> providers, boolean rawPcm, NetworkMonitor.Quality quality, String language,
+                      List<String> keys, TTSCallback callback) {
+            this.gen = generation.get();
+            this.providers = providers;
+            this.rawPcm = rawPcm;
+            this.quality = quality;
+            this.language = language;
+            this.keys = keys;
+            this.callback = callback;
+        }
 
-                DebugLogger.log("ElevenLabs response: " + response.code());
+        void add(String text) {
+            synchronized (this) {
+                chunks.add(new Chunk(chunks.size(), text));
+            }
+            schedule();
+        }
 
-                if (response.isSuccessful() && response.body() != null) {
-                    DebugLogger.log("ElevenLabs: got audio, playing...");
-                    playAudioStream(response.body().byteStream(), callback);
-                } else {
-                    String errorBody = response.body() != null ? response.body().string() : "no body";
-                    DebugLogger.error("ElevenLabs failed " + response.code() + ": " + errorBody.substring(0, Math.min(100, errorBody.length())));
-                    mainHandler.post(() -> speakWithGoogle(text, callback));
+        void finish() {
+            synchronized (this) {
+                finished = true;
+            }
+            checkComplete();
+        }
+
+        void cancel() {
+            boolean wasOpen;
+            synchronized (this) {
+                wasOpen = !closed;
+                closed = true;
+                googleChunk = null;
+                // Wakes a player or feeder still waiting for bytes
+                for (Chunk chunk : chunks) {
+                    if (chunk.source != null) chunk.source.close();
                 }
-            } catch (Exception e) {
-                DebugLogger.error("ElevenLabs exception: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-                mainHandler.post(() -> speakWithGoogle(text, callback));
             }
-        }).start();
-    }
+            if (wasOpen && rawPcm && pcmEngine != null) pcmEngine.flush();
+            mainHandler.post(this::releasePlayers);
+        }
 
-    private void playAudioStream(InputStream audioStream, TTSCallback callback) {
-        try {
-            DebugLogger.log("Saving audio to temp file...");
-            File tempFile = File.createTempFile("tts_", ".mp3", context.getCacheDir());
-            FileOutputStream fos = new FileOutputStream(tempFile);
-            byte[] buffer = new byte[4096];
-            int read;
-            int total = 0;
-            while ((read = audioStream.read(buffer)) != -1) {
-                fos.write(buffer, 0, read);
-                total += read;
+        private boolean isClosed() {
+            synchronized (this) {
+                return closed || isStale(gen);
             }
-            fos.close();
-            audioStream.close();
-            DebugLogger.log("Audio saved: " + total + " bytes");
+        }
 
-            mainHandler.post(() -> {
+        /**
+         * Start fetching chunks until the lookahead window is full.
+         */
+        private void schedule() {
+            List<Chunk> toFetch = new ArrayList<>();
+            synchronized (this) {
+                while (!closed && nextToFetch < chunks.size() && nextToFetch - nextToPlay < CHUNK_LOOKAHEAD) {
+                    toFetch.add(chunks.get(nextToFetch++));
+                }
+            }
+            for (Chunk chunk : toFetch) {
+                submit(synthesisExecutor, () -> fetch(chunk), () -> resolve(chunk, null, false, null));
+            }
+        }
+
+        private void submit(ThreadPoolExecutor executor, Runnable work, Runnable onRejected) {
+            try {
+                executor.execute(work);
+            } catch (RejectedExecutionException e) {
+                DebugLogger.error("TTS executor saturated, dropping chunk");
+                onRejected.run();
+            }
+        }
+
+        private void fetch(Chunk chunk) {
+            if (isClosed()) return;
+            for (String provider : providers) {
+                for (String key : cacheKeys(provider, language, rawPcm, quality, chunk.text)) {
+                    AudioCache.CachedAudio cached = lookupCached(provider, language, rawPcm, key);
+                    if (cached != null) {
+                        resolve(chunk, StreamingAudioSource.of(cached.data), cached.pcm, key);
+                        return;
+                    }
+                }
+            }
+            for (int attempt = 0; attempt < MAX_CHUNK_ATTEMPTS; attempt++) {
+                if (isClosed()) return;
+                String provider = providers.get(attempt % providers.size());
+                if (!health.tryAcquireTrial(provider)) continue;
+                if (attempt > 0) {
+                    synchronized (this) {
+                        retries++;
+                    }
+                    chunkRetries.incrementAndGet();
+                    DebugLogger.log("Chunk " + chunk.index + ": retry " + attempt + " via " + provider);
+                }
+                TrackedCall call = null;
+                int status = 0;
                 try {
-                    DebugLogger.log("Playing audio...");
-                    if (mediaPlayer != null) {
-                        mediaPlayer.release();
+                    Request request = buildRequest(provider, chunk.text, apiKeyFor(provider), language, rawPcm, quality);
+                    long requestedAt = SystemClock.elapsedRealtime();
+                    call = track(request, rawPcm, quality);
+                    try (Response response = call.call.execute()) {
+                        if (!response.isSuccessful() || response.body() == null) {
+                            status = response.code();
+                            throw new IOException("HTTP " + status);
+                        }
+                        awaitFirstByte(provider, response, requestedAt);
+                        String key = cacheKey(provider, language, rawPcm, quality, chunk.text);
+                        InputStream audio = cachingStream(call.counting(response.body()), key, rawPcm);
+                        byte[] buffer = new byte[8192];
+                        int read = audio.read(buffer);
+                        if (read == -1) throw new IOException("Empty audio response");
+                        StreamingAudioSource source = new StreamingAudioSource();
+                        source.write(buffer, 0, read);
+                        // Playable now; the rest streams in behind the player
+                        resolve(chunk, source, rawPcm, key);
+                        download(chunk, provider, audio, source, buffer);
+                        return;
                     }
-                    mediaPlayer = new MediaPlayer();
-                    mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
-                            .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
-                            .setUsage(AudioAttributes.USAGE_ASSISTANT)
-                            .build());
-                    mediaPlayer.setDataSource(tempFile.getAbsolutePath());
-                    mediaPlayer.setOnPreparedListener(mp -> {
-                        DebugLogger.log("MediaPlayer prepared, starting...");
-                        callback.onStart();
-                        mp.start();
-                    });
-                    mediaPlayer.setOnCompletionListener(mp -> {
-                        DebugLogger.log("Playback complete");
-                        callback.onDone();
-                        tempFile.delete();
-                    });
-                    mediaPlayer.setOnErrorListener((mp, what, extra) -> {
-                        DebugLogger.error("MediaPlayer error: " + what + "/" + extra);
-                        callback.onError("Playback error");
-                        tempFile.delete();
-                        return true;
-                    });
-                    mediaPlayer.prepareAsync();
                 } catch (Exception e) {
-                    DebugLogger.error("MediaPlayer setup: " + e.getMessage());
-                    callback.onError(e.getMessage());
-                    tempFile.delete();
+                    if (isClosed()) return;
+                    DebugLogger.error("Chunk " + chunk.index + " via " + provider + " failed: " + e.getMessage());
+                    health.recordFailure(provider, status);
+                } finally {
+                    untrack(call);
+                }
+            }
+            resolve(chunk, null, false, null);
+        }
+
+        /**
+         * Read the rest of a chunk that may already be playing. A download
+         * that breaks off now is not retried: what arrived is played, and the
+         * clip is never cached, so a replay synthesizes it again.
+         */
+        private void download(Chunk chunk, String provider, InputStream audio, StreamingAudioSource source, byte[] buffer) {
+            try {
+                int read;
+                while (!isClosed() && (read = audio.read(buffer)) != -1) {
+                    source.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                if (!isClosed()) {
+                    DebugLogger.error("Chunk " + chunk.index + " via " + provider + " broke off: " + e.getMessage());
+                    health.recordFailure(provider, 0);
+                }
+            } finally {
+                source.markComplete();
+            }
+        }
+
+        private void resolve(Chunk chunk, StreamingAudioSource source, boolean pcm, String cacheKey) {
+            synchronized (this) {
+                if (closed && source != null) source.close();
+                chunk.source = source;
+                chunk.pcm = pcm;
+                chunk.cacheKey = cacheKey;
+                chunk.resolved = true;
+            }
+            tryPlay();
+        }
+
+        /**
+         * Hand the next chunk to the player if it is ready and the player
+         * can take it.
+         */
+        private void tryPlay() {
+            Chunk chunk;
+            synchronized (this) {
+                if (closed || isStale(gen) || feeding || nextToPlay >= chunks.size()) return;
+                chunk = chunks.get(nextToPlay);
+                if (!chunk.resolved) return;
+                feeding = true;
+                nextToPlay++;
+            }
+            schedule();
+            keys.add(chunk.cacheKey != null ? chunk.cacheKey : AudioCache.UNCACHED);
+            if (chunk.source == null) {
+                synchronized (this) {
+                    googleChunk = chunk;
+                }
+                mainHandler.post(this::startGoogleChunkIfIdle);
+            } else if (chunk.pcm) {
+                feedPcm(chunk);
+            } else {
+                mainHandler.post(() -> prepareMp3(chunk));
+            }
+        }
+
+        private void releaseFeed() {
+            synchronized (this) {
+                feeding = false;
+            }
+            tryPlay();
+        }
+
+        private void feedPcm(Chunk chunk) {
+            submit(pcmFeeder, () -> {
+                long now = SystemClock.elapsedRealtime();
+                synchronized (this) {
+                    if (estimatedEnd != 0) recordGap(now - estimatedEnd);
                 }
+                // Returns once the whole chunk is queued, which may be after its
+                // download ends, so the next one follows without a gap
+                obtainPcmEngine().play(chunk.source.openInputStream(), now, new TTSCallback() {
+                    @Override public void onStart() { mainHandler.post(ChunkPipeline.this::chunkStarted); }
+                    @Override public void onDone() { mainHandler.post(() -> chunkPlayed(true)); }
+                    @Override public void onError(String error) { mainHandler.post(() -> chunkPlayed(false)); }
+                });
+                long durationMs = pcmDurationMs(chunk.source.getBufferedBytes());
+                synchronized (this) {
+                    estimatedEnd = Math.max(now, estimatedEnd) + durationMs;
+                }
+                releaseFeed();
+            }, () -> {
+                mainHandler.post(() -> chunkPlayed(false));
+                releaseFeed();
             });
-        } catch (Exception e) {
-            DebugLogger.error("playAudioStream: " + e.getMessage());
-            callback.onError(e.getMessage());
         }
-    }
 
-    private void speakWithGoogle(String text, TTSCallback callback) {
-        DebugLogger.log("Google TTS speaking...");
-        mainHandler.post(() -> {
+        private void prepareMp3(Chunk chunk) {
+            if (isClosed()) return;
+            MediaPlayer player = obtainPlayer();
             try {
-                if (!googleReady || googleTTS == null) {
-                    DebugLogger.error("Google TTS not ready");
-                    callback.onError("TTS not ready");
-                    return;
+                player.setDataSource(chunk.source);
+                player.setOnPreparedListener(this::onMp3Prepared);
+                player.setOnCompletionListener(mp -> onMp3Ended(mp, true));
+                player.setOnErrorListener((mp, what, extra) -> {
+                    DebugLogger.error("Chunk " + chunk.index + " MediaPlayer error: " + what + "/" + extra);
+                    onMp3Ended(mp, false);
+                    return true;
+                });
+                player.prepareAsync();
+            } catch (Exception e) {
+                DebugLogger.error("Chunk " + chunk.index + " MediaPlayer setup: " + e.getMessage());
+                releasePlayer(player);
+                chunkPlayed(false);
+                releaseFeed();
+            }
+        }
+
+        private void onMp3Prepared(MediaPlayer mp) {
+            if (isClosed()) return;
+            if (currentPlayer == null) {
+                if (gapStartedAt != 0) recordGap(SystemClock.elapsedRealtime() - gapStartedAt);
+                gapStartedAt = 0;
+                currentPlayer = mp;
+                mp.start();
+                chunkStarted();
+                releaseFeed();
+            } else {
+                // Starts the instant the current player ends
+                currentPlayer.setNextMediaPlayer(mp);
+                nextPlayer = mp;
+            }
+        }
+
+        private void onMp3Ended(MediaPlayer mp, boolean ok) {
+            if (isClosed()) return;
+            if (mp != currentPlayer) {
+                // Failed before it became the current player
+                if (mp == nextPlayer) {
+                    try { currentPlayer.setNextMediaPlayer(null); } catch (Exception e) {}
+                    nextPlayer = null;
                 }
-                googleTTS.speak(text, TextToSpeech.QUEUE_FLUSH, null, "voxnova");
+                releasePlayer(mp);
+                chunkPlayed(false);
+                releaseFeed();
+                return;
+            }
+            releasePlayer(mp);
+            currentPlayer = nextPlayer;
+            nextPlayer = null;
+            if (currentPlayer != null) {
+                recordGap(0);
+                releaseFeed();
+            } else {
+                gapStartedAt = SystemClock.elapsedRealtime();
+            }
+            chunkPlayed(ok);
+        }
+
+        private MediaPlayer obtainPlayer() {
+            MediaPlayer player = idlePlayers.poll();
+            if (player == null) player = new MediaPlayer();
+            player.setAudioAttributes(speechAttributes());
+            players.add(player);
+            return player;
+        }
+
+        /**
+         * Done with this player for now; reset it for the next chunk.
+         */
+        private void releasePlayer(MediaPlayer mp) {
+            players.remove(mp);
+            try {
+                mp.reset();
+                idlePlayers.add(mp);
+            } catch (Exception e) {
+                try { mp.release(); } catch (Exception ignored) {}
+            }
+        }
+
+        private void releasePlayers() {
+            players.addAll(idlePlayers);
+            idlePlayers.clear();
+            for (MediaPlayer mp : players) {
+                try { mp.release(); } catch (Exception e) {}
+            }
+            players.clear();
+            currentPlayer = null;
+            nextPlayer = null;
+        }
+
+        /**
+         * A chunk that no provider could synthesize is spoken by Google once
+         * everything before it has finished playing.
+         */
+        private void startGoogleChunkIfIdle() {
+            Chunk chunk;
+            synchronized (this) {
+                chunk = googleChunk;
+                if (chunk == null || closed || played + failed < chunk.index) return;
+                googleChunk = null;
+            }
+            DebugLogger.log("Chunk " + chunk.index + ": speaking with Google");
+            googleEngine.speak(chunk.text, prefs.getLanguageParts(), new TTSCallback() {
+                @Override public void onStart() { chunkStarted(); }
+                @Override public void onDone() { afterGoogleChunk(true); }
+                @Override public void onError(String error) { afterGoogleChunk(false); }
+            });
+        }
+
+        private void afterGoogleChunk(boolean ok) {
+            // Google speaking time is not a hand-off gap
+            long now = SystemClock.elapsedRealtime();
+            synchronized (this) {
+                estimatedEnd = now;
+            }
+            gapStartedAt = now;
+            chunkPlayed(ok);
+            releaseFeed();
+        }
+
+        private void recordGap(long gapMs) {
+            long gap = Math.max(0, gapMs);
+            synchronized (this) {
+                totalGapMs += gap;
+                maxGapMs = Math.max(maxGapMs, gap);
+            }
+        }
+
+        private void chunkStarted() {
+            if (isClosed() || firstAudioAt != 0) return;
+            firstAudioAt = SystemClock.elapsedRealtime();
+            callback.onStart();
+        }
+
+        private void chunkPlayed(boolean ok) {
+            synchronized (this) {
+                if (ok) played++;
+                else failed++;
+            }
+            startGoogleChunkIfIdle();
+            checkComplete();
+        }
+
+        private void checkComplete() {
+            synchronized (this) {
+                if (closed || !finished || played + failed < chunks.size()) return;
+                closed = true;
+            }
+            long wall = SystemClock.elapsedRealtime() - createdAt;
+            long firstAudio = firstAudioAt == 0 ? -1 : firstAudioAt - createdAt;
+            DebugLogger.log("Chunked TTS: " + chunks.size() + " chunks (" + failed + " failed, " + retries + " retries), wall "
+                    + wall + "ms, first audio " + firstAudio + "ms, gaps " + totalGapMs + "ms total/" + maxGapMs + "ms max");
+            chunkedAnswers.incrementAndGet();
+            chunksPlayed.addAndGet(played);
+            chunkGapMs.addAndGet(totalGapMs);
+            chunkMaxGapMs.accumulateAndGet(maxGapMs, Math::max);
+            releasePlayers();
+            if (played == 0 && failed > 0) {
+                callback.onError("All chunks failed");
+            } else {
+                callback.onDone();
+            }
+        }
+    }
+
+    public static String getChunkStats() {
+        long answers = chunkedAnswers.get();
+        long chunks = chunksPlayed.get();
+        return answers + " answers, " + chunks + " chunks, " + chunkRetries.get() + " retries, gaps "
+                + (chunks == 0 ? 0 : chunkGapMs.get() / chunks) + "ms avg/" + chunkMaxGapMs.get() + "ms max";
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The Cartesia key to stream with over the WebSocket, or null when the
+     * stream should use per-segment HTTP requests instead. The socket only
+     * returns raw PCM, so it requires the low-latency audio engine.
+     */
+    private String getWebSocketCartesiaKey() {
+        if (!usePcm(currentQuality())) return null;
+        String provider = prefs.getTtsProvider();
+        if (!provider.equals(PreferencesManager.TTS_PROVIDER_CARTESIA)
+                && !provider.equals(PreferencesManager.TTS_PROVIDER_AUTO)) {
+            return null;
+        }
+        String key = apiKeyFor(PreferencesManager.TTS_PROVIDER_CARTESIA);
+        if (key == null || !health.tryAcquireTrial(PreferencesManager.TTS_PROVIDER_CARTESIA)) return null;
+        return key;
+    }
+
+    /**
+     * Cache key for a provider clip; shared with the phrase bank so both
+     * resolve the same text to the same audio.
+     */
+    static String cacheKey(String provider, String language, boolean rawPcm, String text) {
+        return cacheKey(provider, language, rawPcm, NetworkMonitor.Quality.HIGH, text);
+    }
+
+    static String cacheKey(String provider, String language, boolean rawPcm, NetworkMonitor.Quality quality, String text) {
+        String voice = provider.equals(PreferencesManager.TTS_PROVIDER_ELEVENLABS) ? ELEVENLABS_VOICE_ID : CARTESIA_VOICE_ID;
+        String format;
+        if (rawPcm) {
+            format = "pcm_" + PcmAudioEngine.SAMPLE_RATE;
+        } else if (quality == NetworkMonitor.Quality.HIGH) {
+            // Original format ids, so clips cached before quality tiers still hit
+            format = provider.equals(PreferencesManager.TTS_PROVIDER_ELEVENLABS) ? "mp3" : "mp3_128k";
+        } else {
+            format = "mp3_" + mp3SampleRate(quality) + "_" + mp3Kbps(quality) + "k";
+        }
+        return AudioCache.key(provider, voice, language, format, text);
+    }
+
+    /**
+     * Keys to look a clip up under: the requested quality first, then the
+     * high-quality clip, which is free to play once it is on the device.
+     */
+    private static List<String> cacheKeys(String provider, String language, boolean rawPcm, NetworkMonitor.Quality quality, String text) {
+        List<String> keys = new ArrayList<>(2);
+        keys.add(cacheKey(provider, language, rawPcm, quality, text));
+        if (!rawPcm && quality != NetworkMonitor.Quality.HIGH) {
+            keys.add(cacheKey(provider, language, false, NetworkMonitor.Quality.HIGH, text));
+        }
+        return keys;
+    }
+
+    private static int mp3Kbps(NetworkMonitor.Quality quality) {
+        switch (quality) {
+            case LOW: return 32;
+            case STANDARD: return 64;
+            default: return 128;
+        }
+    }
+
+    private static int mp3SampleRate(NetworkMonitor.Quality quality) {
+        return quality == NetworkMonitor.Quality.LOW ? 22050 : 44100;
+    }
+
+    private static long pcmDurationMs(long bytes) {
+        return bytes * 1000 / (PcmAudioEngine.SAMPLE_RATE * 2);
+    }
+
+    private NetworkMonitor.Quality currentQuality() {
+        return network.currentQuality(prefs.isDataSaver());
+    }
+
+    /**
+     * Raw PCM is several times the size of MP3, so it is skipped on slow or
+     * data-saver links even when low-latency audio is on.
+     */
+    private boolean usePcm(NetworkMonitor.Quality quality) {
+        return prefs.isLowLatencyAudio() && quality != NetworkMonitor.Quality.LOW;
+    }
+
+    static Request buildCartesiaRequest(String text, String apiKey, String language, boolean rawPcm) throws JSONException {
+        return buildCartesiaRequest(text, apiKey, language, rawPcm, NetworkMonitor.Quality.HIGH);
+    }
+
+    static Request buildCartesiaRequest(String text, String apiKey, String language, boolean rawPcm,
+                                        NetworkMonitor.Quality quality) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("model_id", "sonic-2");
+        body.put("transcript", text);
+        body.put("language", language);
+
+        JSONObject voice = new JSONObject();
+        voice.put("mode", "id");
+        voice.put("id", CARTESIA_VOICE_ID);
+        body.put("voice", voice);
+
+        JSONObject format = new JSONObject();
+        if (rawPcm) {
+            format.put("container", "raw");
+            format.put("encoding", "pcm_s16le");
+            format.put("sample_rate", PcmAudioEngine.SAMPLE_RATE);
+        } else {
+            format.put("container", "mp3");
+            format.put("bit_rate", mp3Kbps(quality) * 1000);
+            format.put("sample_rate", mp3SampleRate(quality));
+        }
+        body.put("output_format", format);
+
+        return new Request.Builder()
+                .url(CARTESIA_URL)
+                .addHeader("X-API-Key", apiKey)
+                .addHeader("Cartesia-Version", "2024-06-10")
+                .addHeader("Content-Type", "application/json")
+                .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
+                .build();
+    }
+
+    static Request buildElevenLabsRequest(String text, String apiKey, boolean rawPcm) throws JSONException {
+        return buildElevenLabsRequest(text, apiKey, rawPcm, NetworkMonitor.Quality.HIGH);
+    }
+
+    static Request buildElevenLabsRequest(String text, String apiKey, boolean rawPcm,
+                                          NetworkMonitor.Quality quality) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("text", text);
+        body.put("model_id", "eleven_multilingual_v2");
+
+        JSONObject voiceSettings = new JSONObject();
+        voiceSettings.put("stability", 0.5);
+        voiceSettings.put("similarity_boost", 0.75);
+        body.put("voice_settings", voiceSettings);
+
+        String url = ELEVENLABS_URL + ELEVENLABS_VOICE_ID;
+        if (rawPcm) {
+            url += "?output_format=pcm_" + PcmAudioEngine.SAMPLE_RATE;
+        } else if (quality != NetworkMonitor.Quality.HIGH) {
+            url += "?output_format=mp3_" + mp3SampleRate(quality) + "_" + mp3Kbps(quality);
+        }
+
+        return new Request.Builder()
+                .url(url)
+                .addHeader("xi-api-key", apiKey)
+                .addHeader("Content-Type", "application/json")
+                .addHeader("Accept", rawPcm ? "audio/pcm" : "audio/mpeg")
+                .post(RequestBody.create(body.toString(), MediaType.get("application/json")))
+                .build();
+    }
+
+    static Request buildRequest(String provider, String text, String apiKey, String language, boolean rawPcm,
+                                NetworkMonitor.Quality quality) throws JSONException {
+        return provider.equals(PreferencesManager.TTS_PROVIDER_ELEVENLABS)
+                ? buildElevenLabsRequest(text, apiKey, rawPcm, quality)
+                : buildCartesiaRequest(text, apiKey, language, rawPcm, quality);
+    }
+
+    /**
+     * Auto mode with both providers: start the primary, and if it has not
+     * produced its first audio byte within the hedge delay, start the
+     * secondary in parallel. Whichever streams first plays; the other is
+     * cancelled. A leg that fails outright starts the other one immediately.
+     */
+    private void speakHedged(String text, String primary, String secondary, TTSCallback callback) {
+        final int gen = generation.get();
+        submitSynthesis(callback, () -> {
+            if (isStale(gen)) return;
+            NetworkMonitor.Quality quality = currentQuality();
+            boolean rawPcm = usePcm(quality);
+            String language = prefs.getTtsLanguageCode();
+            // A cached clip from either provider beats any network race
+            for (String provider : new String[]{primary, secondary}) {
+                if (playFromCache(provider, language, rawPcm, quality, text, callback)) return;
+            }
+            mainHandler.post(() -> {
+                if (isStale(gen)) return;
+                HedgeRace race = new HedgeRace(gen, text, rawPcm, quality, language, primary, secondary, callback);
+                race.start(primary);
+                long delay = hedgeDelayMs(primary);
+                DebugLogger.log("Hedge armed at " + delay + "ms");
+                mainHandler.postDelayed(race.hedgeTimer, delay);
+            });
+        });
+    }
+
+    /**
+     * Delay before firing the secondary provider: the configured value, or
+     * twice the primary's recent time-to-first-byte, clamped to a sane range.
+     */
+    private long hedgeDelayMs(String primary) {
+        int configured = prefs.getHedgeDelayMs();
+        if (configured > 0) return configured;
+        double ttfb = health.getTtfbMs(primary);
+        if (ttfb < 0) return DEFAULT_HEDGE_DELAY_MS;
+        return Math.max(MIN_HEDGE_DELAY_MS, Math.min(MAX_HEDGE_DELAY_MS, Math.round(ttfb * 2)));
+    }
+
+    /**
+     * Block until the first audio byte of a successful response is here, and
+     * record the time-to-first-byte against the provider.
+     */
+    private void awaitFirstByte(String provider, Response response, long requestedAt) throws IOException {
+        if (!response.body().source().request(1)) {
+            throw new IOException("Empty audio response");
+        }
+        health.recordSuccess(provider, SystemClock.elapsedRealtime() - requestedAt, response.code());
+    }
+
+    public static String getHedgeStats() {
+        return hedgesFired.get() + " hedges fired, " + hedgeWins.get() + " won by secondary, "
+                + hedgeLosersCancelled.get() + " duplicate calls cancelled";
+    }
+
+    private final class HedgeRace {
+        final int gen;
+        final String text;
+        final boolean rawPcm;
+        final NetworkMonitor.Quality quality;
+        final String language;
+        final String primary;
+        final String secondary;
+        final TTSCallback callback;
+        final Map<String, TrackedCall> calls = new HashMap<>();
+        final Map<String, Long> legStartedAt = new HashMap<>();
+        // Legs whose first byte has arrived, win or lose
+        final Set<String> answered = new HashSet<>();
+        final Set<String> started = new HashSet<>();
+        final Runnable hedgeTimer;
+        String winner;
+        int failures = 0;
+
+        HedgeRace(int gen, String text, boolean rawPcm, NetworkMonitor.Quality quality, String language,
+                  String primary, String secondary, TTSCallback callback) {
+            this.gen = gen;
+            this.text = text;
+            this.rawPcm = rawPcm;
+            this.quality = quality;
+            this.language = language;
+            this.primary = primary;
+            this.secondary = secondary;
+            this.callback = callback;
+            this.hedgeTimer = () -> {
+                if (isStale(gen) || isDecided()) return;
+                hedgesFired.incrementAndGet();
+                DebugLogger.log("Hedge: " + primary + " slow, starting " + secondary + " in parallel");
+                start(secondary);
+            };
+        }
+
+        private String other(String provider) {
+            return provider.equals(primary) ? secondary : primary;
+        }
+
+        synchronized boolean isDecided() {
+            return winner != null;
+        }
+
+        void start(String provider) {
+            synchronized (this) {
+                if (winner != null || !started.add(provider)) return;
+            }
+            submitSynthesis(callback, () -> runLeg(provider));
+        }
+
+        /**
+         * Returns true if this leg is the first to claim the race.
+         */
+        private boolean claim(String provider) {
+            String other = other(provider);
+            TrackedCall loser;
+            long loserWaitedMs = -1;
+            synchronized (this) {
+                if (winner != null) return false;
+                winner = provider;
+                loser = calls.get(other);
+                if (loser != null && !answered.contains(other)) {
+                    loserWaitedMs = SystemClock.elapsedRealtime() - legStartedAt.get(other);
+                }
+            }
+            mainHandler.removeCallbacks(hedgeTimer);
+            if (loser != null) {
+                loser.call.cancel();
+                hedgeLosersCancelled.incrementAndGet();
+            }
+            // Without this only wins would be measured, and a slow provider would look fast
+            if (loserWaitedMs >= 0) health.recordCensored(other, loserWaitedMs);
+            if (provider.equals(secondary) && started.size() > 1) {
+                hedgeWins.incrementAndGet();
+            }
+            return true;
+        }
+
+        private void runLeg(String provider) {
+            if (isStale(gen)) return;
+            if (!health.tryAcquireTrial(provider)) {
+                DebugLogger.log("Hedge: " + provider + " circuit trial already running, skipping");
+                legFailed(provider);
+                return;
+            }
+            TrackedCall call = null;
+            int status = 0;
+            try {
+                Request request = buildRequest(provider, text, apiKeyFor(provider), language, rawPcm, quality);
+                long requestedAt = SystemClock.elapsedRealtime();
+                call = track(request, rawPcm, quality);
+                synchronized (this) {
+                    if (winner != null) return;
+                    calls.put(provider, call);
+                    legStartedAt.put(provider, requestedAt);
+                }
+                try (Response response = call.call.execute()) {
+                    if (!response.isSuccessful() || response.body() == null) {
+                        status = response.code();
+                        throw new IOException("HTTP " + response.code());
+                    }
+                    awaitFirstByte(provider, response, requestedAt);
+                    long ttfb = SystemClock.elapsedRealtime() - requestedAt;
+                    synchronized (this) {
+                        answered.add(provider);
+                    }
+                    if (isStale(gen) || !claim(provider)) {
+                        DebugLogger.log("Hedge: " + provider + " lost after " + ttfb + "ms");
+                        return;
+                    }
+                    DebugLogger.log("Hedge: " + provider + " won, first byte after " + ttfb + "ms");
+                    String cacheKey = cacheKey(provider, language, rawPcm, quality, text);
+                    InputStream audio = call.counting(response.body());
+                    playResponse(cachingStream(audio, cacheKey, rawPcm), rawPcm, requestedAt, callback);
+                }
+            } catch (Exception e) {
+                synchronized (this) {
+                    if (isStale(gen) || (winner != null && !winner.equals(provider))) return;
+                }
+                DebugLogger.error("Hedge: " + provider + " failed - " + e.getMessage());
+                health.recordFailure(provider, status);
+                legFailed(provider);
+            } finally {
+                untrack(call);
+            }
+        }
+
+        private void legFailed(String provider) {
+            boolean otherStarted;
+            boolean allFailed;
+            synchronized (this) {
+                if (winner != null) return;
+                failures++;
+                otherStarted = started.contains(other(provider));
+                allFailed = failures >= 2;
+            }
+            if (!otherStarted) {
+                mainHandler.removeCallbacks(hedgeTimer);
+                start(other(provider));
+            } else if (allFailed) {
+                fallBackToGoogle(gen, text, callback);
+            }
+        }
+    }
+
+    private void speakWithCartesiaOnly(String text, String apiKey, TTSCallback callback) {
+        executeCartesiaRequest(text, apiKey, callback, false);
+    }
+
+    private void speakWithCartesia(String text, String apiKey, TTSCallback callback) {
+        executeCartesiaRequest(text, apiKey, callback, true);
+    }
+
+    private void executeCartesiaRequest(String text, String apiKey, TTSCallback callback, boolean allowFallback) {
+        final int gen = generation.get();
+        submitSynthesis(callback, () -> {
+            if (isStale(gen)) return;
+            TrackedCall call = null;
+            try {
+                NetworkMonitor.Quality quality = currentQuality();
+                boolean rawPcm = usePcm(quality);
+                String language = prefs.getTtsLanguageCode();
+                if (playFromCache(PreferencesManager.TTS_PROVIDER_CARTESIA, language, rawPcm, quality, text, callback)) return;
+                String cacheKey = cacheKey(PreferencesManager.TTS_PROVIDER_CARTESIA, language, rawPcm, quality, text);
+                if (!health.tryAcquireTrial(PreferencesManager.TTS_PROVIDER_CARTESIA)) {
+                    DebugLogger.log("Cartesia circuit trial already running");
+                    fallBackFromCartesia(gen, text, callback, allowFallback);
+                    return;
+                }
+
+                DebugLogger.log("Cartesia: sending request (" + (rawPcm ? "pcm" : quality.name().toLowerCase()) + ")...");
+                Request request = buildCartesiaRequest(text, apiKey, language, rawPcm, quality);
+
+                long requestedAt = SystemClock.elapsedRealtime();
+                call = track(request, rawPcm, quality);
+                try (Response response = call.call.execute()) {
+                    DebugLogger.log("Cartesia response: " + response.code());
+                    if (isStale(gen)) return;
+
+                    if (response.isSuccessful() && response.body() != null) {
+                        awaitFirstByte(PreferencesManager.TTS_PROVIDER_CARTESIA, response, requestedAt);
+                        DebugLogger.log("Cartesia: got audio, playing...");
+                        InputStream audio = call.counting(response.body());
+                        playResponse(cachingStream(audio, cacheKey, rawPcm), rawPcm, requestedAt, callback);
+                    } else {
+                        String errorBody = response.body() != null ? response.body().string() : "no body";
+                        DebugLogger.error("Cartesia failed " + response.code() + ": " + errorBody.substring(0, Math.min(100, errorBody.length())));
+                        health.recordFailure(PreferencesManager.TTS_PROVIDER_CARTESIA, response.code());
+                        fallBackFromCartesia(gen, text, callback, allowFallback);
+                    }
+                }
+            } catch (Exception e) {
+                if (isStale(gen)) {
+                    DebugLogger.log("Cartesia request cancelled");
+                    return;
+                }
+                DebugLogger.error("Cartesia exception: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+                health.recordFailure(PreferencesManager.TTS_PROVIDER_CARTESIA, 0);
+                fallBackFromCartesia(gen, text, callback, allowFallback);
+            } finally {
+                untrack(call);
+            }
+        });
+    }
+
+    private void fallBackFromCartesia(int gen, String text, TTSCallback callback, boolean allowFallback) {
+        mainHandler.post(() -> {
+            if (isStale(gen)) return;
+            if (allowFallback) {
+                String elevenLabsKey = apiKeyFor(PreferencesManager.TTS_PROVIDER_ELEVENLABS);
+                if (elevenLabsKey != null && health.isAvailable(PreferencesManager.TTS_PROVIDER_ELEVENLABS)) {
+                    speakWithElevenLabs(text, elevenLabsKey, callback);
+                } else {
+                    speakWithGoogle(text, callback);
+                }
+            } else {
+                speakWithGoogle(text, callback);
+            }
+        });
+    }
+
+    private void speakWithElevenLabsOnly(String text, String apiKey, TTSCallback callback) {
+        executeElevenLabsRequest(text, apiKey, callback);
+    }
+
+    private void speakWithElevenLabs(String text, String apiKey, TTSCallback callback) {
+        executeElevenLabsRequest(text, apiKey, callback);
+    }
+
+    private void executeElevenLabsRequest(String text, String apiKey, TTSCallback callback) {
+        final int gen = generation.get();
+        submitSynthesis(callback, () -> {
+            if (isStale(gen)) return;
+            TrackedCall call = null;
+            try {
+                NetworkMonitor.Quality quality = currentQuality();
+                boolean rawPcm = usePcm(quality);
+                String language = prefs.getTtsLanguageCode();
+                if (playFromCache(PreferencesManager.TTS_PROVIDER_ELEVENLABS, language, rawPcm, quality, text, callback)) return;
+                String cacheKey = cacheKey(PreferencesManager.TTS_PROVIDER_ELEVENLABS, language, rawPcm, quality, text);
+                if (!health.tryAcquireTrial(PreferencesManager.TTS_PROVIDER_ELEVENLABS)) {
+                    DebugLogger.log("ElevenLabs circuit trial already running");
+                    fallBackToGoogle(gen, text, callback);
+                    return;
+                }
+
+                DebugLogger.log("ElevenLabs: sending request (" + (rawPcm ? "pcm" : quality.name().toLowerCase()) + ")...");
+                Request request = buildElevenLabsRequest(text, apiKey, rawPcm, quality);
+
+                long requestedAt = SystemClock.elapsedRealtime();
+                call = track(request, rawPcm, quality);
+                try (Response response = call.call.execute()) {
+                    DebugLogger.log("ElevenLabs response: " + response.code());
+                    if (isStale(gen)) return;
+
+                    if (response.isSuccessful() && response.body() != null) {
+                        awaitFirstByte(PreferencesManager.TTS_PROVIDER_ELEVENLABS, response, requestedAt);
+                        DebugLogger.log("ElevenLabs: got audio, playing...");
+                        InputStream audio = call.counting(response.body());
+                        playResponse(cachingStream(audio, cacheKey, rawPcm), rawPcm, requestedAt, callback);
+                    } else {
+                        String errorBody = response.body() != null ? response.body().string() : "no body";
+                        DebugLogger.error("ElevenLabs failed " + response.code() + ": " + errorBody.substring(0, Math.min(100, errorBody.length())));
+                        health.recordFailure(PreferencesManager.TTS_PROVIDER_ELEVENLABS, response.code());
+                        fallBackToGoogle(gen, text, callback);
+                    }
+                }
+            } catch (Exception e) {
+                if (isStale(gen)) {
+                    DebugLogger.log("ElevenLabs request cancelled");
+                    return;
+                }
+                DebugLogger.error("ElevenLabs exception: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+                health.recordFailure(PreferencesManager.TTS_PROVIDER_ELEVENLABS, 0);
+                fallBackToGoogle(gen, text, callback);
+            } finally {
+                untrack(call);
+            }
+        });
+    }
+
+    private void fallBackToGoogle(int gen, String text, TTSCallback callback) {
+        mainHandler.post(() -> {
+            if (!isStale(gen)) speakWithGoogle(text, callback);
+        });
+    }
+
+    /**
+     * Run synthesis work on the bounded pool. When the queue is full the
+     * utterance fails fast instead of piling up threads.
+     */
+    private void submitSynthesis(TTSCallback callback, Runnable work) {
+        try {
+            synthesisExecutor.execute(work);
+        } catch (RejectedExecutionException e) {
+            DebugLogger.error("TTS executor saturated, dropping utterance");
+            callback.onError("TTS busy");
+        }
+    }
+
+    private boolean isStale(int gen) {
+        return gen != generation.get();
+    }
+
+    private TrackedCall track(Request request, boolean rawPcm, NetworkMonitor.Quality quality) {
+        TrackedCall call = new TrackedCall(httpClient.newCall(request), network, rawPcm, quality);
+        activeCalls.add(call);
+        return call;
+    }
+
+    private void untrack(TrackedCall call) {
+        if (call != null) activeCalls.remove(call);
+    }
+
+    /**
+     * Abort every in-flight provider request and account for what was saved.
+     */
+    private void cancelInFlight() {
+        for (TrackedCall call : activeCalls) {
+            if (call.call.isCanceled()) continue;
+            call.call.cancel();
+            cancelledCalls.incrementAndGet();
+            long remaining = call.remainingBytes();
+            if (remaining > 0) bytesAvoided.addAndGet(remaining);
+            bytesDiscarded.addAndGet(call.bytesRead.get());
+        }
+    }
+
+    public static String getCancellationStats() {
+        return cancelledCalls.get() + " calls cancelled, "
+                + bytesAvoided.get() / 1024 + " KB not downloaded, "
+                + bytesDiscarded.get() / 1024 + " KB partial discarded";
+    }
+
+    /**
+     * An OkHttp call plus how much of its body has been read, so cancellation
+     * can report the bytes it avoided downloading. Completed bodies also feed
+     * the network monitor with throughput and bytes per spoken second.
+     */
+    private static final class TrackedCall {
+        // Past this, PCM playback back-pressure throttles reads below link speed
+        private static final long THROUGHPUT_SAMPLE_BYTES = 48 * 1024;
+
+        final Call call;
+        final AtomicLong bytesRead = new AtomicLong();
+        volatile long contentLength = -1;
+        private final NetworkMonitor network;
+        private final boolean rawPcm;
+        private final NetworkMonitor.Quality quality;
+        private long bodyStartedAt;
+        private boolean throughputSampled = false;
+
+        TrackedCall(Call call, NetworkMonitor network, boolean rawPcm, NetworkMonitor.Quality quality) {
+            this.call = call;
+            this.network = network;
+            this.rawPcm = rawPcm;
+            this.quality = quality;
+        }
+
+        InputStream counting(ResponseBody body) {
+            contentLength = body.contentLength();
+            bodyStartedAt = SystemClock.elapsedRealtime();
+            return new FilterInputStream(body.byteStream()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    onRead(b == -1 ? -1 : 1);
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = super.read(buffer, offset, length);
+                    onRead(n);
+                    return n;
+                }
+            };
+        }
+
+        private void onRead(int n) {
+            if (n > 0) {
+                long total = bytesRead.addAndGet(n);
+                if (!throughputSampled && total >= THROUGHPUT_SAMPLE_BYTES) sampleThroughput(total);
+                return;
+            }
+            if (n != -1) return;
+            long total = bytesRead.get();
+            if (!throughputSampled) sampleThroughput(total);
+            long durationMs = rawPcm ? pcmDurationMs(total) : total * 8 / mp3Kbps(quality);
+            network.recordAudio(quality, total, durationMs);
+        }
+
+        private void sampleThroughput(long total) {
+            throughputSampled = true;
+            network.recordThroughput(total, SystemClock.elapsedRealtime() - bodyStartedAt);
+        }
+
+        long remainingBytes() {
+            return contentLength < 0 ? 0 : contentLength - bytesRead.get();
+        }
+    }
+
+    private InputStream cachingStream(InputStream in, String cacheKey, boolean rawPcm) {
+        return new CachingInputStream(in, data -> audioCache.put(cacheKey, data, rawPcm));
+    }
+
+    /**
+     * Play a clip from the phrase bank or the audio cache. Returns false on a miss.
+     * Called on a synthesis thread since the lookup may read from disk.
+     */
+    private boolean playFromCache(String provider, String language, boolean rawPcm, NetworkMonitor.Quality quality,
+                                  String text, TTSCallback callback) {
+        for (String cacheKey : cacheKeys(provider, language, rawPcm, quality, text)) {
+            AudioCache.CachedAudio cached = lookupCached(provider, language, rawPcm, cacheKey);
+            if (cached == null) continue;
+            playCached(cached, callback);
+            return true;
+        }
+        return false;
+    }
+
+    private AudioCache.CachedAudio lookupCached(String provider, String language, boolean rawPcm, String cacheKey) {
+        AudioCache.CachedAudio cached = phraseBank.get(provider, language, rawPcm, cacheKey);
+        if (cached != null) {
+            DebugLogger.log("TTS phrase bank hit: " + cached.data.length + " bytes");
+            return cached;
+        }
+        cached = audioCache.get(cacheKey);
+        if (cached != null) DebugLogger.log("TTS cache hit: " + cached.data.length + " bytes");
+        return cached;
+    }
+
+    private void playCached(AudioCache.CachedAudio cached, TTSCallback callback) {
+        long now = SystemClock.elapsedRealtime();
+        if (cached.pcm) {
+            obtainPcmEngine().play(new ByteArrayInputStream(cached.data), now, callback);
+        } else {
+            startPlayback(StreamingAudioSource.of(cached.data), now, callback);
+        }
+    }
+
+    /**
+     * Speak a fixed prompt only if it is already rendered locally (phrase bank
+     * or cache). Never goes to the network, so it is safe on error paths.
+     * A stream opened while the prompt plays starts speaking after it.
+     */
+    public void speakPrompt(String text) {
+        speakPrompt(text, null);
+    }
+
+    /**
+     * Same, telling the listener on the main thread when the prompt starts
+     * and when it is over: finished, not available locally, or flushed by
+     * stop(). A prompt replaced by a newer one before it ends does not
+     * report back.
+     */
+    public void speakPrompt(String text, TTSCallback listener) {
+        String provider = PhraseBank.resolveProvider(prefs);
+        if (provider == null) {
+            if (listener != null) listener.onDone();
+            return;
+        }
+        String language = prefs.getTtsLanguageCode();
+        boolean rawPcm = prefs.isLowLatencyAudio();
+        String cacheKey = cacheKey(provider, language, rawPcm, text);
+        final Object prompt = new Object();
+        pendingPrompt = prompt;
+        promptListener = listener;
+        TTSCallback promptCallback = new TTSCallback() {
+            @Override public void onStart() {
+                if (listener == null) return;
+                mainHandler.post(() -> {
+                    if (pendingPrompt == prompt) listener.onStart();
+                });
+            }
+            @Override public void onDone() {
+                mainHandler.post(() -> promptFinished(prompt));
+            }
+            @Override public void onError(String error) {
+                DebugLogger.error("Prompt playback: " + error);
+                mainHandler.post(() -> promptFinished(prompt));
+            }
+        };
+        submitSynthesis(promptCallback, () -> {
+            AudioCache.CachedAudio cached = phraseBank.get(provider, language, rawPcm, cacheKey);
+            if (cached == null && audioCache.contains(cacheKey)) cached = audioCache.get(cacheKey);
+            if (cached == null) {
+                mainHandler.post(() -> promptFinished(prompt));
+                return;
+            }
+            DebugLogger.log("Prompt from phrase bank: " + text);
+            playCached(cached, promptCallback);
+        });
+    }
+
+    private void promptFinished(Object prompt) {
+        if (pendingPrompt != prompt) return;
+        TTSCallback listener = promptListener;
+        pendingPrompt = null;
+        promptListener = null;
+        if (listener != null) listener.onDone();
+        if (activeStream != null) activeStream.release();
+    }
+
+    public boolean hasLastAnswer() {
+        return !audioCache.getLastAnswerText().isEmpty();
+    }
+
+    public String getLastAnswerText() {
+        return audioCache.getLastAnswerText();
+    }
+
+    /**
+     * Cache keys of the clips the last answer was spoken with, one per
+     * segment in order; AudioCache.UNCACHED where a segment was not cached.
+     */
+    public List<String> getLastAnswerKeys() {
+        return audioCache.getLastAnswerKeys();
+    }
+
+    /**
+     * Replay the last spoken answer from the cache without touching the
+     * network. Falls back to synthesizing it again if the audio was evicted.
+     */
+    public void repeatLast(TTSCallback callback) {
+        String text = audioCache.getLastAnswerText();
+        if (text.isEmpty()) {
+            callback.onError("Nothing to repeat");
+            return;
+        }
+        playAnswer(text, audioCache.getLastAnswerKeys(), callback);
+    }
+
+    /**
+     * Speak an answer whose clips are already in the audio cache under these
+     * keys. It becomes the last answer; if any segment was never cached or
+     * its clip is gone, the text is synthesized again.
+     */
+    public void playAnswer(String text, List<String> keys, TTSCallback callback) {
+        audioCache.setLastAnswer(keys, text);
+        final int gen = generation.get();
+        submitSynthesis(callback, () -> {
+            List<AudioCache.CachedAudio> clips = new ArrayList<>();
+            for (String key : keys) {
+                AudioCache.CachedAudio cached = key.equals(AudioCache.UNCACHED) ? null : audioCache.get(key);
+                if (cached == null) {
+                    clips = null;
+                    break;
+                }
+                clips.add(cached);
+            }
+            if (clips == null || clips.isEmpty()) {
+                DebugLogger.log("Repeat: audio not cached, synthesizing again");
+                mainHandler.post(() -> {
+                    if (isStale(gen)) return;
+                    SpeechStream stream = openStream(callback);
+                    stream.append(text);
+                    stream.finish();
+                });
+                return;
+            }
+            DebugLogger.log("Repeat: replaying " + clips.size() + " clips from cache");
+            playClipSequence(gen, clips, 0, callback);
+        });
+    }
+
+    /**
+     * Synthesize an answer into the audio cache without playing it, split
+     * into segments the way a spoken answer is. Segments go through the
+     * synthesis pool one task at a time, so a background render never holds
+     * a thread across segments. On success the callback gets one clip key
+     * per segment, in order, on the main thread; it is not called if only
+     * Google TTS is available or a segment could not be synthesized.
+     */
+    public void prerender(String text, PrerenderCallback callback) {
+        List<String> providers = chunkProviders();
+        if (providers.isEmpty()) return;
+        String language = prefs.getTtsLanguageCode();
+        SpeechTextNormalizer normalizer = new SpeechTextNormalizer(language);
+        SentenceSegmenter segmenter = new SentenceSegmenter(language);
+        normalizer.append(text);
+        normalizer.flush();
+        List<String> segments = new ArrayList<>();
+        for (String segment : segmenter.append(normalizer.takeSpeech())) {
+            if (!segment.trim().isEmpty()) segments.add(segment);
+        }
+        String rest = segmenter.flush();
+        if (!rest.trim().isEmpty()) segments.add(rest);
+        if (segments.isEmpty()) return;
+        NetworkMonitor.Quality quality = currentQuality();
+        new Prerender(segments, providers, language, usePcm(quality), quality, callback).next();
+    }
+
+    private final class Prerender {
+        final List<String> segments;
+        final List<String> providers;
+        final String language;
+        final boolean rawPcm;
+        final NetworkMonitor.Quality quality;
+        final PrerenderCallback callback;
+        final List<String> keys = new ArrayList<>();
+
+        Prerender(List<String> segments, List<String> providers, String language, boolean rawPcm,
+                  NetworkMonitor.Quality quality, PrerenderCallback callback) {
+            this.segments = segments;
+            this.providers = providers;
+            this.language = language;
+            this.rawPcm = rawPcm;
+            this.quality = quality;
+            this.callback = callback;
+        }
+
+        void next() {
+            try {
+                synthesisExecutor.execute(this::renderNext);
+            } catch (RejectedExecutionException e) {
+                DebugLogger.error("TTS executor saturated, dropping prerender");
+            }
+        }
+
+        private void renderNext() {
+            String key = render(segments.get(keys.size()));
+            if (key == null) return;
+            keys.add(key);
+            if (keys.size() < segments.size()) {
+                next();
+                return;
+            }
+            List<String> rendered = new ArrayList<>(keys);
+            mainHandler.post(() -> callback.onRendered(rendered));
+        }
+
+        /**
+         * The key the segment's clip is cached under, or null if no provider
+         * could synthesize it.
+         */
+        private String render(String segment) {
+            for (String provider : providers) {
+                for (String key : cacheKeys(provider, language, rawPcm, quality, segment)) {
+                    if (audioCache.contains(key)) return key;
+                }
+            }
+            for (String provider : providers) {
+                byte[] data = synthesizeClip(provider, segment, language, rawPcm, quality);
+                if (data == null) continue;
+                String key = cacheKey(provider, language, rawPcm, quality, segment);
+                audioCache.put(key, data, rawPcm);
+                return key;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Queue a fixed phrase for the phrase bank on the synthesis pool, at full
+     * quality. The callback runs on the pool thread.
+     */
+    @Override
+    public boolean synthesizePhrase(String provider, String text, String language, boolean rawPcm,
+                                    PhraseBank.ClipCallback callback) {
+        try {
+            synthesisExecutor.execute(() ->
+                    callback.onClip(synthesizeClip(provider, text, language, rawPcm, NetworkMonitor.Quality.HIGH)));
+            return true;
+        } catch (RejectedExecutionException e) {
+            DebugLogger.error("TTS executor saturated, dropping phrase render");
+            return false;
+        }
+    }
+
+    /**
+     * Synthesize a whole clip nobody is waiting on, gated on and reported to
+     * the provider's health. Null if the circuit is open or the request
+     * failed. Blocks; call on the synthesis pool.
+     */
+    private byte[] synthesizeClip(String provider, String text, String language, boolean rawPcm,
+                                  NetworkMonitor.Quality quality) {
+        if (!health.tryAcquireTrial(provider)) return null;
+        int status = 0;
+        try {
+            Request request = buildRequest(provider, text, apiKeyFor(provider), language, rawPcm, quality);
+            long requestedAt = SystemClock.elapsedRealtime();
+            // Not registered with stop(): the render outlives the turn that asked for it
+            TrackedCall call = new TrackedCall(httpClient.newCall(request), network, rawPcm, quality);
+            try (Response response = call.call.execute()) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    status = response.code();
+                    throw new IOException("HTTP " + status);
+                }
+                awaitFirstByte(provider, response, requestedAt);
+                return readFully(call.counting(response.body()));
+            }
+        } catch (Exception e) {
+            DebugLogger.error("Background synthesis via " + provider + " failed: " + e.getMessage());
+            // Cut off by shutdown(), not the provider's fault
+            if (!synthesisExecutor.isShutdown()) health.recordFailure(provider, status);
+            return null;
+        }
+    }
+
+    private void playClipSequence(int gen, List<AudioCache.CachedAudio> clips, int index, TTSCallback callback) {
+        if (isStale(gen)) return;
+        playCached(clips.get(index), new TTSCallback() {
+            @Override public void onStart() {
+                if (index == 0) callback.onStart();
+            }
+            @Override public void onDone() {
+                if (index + 1 < clips.size()) {
+                    submitSynthesis(callback, () -> playClipSequence(gen, clips, index + 1, callback));
+                } else {
+                    callback.onDone();
+                }
+            }
+            @Override public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    private void playResponse(InputStream audioStream, boolean rawPcm, long requestedAt, TTSCallback callback) {
+        if (rawPcm) {
+            obtainPcmEngine().play(audioStream, requestedAt, callback);
+        } else {
+            playAudioStream(audioStream, requestedAt, callback);
+        }
+    }
+
+    private synchronized PcmAudioEngine obtainPcmEngine() {
+        if (pcmEngine == null) {
+            pcmEngine = new PcmAudioEngine();
+        }
+        return pcmEngine;
+    }
+
+    private void playAudioStream(InputStream audioStream, long requestedAt, TTSCallback callback) {
+        StreamingAudioSource source = new StreamingAudioSource();
+        boolean playbackStarted = false;
+        int total = 0;
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = audioStream.read(buffer)) != -1) {
+                source.write(buffer, 0, read);
+                total += read;
+                if (!playbackStarted && total >= PLAYBACK_START_THRESHOLD_BYTES) {
+                    playbackStarted = true;
+                    startPlayback(source, requestedAt, callback);
+                }
+            }
+            DebugLogger.log("Audio downloaded: " + total + " bytes");
+        } catch (Exception e) {
+            DebugLogger.error("playAudioStream: " + e.getMessage());
+            if (!playbackStarted) {
+                source.close();
+                callback.onError(e.getMessage());
+                return;
+            }
+            // Play whatever arrived before the stream broke
+        } finally {
+            source.markComplete();
+            try { audioStream.close(); } catch (Exception e) {}
+        }
+
+        if (!playbackStarted) {
+            if (total == 0) {
+                callback.onError("Empty audio response");
+                return;
+            }
+            // Short clip: the whole response fit under the start threshold
+            startPlayback(source, requestedAt, callback);
+        }
+    }
+
+    /**
+     * Start the shared MediaPlayer on a source that may still be downloading.
+     */
+    private void startPlayback(StreamingAudioSource source, long requestedAt, TTSCallback callback) {
+        final int gen = generation.get();
+        mainHandler.post(() -> {
+            if (isStale(gen)) {
+                source.close();
+                return;
+            }
+            try {
+                MediaPlayer player = obtainMediaPlayer();
+                player.setDataSource(source);
+                player.setOnPreparedListener(mp -> {
+                    DebugLogger.log("TTS first audio: " + (SystemClock.elapsedRealtime() - requestedAt)
+                            + "ms after request, " + source.getBufferedBytes() + " bytes buffered");
+                    callback.onStart();
+                    mp.start();
+                });
+                player.setOnCompletionListener(mp -> {
+                    DebugLogger.log("Playback complete");
+                    callback.onDone();
+                });
+                player.setOnErrorListener((mp, what, extra) -> {
+                    DebugLogger.error("MediaPlayer error: " + what + "/" + extra);
+                    callback.onError("Playback error");
+                    return true;
+                });
+                player.prepareAsync();
+            } catch (Exception e) {
+                DebugLogger.error("MediaPlayer setup: " + e.getMessage());
+                source.close();
+                callback.onError(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reuse one MediaPlayer across utterances; reset() is much cheaper than
+     * releasing and re-creating the native player each time.
+     */
+    private MediaPlayer obtainMediaPlayer() {
+        if (mediaPlayer == null) {
+            mediaPlayer = new MediaPlayer();
+        } else {
+            mediaPlayer.reset();
+        }
+        mediaPlayer.setAudioAttributes(speechAttributes());
+        return mediaPlayer;
+    }
+
+    private static synchronized AudioAttributes speechAttributes() {
+        if (speechAttributes == null) {
+            speechAttributes = new AudioAttributes.Builder()
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .setUsage(AudioAttributes.USAGE_ASSISTANT)
+                    .build();
+        }
+        return speechAttributes;
+    }
+
+    private void speakWithGoogle(String text, TTSCallback callback) {
+        DebugLogger.log("Google TTS speaking...");
+        mainHandler.post(() -> {
+            try {
+                googleEngine.speak(text, prefs.getLanguageParts(), callback);
             } catch (Exception e) {
                 DebugLogger.error("Google TTS speak: " + e.getMessage());
                 callback.onError(e.getMessage());
@@ -342,14 +2193,35 @@ public class TTSManager {
         });
     }
 
+    /**
+     * Stop speaking and abandon all pending synthesis: in-flight provider
+     * calls are cancelled, fallback chains and queued work see a new
+     * generation and bail out, and partially downloaded audio is discarded.
+     */
     public void stop() {
-        try { if (mediaPlayer != null) mediaPlayer.stop(); } catch (Exception e) {}
-        try { if (googleTTS != null) googleTTS.stop(); } catch (Exception e) {}
+        generation.incrementAndGet();
+        // A flushed prompt never reports back from playback, so tell its listener here
+        TTSCallback flushedPrompt = promptListener;
+        pendingPrompt = null;
+        promptListener = null;
+        cancelInFlight();
+        if (activeStream != null) activeStream.cancel();
+        if (spokenStream != null) spokenStream.cancel();
+        try { if (mediaPlayer != null) mediaPlayer.reset(); } catch (Exception e) {}
+        if (pcmEngine != null) pcmEngine.flush();
+        googleEngine.stop();
+        if (flushedPrompt != null) flushedPrompt.onDone();
+        DebugLogger.log("TTS stopped: " + getCancellationStats());
     }
 
     public void shutdown() {
         stop();
+        synthesisExecutor.shutdownNow();
+        // Let pending cache writes finish; they don't touch the session
+        cacheWriter.shutdown();
+        pcmFeeder.shutdownNow();
         try { if (mediaPlayer != null) { mediaPlayer.release(); mediaPlayer = null; } } catch (Exception e) {}
-        try { if (googleTTS != null) { googleTTS.shutdown(); googleTTS = null; } } catch (Exception e) {}
+        if (pcmEngine != null) { pcmEngine.release(); pcmEngine = null; }
+        // The Google engine is process-wide and outlives the session
     }
 }
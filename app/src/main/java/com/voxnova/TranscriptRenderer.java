@@ -0,0 +1,194 @@
+package com.voxnova;
+
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Puts transcript text on screen at most once per display frame.
+ *
+ * Any thread may hand over a new full text, or a piece to append; pieces are
+ * gathered and only the latest full text is kept until the next vsync. A
+ * streamed answer is fed as pieces, so no update costs more than its own
+ * length, and the scroll to the bottom is requested once per frame rather
+ * than once per update. Main-thread time spent rendering each streamed
+ * answer is measured.
+ */
+public class TranscriptRenderer implements Choreographer.FrameCallback {
+    private static final AtomicLong answers = new AtomicLong();
+    private static final AtomicLong updatesTotal = new AtomicLong();
+    private static final AtomicLong framesTotal = new AtomicLong();
+    private static final AtomicLong renderNanosTotal = new AtomicLong();
+    private static final AtomicLong renderNanosMax = new AtomicLong();
+
+    private final TextView textView;
+    private final ScrollView scrollView;
+    private final Choreographer choreographer;
+    private final Runnable scrollToBottom;
+
+    // Guarded by this
+    private String pending;
+    private final StringBuilder pendingTail = new StringBuilder();
+    // The first piece of an answer replaces what is shown
+    private boolean answerFresh = false;
+    private boolean frameScheduled = false;
+
+    // Main thread only
+    private final StringBuilder shown = new StringBuilder();
+    private boolean measuring = false;
+    private boolean answerEnding = false;
+    private int updates;
+    private int frames;
+    private long renderNanos;
+    private long maxFrameNanos;
+
+    /**
+     * Must be created on the main thread.
+     */
+    public TranscriptRenderer(TextView textView, ScrollView scrollView) {
+        this.textView = textView;
+        this.scrollView = scrollView;
+        this.choreographer = Choreographer.getInstance();
+        this.scrollToBottom = () -> {
+            if (scrollView != null) scrollView.fullScroll(View.FOCUS_DOWN);
+        };
+        textView.setText("", TextView.BufferType.EDITABLE);
+    }
+
+    /**
+     * Show this text from the next frame on. Safe from any thread.
+     */
+    public void setText(String text) {
+        synchronized (this) {
+            pending = text == null ? "" : text;
+            pendingTail.setLength(0);
+            answerFresh = false;
+            updates++;
+            if (frameScheduled) return;
+            frameScheduled = true;
+        }
+        choreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Add this text to the end of what is shown, from the next frame on.
+     * Safe from any thread.
+     */
+    public void appendText(String delta) {
+        if (delta == null || delta.isEmpty()) return;
+        synchronized (this) {
+            if (answerFresh) {
+                pending = "";
+                answerFresh = false;
+            }
+            pendingTail.append(delta);
+            updates++;
+            if (frameScheduled) return;
+            frameScheduled = true;
+        }
+        choreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Start measuring a streamed answer. Main thread.
+     */
+    public void beginAnswer() {
+        measuring = true;
+        answerEnding = false;
+        synchronized (this) {
+            updates = 0;
+            answerFresh = true;
+        }
+        frames = 0;
+        renderNanos = 0;
+        maxFrameNanos = 0;
+    }
+
+    /**
+     * The answer is complete; its numbers are logged after the frame that
+     * draws its last text. Main thread.
+     */
+    public void endAnswer() {
+        if (!measuring) return;
+        answerEnding = true;
+        synchronized (this) {
+            if (frameScheduled) return;
+            frameScheduled = true;
+        }
+        choreographer.postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        String text;
+        String tail;
+        int frameUpdates;
+        synchronized (this) {
+            text = pending;
+            pending = null;
+            tail = pendingTail.length() == 0 ? null : pendingTail.toString();
+            pendingTail.setLength(0);
+            frameScheduled = false;
+            frameUpdates = updates;
+        }
+        if (text != null || tail != null) {
+            long start = System.nanoTime();
+            if (text != null) render(text);
+            if (tail != null) renderTail(tail);
+            long spent = System.nanoTime() - start;
+            if (measuring) {
+                frames++;
+                renderNanos += spent;
+                maxFrameNanos = Math.max(maxFrameNanos, spent);
+            }
+        }
+        if (measuring && answerEnding) {
+            measuring = false;
+            answerEnding = false;
+            answers.incrementAndGet();
+            updatesTotal.addAndGet(frameUpdates);
+            framesTotal.addAndGet(frames);
+            renderNanosTotal.addAndGet(renderNanos);
+            renderNanosMax.accumulateAndGet(maxFrameNanos, Math::max);
+            DebugLogger.log("Transcript: " + frameUpdates + " updates in " + frames + " frames, "
+                    + renderNanos / 1000 + "us on main thread (max " + maxFrameNanos / 1000 + "us per frame)");
+        }
+    }
+
+    private void render(String text) {
+        if (text.contentEquals(shown)) return;
+        if (shown.length() > 0 && text.length() > shown.length() && text.startsWith(shown.toString())) {
+            renderTail(text.substring(shown.length()));
+            return;
+        }
+        textView.setText(text, TextView.BufferType.EDITABLE);
+        shown.setLength(0);
+        shown.append(text);
+        scrollToEnd();
+    }
+
+    private void renderTail(String tail) {
+        textView.append(tail);
+        shown.append(tail);
+        scrollToEnd();
+    }
+
+    private void scrollToEnd() {
+        if (scrollView != null) {
+            // After this frame's layout, so the new height is known
+            scrollView.removeCallbacks(scrollToBottom);
+            scrollView.post(scrollToBottom);
+        }
+    }
+
+    public static String getStats() {
+        long count = answers.get();
+        if (count == 0) return "no streamed answers yet";
+        return count + " answers, " + updatesTotal.get() / count + " updates in "
+                + framesTotal.get() / count + " frames each, " + renderNanosTotal.get() / count / 1000
+                + "us main thread each (max frame " + renderNanosMax.get() / 1000 + "us)";
+    }
+}
@@ -0,0 +1,162 @@
+package com.voxnova;
+
+import android.os.SystemClock;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns of a voice session and the phases each one goes through.
+ *
+ * Every turn gets an id; starting a turn supersedes the previous one, and a
+ * callback holding an old id is dropped with a single comparison. Within a
+ * turn phases may overlap, but only in the combinations listed in
+ * {@link #OVERLAPS}: listening while the gateway connects, synthesizing
+ * while the answer is still generating. Any other transition is refused.
+ * Phase start and end times are
+ * recorded at each transition and summarised when the turn ends.
+ */
+public class TurnStateMachine {
+    public enum Phase {
+        LISTENING, CONNECTING, GENERATING, SPEAKING, COMMANDS, RESETTING
+    }
+
+    /** Phases that may already be active when the key phase is entered. */
+    private static final Map<Phase, EnumSet<Phase>> OVERLAPS = new EnumMap<>(Phase.class);
+    static {
+        OVERLAPS.put(Phase.LISTENING, EnumSet.of(Phase.CONNECTING));
+        OVERLAPS.put(Phase.CONNECTING, EnumSet.of(Phase.LISTENING, Phase.GENERATING));
+        // A speculative request generates while the user is still being heard
+        OVERLAPS.put(Phase.GENERATING, EnumSet.of(Phase.CONNECTING, Phase.LISTENING));
+        OVERLAPS.put(Phase.SPEAKING, EnumSet.of(Phase.GENERATING));
+        OVERLAPS.put(Phase.COMMANDS, EnumSet.noneOf(Phase.class));
+        OVERLAPS.put(Phase.RESETTING, EnumSet.noneOf(Phase.class));
+    }
+
+    private static final AtomicLong turnsEnded = new AtomicLong();
+    private static final AtomicLong turnsSuperseded = new AtomicLong();
+    private static final AtomicLong staleDropped = new AtomicLong();
+    private static final AtomicLong illegalTransitions = new AtomicLong();
+    private static final long[] phaseMsTotal = new long[Phase.values().length];
+    private static final long[] phaseCount = new long[Phase.values().length];
+
+    private volatile int currentId = 0;
+    private long startedAt;
+    private boolean running;
+    private final EnumSet<Phase> active = EnumSet.noneOf(Phase.class);
+    private final EnumSet<Phase> entered = EnumSet.noneOf(Phase.class);
+    private final long[] enteredAt = new long[Phase.values().length];
+    private final long[] exitedAt = new long[Phase.values().length];
+
+    /**
+     * Start a new turn, superseding the current one if it hasn't ended.
+     */
+    public synchronized int begin() {
+        if (running) {
+            turnsSuperseded.incrementAndGet();
+            finishTurn("superseded");
+        }
+        currentId++;
+        startedAt = SystemClock.elapsedRealtime();
+        running = true;
+        active.clear();
+        entered.clear();
+        for (int i = 0; i < enteredAt.length; i++) {
+            enteredAt[i] = 0;
+            exitedAt[i] = 0;
+        }
+        return currentId;
+    }
+
+    public int currentId() {
+        return currentId;
+    }
+
+    /**
+     * Whether a callback belonging to turnId should still act. Counts the
+     * ones that shouldn't.
+     */
+    public boolean isCurrent(int turnId) {
+        if (turnId == currentId && turnId != 0) return true;
+        staleDropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Enter a phase of the current turn. Returns false, leaving the turn as
+     * it was, if the turn is stale or over, or if the phase may not overlap
+     * one that is active. Entering an active phase again is a no-op.
+     */
+    public synchronized boolean enter(int turnId, Phase phase) {
+        if (turnId != currentId || !running) return false;
+        if (active.contains(phase)) return true;
+        EnumSet<Phase> others = EnumSet.copyOf(active);
+        others.removeAll(OVERLAPS.get(phase));
+        if (!others.isEmpty()) {
+            illegalTransitions.incrementAndGet();
+            DebugLogger.error("Turn " + turnId + ": " + phase + " refused during " + others);
+            return false;
+        }
+        active.add(phase);
+        entered.add(phase);
+        enteredAt[phase.ordinal()] = SystemClock.elapsedRealtime();
+        return true;
+    }
+
+    public synchronized void exit(int turnId, Phase phase) {
+        if (turnId != currentId || !active.remove(phase)) return;
+        long now = SystemClock.elapsedRealtime();
+        exitedAt[phase.ordinal()] = now;
+        synchronized (TurnStateMachine.class) {
+            phaseMsTotal[phase.ordinal()] += now - enteredAt[phase.ordinal()];
+            phaseCount[phase.ordinal()]++;
+        }
+    }
+
+    public synchronized boolean isActive(int turnId, Phase phase) {
+        return turnId == currentId && active.contains(phase);
+    }
+
+    /**
+     * The turn is over: its timing is logged and no further phases are
+     * recorded for it. Its id stays current until the next begin().
+     */
+    public synchronized void end(int turnId, String outcome) {
+        if (turnId != currentId || !running) return;
+        turnsEnded.incrementAndGet();
+        finishTurn(outcome);
+        running = false;
+    }
+
+    private void finishTurn(String outcome) {
+        long now = SystemClock.elapsedRealtime();
+        StringBuilder sb = new StringBuilder("Turn ").append(currentId).append(" ").append(outcome)
+                .append(" after ").append(now - startedAt).append("ms:");
+        for (Phase phase : entered) {
+            long exited = active.contains(phase) ? now : exitedAt[phase.ordinal()];
+            sb.append(" ").append(phase.name().toLowerCase())
+                    .append(" ").append(enteredAt[phase.ordinal()] - startedAt).append("-").append(exited - startedAt);
+        }
+        DebugLogger.log(sb.toString());
+        active.clear();
+    }
+
+    public static String getStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(turnsEnded.get()).append(" turns, ").append(turnsSuperseded.get()).append(" superseded, ")
+                .append(staleDropped.get()).append(" stale callbacks dropped");
+        if (illegalTransitions.get() > 0) sb.append(", ").append(illegalTransitions.get()).append(" bad transitions");
+        synchronized (TurnStateMachine.class) {
+            for (Phase phase : Phase.values()) {
+                long count = phaseCount[phase.ordinal()];
+                if (count > 0) {
+                    sb.append(", ").append(phase.name().toLowerCase()).append(" avg ")
+                            .append(phaseMsTotal[phase.ordinal()] / count).append("ms");
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -19,6 +19,10 @@ public class VoxNovaVoiceInteractionService extends VoiceInteractionService {
         super.onReady();
         Log.d(TAG, "VoiceInteractionService ready");
         DebugLogger.log("VoiceInteractionService READY");
+        // Bind the fallback TTS engine now so no session pays for it
+        GoogleTtsEngine.getInstance(this).warmUp();
+        EarconBank.getInstance(this).prepare();
+        RecognizerHolder.getInstance(this).prewarm();
     }
 
     @Override
@@ -26,6 +30,9 @@ public class VoxNovaVoiceInteractionService extends VoiceInteractionService {
         super.onShutdown();
         Log.d(TAG, "VoiceInteractionService shutdown");
         DebugLogger.log("VoiceInteractionService SHUTDOWN");
+        GoogleTtsEngine.getInstance(this).shutdown();
+        EarconBank.getInstance(this).release();
+        RecognizerHolder.getInstance(this).release();
         DebugLogger.closeRemote();
     }
 }
@@ -2,9 +2,12 @@ package com.voxnova;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.service.voice.VoiceInteractionSession;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
@@ -12,13 +15,17 @@ import android.speech.SpeechRecognizer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
 
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
 
@@ -42,22 +49,85 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
         }
     }
 
+    // Fixed prompts; pre-rendered by PhraseBank so they play without network
+    private static final int[] PROMPTS = {
+            R.string.prompt_not_configured, R.string.prompt_recognition_unavailable,
+            R.string.prompt_not_recognized, R.string.prompt_reset_done
+    };
+    // Filler cue while the answer has not started playing
+    private static final long FILLER_DELAY_MS = 1500;
+    private static final long FILLER_REPEAT_MS = 2500;
+    private static final AtomicLong conversations = new AtomicLong();
+    private static final AtomicLong followUpTurns = new AtomicLong();
+    private static final AtomicLong followUpReadyMsTotal = new AtomicLong();
+    private static final int[] STT_ERROR_CODES = {
+            SpeechRecognizer.ERROR_AUDIO, SpeechRecognizer.ERROR_CLIENT,
+            SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS, SpeechRecognizer.ERROR_NETWORK,
+            SpeechRecognizer.ERROR_NO_MATCH, SpeechRecognizer.ERROR_SPEECH_TIMEOUT
+    };
+
     private final Context context;
     private final Handler mainHandler;
     private PreferencesManager prefs;
-    private SpeechRecognizer speechRecognizer;
+    // Strings in the voice's language, for anything spoken
+    private Resources promptRes;
+    private RecognizerHolder recognizer;
     private ClawdbotClient clawdbotClient;
     private TTSManager ttsManager;
+    private BargeInDetector bargeInDetector;
+    private EarconBank earcons;
+    private AdaptiveEndpointer endpointer;
+    private IntentRouter router;
+    private QuickCommandRegistry commandRegistry;
+    private QuickAnswerCache quickAnswers;
 
     private View contentView;
     private ImageView statusIcon;
     private TextView txtStatusLabel;
     private TextView txtTranscript;
     private ScrollView transcriptScrollView;
-    private ScrollView commandsScrollView;
-    private LinearLayout commandsPanel;
+    private View btnQuickCommands;
+    private RecyclerView commandsList;
+    private QuickCommandAdapter commandsAdapter;
+    private TranscriptRenderer transcript;
 
     private boolean showingCommands = false;
+    private final TurnStateMachine turns = new TurnStateMachine();
+    private volatile VoiceStatus currentStatus;
+    // Set while waiting for a follow-up question in continuous mode; 0 otherwise
+    private long followUpDeadline = 0;
+    private long followUpStartedAt = 0;
+    private int turnsThisSession = 0;
+    // Request sent from a stable partial transcript, not yet confirmed by the final one
+    private SpeculativeDispatch speculation;
+    private String stablePartial;
+
+    private final Runnable speculate = () -> {
+        if (speculation == null && stablePartial != null && clawdbotClient != null
+                && turns.enter(turns.currentId(), TurnStateMachine.Phase.GENERATING)) {
+            speculation = SpeculativeDispatch.send(clawdbotClient, stablePartial);
+        }
+    };
+
+    private final Runnable idleTimeout = () -> {
+        DebugLogger.log("Conversation idle after " + turnsThisSession + " turns, ending");
+        cleanup();
+        finish();
+    };
+
+    private final Runnable fillerCue = new Runnable() {
+        @Override public void run() {
+            if (currentStatus != VoiceStatus.PROCESSING) return;
+            earcons.play(EarconBank.Earcon.FILLER);
+            mainHandler.postDelayed(this, FILLER_REPEAT_MS);
+        }
+    };
+
+    private final QuickCommandRegistry.Listener commandsChanged = commands -> {
+        router = new IntentRouter(prefs.getTtsLanguageCode(), prefs.getControlPhrases(), commands);
+        if (commandsAdapter != null) commandsAdapter.setCommands(commands);
+        updateQuickCommandsButton(commands);
+    };
 
     public VoxNovaVoiceInteractionSession(Context context) {
         super(context);
@@ -71,7 +141,20 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
         DebugLogger.log("=== Session CREATED ===");
         try {
             prefs = new PreferencesManager(context);
+            promptRes = promptResources(context, prefs.getTtsLanguageCode());
             ttsManager = new TTSManager(context, prefs);
+            earcons = EarconBank.getInstance(context);
+            recognizer = RecognizerHolder.getInstance(context);
+            endpointer = AdaptiveEndpointer.getInstance(context);
+            commandRegistry = QuickCommandRegistry.getInstance(context);
+            quickAnswers = QuickAnswerCache.getInstance(context);
+            quickAnswers.setRenderer(ttsManager);
+            PhraseBank.getInstance(context).setRenderer(ttsManager);
+            commandRegistry.addListener(commandsChanged);
+            router = new IntentRouter(prefs.getTtsLanguageCode(), prefs.getControlPhrases(),
+                    commandRegistry.getCommands());
+            // Normally done at service start already; creating it here still beats the first turn
+            recognizer.prewarm();
         } catch (Exception e) {
             DebugLogger.error("onCreate: " + e.getMessage());
         }
@@ -84,7 +167,9 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
 
         try {
             if (!prefs.isConfigured()) {
-                showMessage("Not configured - open VoxNova");
+                String msg = promptRes.getString(R.string.prompt_not_configured);
+                showMessage(msg);
+                speakPrompt(msg);
                 mainHandler.postDelayed(this::finish, 2000);
                 return;
             }
@@ -92,7 +177,9 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
             clawdbotClient = new ClawdbotClient(context, prefs.getGatewayUrl(), prefs.getAuthToken());
 
             if (!SpeechRecognizer.isRecognitionAvailable(context)) {
-                showMessage("Speech recognition not available");
+                String msg = promptRes.getString(R.string.prompt_recognition_unavailable);
+                showMessage(msg);
+                speakPrompt(msg);
                 mainHandler.postDelayed(this::finish, 2000);
                 return;
             }
@@ -113,24 +200,33 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
             txtStatusLabel = contentView.findViewById(R.id.txtStatusLabel);
             txtTranscript = contentView.findViewById(R.id.txtTranscript);
             transcriptScrollView = contentView.findViewById(R.id.transcriptScrollView);
-            commandsScrollView = contentView.findViewById(R.id.commandsScrollView);
-            commandsPanel = contentView.findViewById(R.id.commandsPanel);
+            commandsList = contentView.findViewById(R.id.commandsList);
+            if (txtTranscript != null) transcript = new TranscriptRenderer(txtTranscript, transcriptScrollView);
 
             View btnCancel = contentView.findViewById(R.id.btnCancel);
             if (btnCancel != null) btnCancel.setOnClickListener(v -> { cleanup(); finish(); });
 
+            View btnRepeat = contentView.findViewById(R.id.btnRepeat);
+            if (btnRepeat != null && ttsManager != null && ttsManager.hasLastAnswer()) {
+                btnRepeat.setVisibility(View.VISIBLE);
+                btnRepeat.setOnClickListener(v -> repeatLastAnswer());
+            }
+
             View btnNewSession = contentView.findViewById(R.id.btnNewSession);
             if (btnNewSession != null) btnNewSession.setOnClickListener(v -> sendResetCommand());
 
-            View btnQuickCommands = contentView.findViewById(R.id.btnQuickCommands);
+            QuickCommand[] commands = commandRegistry.getCommands();
+            btnQuickCommands = contentView.findViewById(R.id.btnQuickCommands);
             if (btnQuickCommands != null) {
-                QuickCommand[] commands = QuickCommand.getCommands(context);
-                if (commands.length == 0) {
-                    btnQuickCommands.setVisibility(View.GONE);
-                } else {
-                    btnQuickCommands.setVisibility(View.VISIBLE);
-                    btnQuickCommands.setOnClickListener(v -> toggleCommandsPanel());
-                }
+                btnQuickCommands.setOnClickListener(v -> toggleCommandsPanel());
+                updateQuickCommandsButton(commands);
+            }
+            if (commandsList != null) {
+                commandsList.setLayoutManager(new LinearLayoutManager(context));
+                commandsList.setHasFixedSize(true);
+                commandsAdapter = new QuickCommandAdapter(commands, this::onQuickCommand);
+                commandsList.setAdapter(commandsAdapter);
+                commandsAdapter.preinflate(commandsList);
             }
 
             return contentView;
@@ -157,83 +253,60 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
         DebugLogger.log("showCommandsPanel");
 
         // Stop listening
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
-            speechRecognizer.destroy();
-            speechRecognizer = null;
-        }
+        recognizer.cancel();
+        cancelSpeculation();
 
+        int turnId = turns.begin();
+        turns.enter(turnId, TurnStateMachine.Phase.COMMANDS);
         showingCommands = true;
         setStatus(VoiceStatus.COMMANDS);
         showMessage("Select a command");
 
-        if (commandsPanel != null && commandsScrollView != null) {
-            commandsPanel.removeAllViews();
-
-            QuickCommand[] commands = QuickCommand.getCommands(context);
-            DebugLogger.log("Adding " + commands.length + " commands");
-
-            for (QuickCommand cmd : commands) {
-                LinearLayout itemLayout = new LinearLayout(context);
-                itemLayout.setOrientation(LinearLayout.HORIZONTAL);
-                itemLayout.setPadding(
-                    dpToPx(32), dpToPx(16),
-                    dpToPx(32), dpToPx(16)
-                );
-                itemLayout.setBackgroundResource(android.R.drawable.list_selector_background);
-                itemLayout.setClickable(true);
-                itemLayout.setFocusable(true);
-                itemLayout.setGravity(android.view.Gravity.CENTER_VERTICAL);
-
-                ImageView icon = new ImageView(context);
-                icon.setImageResource(cmd.iconRes);
-                icon.setColorFilter(ContextCompat.getColor(context, R.color.command_icon_color));
-                LinearLayout.LayoutParams iconParams = new LinearLayout.LayoutParams(
-                    dpToPx(24), dpToPx(24)
-                );
-                iconParams.setMarginEnd(dpToPx(12));
-                icon.setLayoutParams(iconParams);
-
-                TextView label = new TextView(context);
-                label.setText(cmd.label);
-                label.setTextSize(18);
-                label.setTextColor(ContextCompat.getColor(context, R.color.text_primary));
-
-                itemLayout.addView(icon);
-                itemLayout.addView(label);
-
-                final String command = cmd.command;
-                itemLayout.setOnClickListener(v -> {
-                    DebugLogger.log("Command clicked: " + command);
-                    hideCommandsPanel();
-                    executeCommand(command);
-                });
+        if (commandsList != null) {
+            commandsList.scrollToPosition(0);
+            commandsList.setVisibility(View.VISIBLE);
+        } else {
+            DebugLogger.error("commandsList is null!");
+        }
+    }
 
-                commandsPanel.addView(itemLayout);
-            }
+    private void onQuickCommand(QuickCommand cmd) {
+        DebugLogger.log("Command clicked: " + cmd.command);
+        hideCommandsPanel();
+        executeCommand(cmd);
+    }
 
-            commandsScrollView.setVisibility(View.VISIBLE);
-            commandsPanel.setVisibility(View.VISIBLE);
-        } else {
-            DebugLogger.error("commandsPanel or commandsScrollView is null!");
+    private void updateQuickCommandsButton(QuickCommand[] commands) {
+        if (btnQuickCommands != null) {
+            btnQuickCommands.setVisibility(commands.length == 0 ? View.GONE : View.VISIBLE);
         }
     }
 
     private void hideCommandsPanel() {
         DebugLogger.log("hideCommandsPanel");
         showingCommands = false;
-        if (commandsScrollView != null) {
-            commandsScrollView.setVisibility(View.GONE);
-        }
-        if (commandsPanel != null) {
-            commandsPanel.setVisibility(View.GONE);
+        turns.end(turns.currentId(), "commands closed");
+        if (commandsList != null) {
+            commandsList.setVisibility(View.GONE);
         }
     }
 
-    private void executeCommand(String command) {
-        DebugLogger.log("executeCommand: " + command);
+    private void executeCommand(QuickCommand cmd) {
+        DebugLogger.log("executeCommand: " + cmd.command);
+        QuickAnswerCache.Entry cached = quickAnswers.serve(cmd);
+        if (cached != null) {
+            speakCachedAnswer(cmd, cached);
+            return;
+        }
+        speakPrompt(PhraseBank.acknowledgement(prefs.getTtsLanguageCode(), cmd.label));
         setStatus(VoiceStatus.PROCESSING);
-        showMessage(command);
+        showMessage(cmd.command);
+
+        if (cmd.cachePolicy() != QuickAnswerCache.Policy.NONE) {
+            // Goes through the cache's own client, possibly joining a request already running
+            sendAndSpeak(turns.begin(), cmd.command, null, cmd);
+            return;
+        }
 
         // Create fresh client for command
         if (clawdbotClient != null) {
@@ -241,36 +314,133 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
         }
         clawdbotClient = new ClawdbotClient(context, prefs.getGatewayUrl(), prefs.getAuthToken());
 
-        clawdbotClient.sendMessage(command, new ClawdbotClient.ResponseCallback() {
-            @Override
-            public void onSuccess(String response) {
-                DebugLogger.log("Command response received, length=" + response.length());
-                speak(response);
+        sendAndSpeak(turns.begin(), cmd.command, null, null);
+    }
+
+    /**
+     * Answer a quick command from the cache: the text at once, the audio
+     * from the audio cache, or synthesized again if it was evicted.
+     */
+    private void speakCachedAnswer(QuickCommand cmd, QuickAnswerCache.Entry entry) {
+        final int turnId = turns.begin();
+        turns.enter(turnId, TurnStateMachine.Phase.SPEAKING);
+        setStatus(VoiceStatus.SPEAKING);
+        showMessage(SpeechTextNormalizer.forDisplay(entry.text));
+
+        ttsManager.playAnswer(entry.text, entry.audioKeys, replayCallback(turnId, "cached answer", () -> {
+            if (entry.audioKeys.isEmpty()) {
+                quickAnswers.attachAudio(cmd, entry.text, ttsManager.getLastAnswerKeys());
             }
-            @Override
-            public void onError(String error) {
-                DebugLogger.error("Command error: " + error);
-                showMessage("Error: " + error);
-                mainHandler.postDelayed(() -> finish(), 2000);
+        }));
+    }
+
+    /**
+     * Callback for an answer played again from the cache. TTSManager may call
+     * it on a synthesis thread, so everything is moved to the main thread;
+     * onSpoken runs there before the turn wraps up.
+     */
+    private TTSManager.TTSCallback replayCallback(int turnId, String outcome, Runnable onSpoken) {
+        return new TTSManager.TTSCallback() {
+            @Override public void onStart() {
+                mainHandler.post(() -> {
+                    if (turns.isCurrent(turnId)) answerStarted(turnId);
+                });
             }
-        });
+            @Override public void onDone() {
+                mainHandler.post(() -> {
+                    if (!turns.isCurrent(turnId)) return;
+                    if (onSpoken != null) onSpoken.run();
+                    answerDone(turnId, outcome);
+                });
+            }
+            @Override public void onError(String error) {
+                mainHandler.post(() -> {
+                    if (!turns.isCurrent(turnId)) return;
+                    DebugLogger.error(outcome + " error: " + error);
+                    answerFailed(turnId, outcome + " error");
+                });
+            }
+        };
     }
 
+    /**
+     * The answer is audible: mute status cues and listen for barge-in.
+     */
+    private void answerStarted(int turnId) {
+        earcons.setSpeaking(true);
+        setStatus(VoiceStatus.SPEAKING);
+        if (prefs.isBargeIn()) startBargeIn(turnId);
+    }
+
+    /**
+     * The answer finished playing: wait for a follow-up in continuous mode,
+     * otherwise close.
+     */
+    private void answerDone(int turnId, String outcome) {
+        turns.exit(turnId, TurnStateMachine.Phase.SPEAKING);
+        turns.end(turnId, outcome);
+        earcons.setSpeaking(false);
+        stopBargeIn();
+        if (prefs.isContinuousConversation()) {
+            listenForFollowUp();
+        } else {
+            finish();
+        }
+    }
+
+    private void answerFailed(int turnId, String outcome) {
+        turns.end(turnId, outcome);
+        earcons.setSpeaking(false);
+        earcons.play(EarconBank.Earcon.ERROR);
+        stopBargeIn();
+        finishLater(turnId, 3000);
+    }
+
+    /**
+     * Coalesced to one transcript update (and scroll) per frame, so streamed
+     * answers can call this for every delta.
+     */
     private void showMessage(String text) {
-        mainHandler.post(() -> {
-            if (txtTranscript != null) {
-                txtTranscript.setText(text);
-                // Scroll to bottom for long responses
-                if (transcriptScrollView != null) {
-                    transcriptScrollView.post(() ->
-                        transcriptScrollView.fullScroll(View.FOCUS_DOWN)
-                    );
-                }
+        if (transcript != null) transcript.setText(text);
+    }
+
+    /**
+     * Speak a fixed prompt with the cues held off while it plays.
+     */
+    private void speakPrompt(String text) {
+        ttsManager.speakPrompt(text, new TTSManager.TTSCallback() {
+            @Override public void onStart() {
+                if (earcons != null) earcons.setSpeaking(true);
+            }
+            @Override public void onDone() {
+                if (earcons != null) earcons.setSpeaking(false);
+            }
+            @Override public void onError(String error) {
+                onDone();
             }
         });
     }
 
+    private void appendMessage(String delta) {
+        if (transcript != null) transcript.appendText(delta);
+    }
+
     private void setStatus(VoiceStatus status) {
+        if (status == VoiceStatus.PROCESSING && ttsManager != null) {
+            // The gateway is thinking; get the TTS connection ready meanwhile
+            ttsManager.warmUp();
+        }
+        VoiceStatus previous = currentStatus;
+        currentStatus = status;
+        if (status != previous && earcons != null) {
+            if (status == VoiceStatus.LISTENING_READY) {
+                earcons.play(EarconBank.Earcon.LISTENING);
+            } else if (status == VoiceStatus.PROCESSING) {
+                earcons.play(EarconBank.Earcon.PROCESSING);
+                if (prefs.isFillerCue()) mainHandler.postDelayed(fillerCue, FILLER_DELAY_MS);
+            }
+        }
+        if (status != VoiceStatus.PROCESSING) mainHandler.removeCallbacks(fillerCue);
         mainHandler.post(() -> {
             if (txtStatusLabel != null) {
                 txtStatusLabel.setText(status.label);
@@ -284,51 +454,110 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
 
     private void startListening() {
         DebugLogger.log("Starting STT...");
+        final int turnId = turns.begin();
+        turns.enter(turnId, TurnStateMachine.Phase.LISTENING);
         setStatus(VoiceStatus.LISTENING);
         showMessage("");
 
+        // Connect to the gateway while the user talks rather than after
+        if (clawdbotClient != null && !clawdbotClient.isConnected()
+                && turns.enter(turnId, TurnStateMachine.Phase.CONNECTING)) {
+            clawdbotClient.preconnect(() -> turns.exit(turnId, TurnStateMachine.Phase.CONNECTING));
+        }
+
         mainHandler.post(() -> {
+            if (!turns.isCurrent(turnId)) return;
             try {
-                speechRecognizer = SpeechRecognizer.createSpeechRecognizer(context);
-                speechRecognizer.setRecognitionListener(new RecognitionListener() {
+                long silenceTimeout = prefs.getSilenceTimeout();
+                final boolean adaptive = prefs.isAdaptiveEndpointing();
+                if (adaptive) endpointer.begin(silenceTimeout);
+
+                RecognitionListener listener = new RecognitionListener() {
                     @Override public void onReadyForSpeech(Bundle params) {
+                        if (!turns.isCurrent(turnId)) return;
                         DebugLogger.log("STT ready");
+                        if (followUpStartedAt != 0) {
+                            long readyMs = SystemClock.elapsedRealtime() - followUpStartedAt;
+                            followUpReadyMsTotal.addAndGet(readyMs);
+                            followUpStartedAt = 0;
+                            DebugLogger.log("Follow-up listening ready in " + readyMs + "ms");
+                        }
                         setStatus(VoiceStatus.LISTENING_READY);
                     }
-                    @Override public void onBeginningOfSpeech() {}
-                    @Override public void onRmsChanged(float rmsdB) {}
+                    @Override public void onBeginningOfSpeech() {
+                        if (!turns.isCurrent(turnId)) return;
+                        // The user is asking a follow-up; the session stays
+                        if (followUpDeadline != 0) {
+                            followUpDeadline = 0;
+                            mainHandler.removeCallbacks(idleTimeout);
+                        }
+                    }
+                    @Override public void onRmsChanged(float rmsdB) {
+                        if (adaptive && turns.isCurrent(turnId) && endpointer.onLevel(rmsdB)) {
+                            // Speech is clearly over; don't wait for the recognizer's timeout
+                            recognizer.stopListening();
+                        }
+                    }
                     @Override public void onBufferReceived(byte[] buffer) {}
-                    @Override public void onEndOfSpeech() { setStatus(VoiceStatus.PROCESSING); }
+                    @Override public void onEndOfSpeech() {
+                        if (!turns.isCurrent(turnId)) return;
+                        if (adaptive) endpointer.end();
+                        setStatus(VoiceStatus.PROCESSING);
+                    }
 
                     @Override
                     public void onError(int error) {
-                        String msg = getErrorText(error);
+                        if (!turns.isCurrent(turnId)) return;
+                        cancelSpeculation();
+                        turns.exit(turnId, TurnStateMachine.Phase.LISTENING);
+                        if (followUpDeadline != 0 && isSilenceError(error)) {
+                            // Nobody spoke yet; keep listening until the idle deadline
+                            turns.end(turnId, "silent");
+                            if (SystemClock.elapsedRealtime() < followUpDeadline) startListening();
+                            return;
+                        }
+                        turns.end(turnId, "stt error");
+                        String msg = getErrorText(promptRes, error);
                         DebugLogger.error("STT error: " + msg);
                         showMessage(msg);
-                        mainHandler.postDelayed(() -> finish(), 2000);
+                        // Let the cue finish before the prompt starts
+                        earcons.play(EarconBank.Earcon.ERROR);
+                        mainHandler.postDelayed(() -> speakPrompt(msg),
+                                EarconBank.Earcon.ERROR.durationMs());
+                        finishLater(turnId, 2000);
                     }
 
                     @Override
                     public void onResults(Bundle results) {
+                        if (!turns.isCurrent(turnId)) return;
+                        turns.exit(turnId, TurnStateMachine.Phase.LISTENING);
                         ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
                         if (matches != null && !matches.isEmpty()) {
                             String text = matches.get(0);
                             DebugLogger.log("STT result: " + text);
-                            processText(text);
+                            processText(turnId, text);
                         } else {
-                            showMessage("Voice not recognized");
-                            mainHandler.postDelayed(() -> finish(), 2000);
+                            cancelSpeculation();
+                            turns.end(turnId, "not recognized");
+                            String msg = promptRes.getString(R.string.prompt_not_recognized);
+                            showMessage(msg);
+                            speakPrompt(msg);
+                            finishLater(turnId, 2000);
                         }
                     }
 
                     @Override
                     public void onPartialResults(Bundle partial) {
+                        if (!turns.isCurrent(turnId)) return;
                         ArrayList<String> matches = partial.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                        if (matches != null && !matches.isEmpty()) showMessage(matches.get(0));
+                        if (matches != null && !matches.isEmpty()) {
+                            showMessage(matches.get(0));
+                            if (prefs.isSpeculativeDispatch()) onStablePartialCandidate(matches.get(0));
+                        }
                     }
 
                     @Override public void onEvent(int eventType, Bundle params) {}
-                });
+                };
 
                 Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
                 intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
@@ -336,64 +565,310 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
                 intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
 
                 // Configure silence timeout
-                long silenceTimeout = prefs.getSilenceTimeout();
                 intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_COMPLETE_SILENCE_LENGTH_MILLIS, silenceTimeout);
                 intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_POSSIBLY_COMPLETE_SILENCE_LENGTH_MILLIS, silenceTimeout);
                 intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_MINIMUM_LENGTH_MILLIS, silenceTimeout);
 
-                speechRecognizer.startListening(intent);
+                recognizer.start(intent, listener);
 
             } catch (Exception e) {
                 DebugLogger.error("startListening: " + e.getMessage());
+                turns.end(turnId, "stt error");
                 showMessage("Error: " + e.getMessage());
-                mainHandler.postDelayed(() -> finish(), 2000);
+                finishLater(turnId, 2000);
             }
         });
     }
 
-    private void processText(String text) {
+    private void processText(int turnId, String text) {
+        IntentRouter.Match intent = router != null ? router.match(text) : null;
+        if (intent != null && runLocalIntent(turnId, intent)) return;
+
         DebugLogger.log("Sending to Clawdbot: " + text);
         setStatus(VoiceStatus.PROCESSING);
         showMessage(text);
 
-        clawdbotClient.sendMessage(text, new ClawdbotClient.ResponseCallback() {
+        sendAndSpeak(turnId, text, takeSpeculation(text), null);
+    }
+
+    /**
+     * Act on a control phrase or quick command label without asking the
+     * gateway. Returns false if it can't be handled locally after all.
+     */
+    private boolean runLocalIntent(int turnId, IntentRouter.Match intent) {
+        switch (intent.action) {
+            case REPEAT:
+                if (!ttsManager.hasLastAnswer()) return false;
+                turns.end(turnId, "local repeat");
+                repeatLastAnswer();
+                return true;
+            case RESET:
+                turns.end(turnId, "local reset");
+                sendResetCommand();
+                return true;
+            case COMMAND:
+                cancelSpeculation();
+                turns.end(turnId, "local command");
+                executeCommand(intent.command);
+                return true;
+            default: // CANCEL, STOP
+                turns.end(turnId, "local " + intent.action.name().toLowerCase());
+                cleanup();
+                finish();
+                return true;
+        }
+    }
+
+    /**
+     * A partial transcript arrived. Once it stops changing for a moment it is
+     * sent ahead of the final result; if it changes into something else the
+     * request already sent is aborted.
+     */
+    private void onStablePartialCandidate(String text) {
+        if (text.trim().isEmpty() || text.equals(stablePartial)) return;
+        stablePartial = text;
+        mainHandler.removeCallbacks(speculate);
+        if (speculation != null && !speculation.matches(text)) dropSpeculation();
+        // Control phrases are handled locally; never send them ahead
+        if (router != null && router.wouldMatch(text)) return;
+        if (speculation == null) mainHandler.postDelayed(speculate, SpeculativeDispatch.STABLE_MS);
+    }
+
+    /**
+     * The speculative request, if it asked what the final transcript says.
+     */
+    private SpeculativeDispatch takeSpeculation(String finalText) {
+        mainHandler.removeCallbacks(speculate);
+        stablePartial = null;
+        SpeculativeDispatch dispatch = speculation;
+        speculation = null;
+        if (dispatch == null) return null;
+        if (dispatch.matches(finalText)) return dispatch;
+        speculation = dispatch;
+        dropSpeculation();
+        return null;
+    }
+
+    private void cancelSpeculation() {
+        mainHandler.removeCallbacks(speculate);
+        stablePartial = null;
+        if (speculation != null) dropSpeculation();
+    }
+
+    private void dropSpeculation() {
+        speculation.abort();
+        speculation = null;
+        turns.exit(turns.currentId(), TurnStateMachine.Phase.GENERATING);
+    }
+
+    /**
+     * Finish the session after a delay, unless a newer turn has started by then.
+     */
+    private void finishLater(int turnId, long delayMs) {
+        mainHandler.postDelayed(() -> {
+            if (turns.isCurrent(turnId)) finish();
+        }, delayMs);
+    }
+
+    /**
+     * Send text to the gateway and speak the answer while it streams in:
+     * each completed sentence is synthesized as soon as it arrives instead
+     * of waiting for the full response. When a speculative request already
+     * asked the same thing its response is used instead of sending again; a
+     * cacheable quick command is asked through the quick answer cache.
+     */
+    private void sendAndSpeak(int turnId, String text, SpeculativeDispatch speculative, QuickCommand cacheable) {
+        if (!turns.enter(turnId, TurnStateMachine.Phase.GENERATING)) {
+            // The turn is stale, over, or still in a phase it should have left
+            turns.end(turnId, "not sent");
+            finishLater(turnId, 2000);
+            return;
+        }
+        if (transcript != null) transcript.beginAnswer();
+        TTSManager.SpeechStream stream = ttsManager.openStream(new TTSManager.TTSCallback() {
+            @Override public void onStart() {
+                if (!turns.isCurrent(turnId)) return;
+                // Audio means the gateway answered, so the connection is up
+                turns.exit(turnId, TurnStateMachine.Phase.CONNECTING);
+                if (!turns.enter(turnId, TurnStateMachine.Phase.SPEAKING)) {
+                    ttsManager.stop();
+                    turns.end(turnId, "not spoken");
+                    finishLater(turnId, 2000);
+                    return;
+                }
+                DebugLogger.log("TTS started");
+                answerStarted(turnId);
+            }
+            @Override public void onDone() {
+                if (!turns.isCurrent(turnId)) return;
+                DebugLogger.log("TTS done");
+                if (cacheable != null) {
+                    quickAnswers.attachAudio(cacheable, ttsManager.getLastAnswerText(), ttsManager.getLastAnswerKeys());
+                }
+                answerDone(turnId, "done");
+            }
+            @Override public void onError(String error) {
+                if (!turns.isCurrent(turnId)) return;
+                DebugLogger.error("TTS error: " + error);
+                answerFailed(turnId, "tts error");
+            }
+        });
+
+        ClawdbotClient.ResponseCallback callback = new ClawdbotClient.ResponseCallback() {
             @Override
             public void onSuccess(String response) {
+                if (!turns.isCurrent(turnId)) return;
+                turns.exit(turnId, TurnStateMachine.Phase.GENERATING);
                 DebugLogger.log("Got response, length=" + response.length());
-                speak(response);
+                if (!stream.hasText()) {
+                    stream.append(response);
+                }
+                stream.finish();
+                appendMessage(stream.takeDisplayText());
+                if (transcript != null) transcript.endAnswer();
             }
             @Override
             public void onError(String error) {
+                if (!turns.isCurrent(turnId)) return;
+                turns.end(turnId, "gateway error");
                 DebugLogger.error("Clawdbot error: " + error);
+                stream.cancel();
+                earcons.play(EarconBank.Earcon.ERROR);
                 showMessage("Error: " + error);
-                mainHandler.postDelayed(() -> finish(), 2000);
+                if (transcript != null) transcript.endAnswer();
+                finishLater(turnId, 2000);
             }
-        });
+        };
+        ClawdbotClient.StreamListener listener = delta -> {
+            if (!turns.isCurrent(turnId)) return;
+            stream.append(delta);
+            appendMessage(stream.takeDisplayText());
+        };
+        if (speculative != null) {
+            speculative.adopt(callback, listener);
+        } else if (cacheable != null) {
+            quickAnswers.fetch(cacheable, callback, listener);
+        } else {
+            clawdbotClient.sendMessage(text, callback, listener);
+        }
+    }
+
+    /**
+     * Continuous mode: go straight back to listening on the same session,
+     * gateway connection and TTS pipeline. The session ends once nobody has
+     * spoken for the configured idle time.
+     */
+    private void listenForFollowUp() {
+        turnsThisSession++;
+        if (turnsThisSession == 1) conversations.incrementAndGet();
+        followUpTurns.incrementAndGet();
+        long idleMs = prefs.getConversationIdleMs();
+        followUpStartedAt = SystemClock.elapsedRealtime();
+        followUpDeadline = followUpStartedAt + idleMs;
+        mainHandler.removeCallbacks(idleTimeout);
+        mainHandler.postDelayed(idleTimeout, idleMs);
+        DebugLogger.log("Listening for follow-up " + turnsThisSession + " (idle " + idleMs + "ms)");
+        startListening();
+    }
+
+    private static boolean isSilenceError(int error) {
+        return error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT || error == SpeechRecognizer.ERROR_NO_MATCH;
+    }
+
+    static String getConversationStats() {
+        long turns = followUpTurns.get();
+        return conversations.get() + " continuous sessions, " + turns + " follow-up turns"
+                + (turns == 0 ? "" : ", listening again in avg " + followUpReadyMsTotal.get() / turns + "ms");
+    }
+
+    /**
+     * Listen for the user talking over the answer. Detection happens on the
+     * capture thread; the interruption jumps the main queue so playback goes
+     * quiet within a frame or two of the decision.
+     */
+    private void startBargeIn(int turnId) {
+        stopBargeIn();
+        bargeInDetector = new BargeInDetector(detectedAt ->
+                mainHandler.postAtFrontOfQueue(() -> onBargeIn(turnId, detectedAt)));
+        bargeInDetector.start();
+    }
+
+    private void stopBargeIn() {
+        if (bargeInDetector != null) {
+            bargeInDetector.stop();
+            bargeInDetector = null;
+        }
+    }
+
+    /**
+     * The user spoke over the answer: silence it, drop whatever is still
+     * being generated or synthesized, and start a new turn.
+     */
+    private void onBargeIn(int turnId, long detectedAt) {
+        if (bargeInDetector == null || !turns.isCurrent(turnId)) return;
+        ttsManager.stop();
+        turns.end(turnId, "interrupted");
+        BargeInDetector.recordSilenced(detectedAt);
+        earcons.setSpeaking(false);
+        stopBargeIn();
+
+        // The old client may still be streaming the interrupted answer
+        if (clawdbotClient != null) {
+            clawdbotClient.disconnect();
+        }
+        clawdbotClient = new ClawdbotClient(context, prefs.getGatewayUrl(), prefs.getAuthToken());
+        startListening();
     }
 
-    private void speak(String text) {
+    /**
+     * Replay the previous answer from the audio cache, no gateway round trip.
+     */
+    private void repeatLastAnswer() {
+        DebugLogger.log("Repeating last answer");
+        recognizer.cancel();
+        cancelSpeculation();
+        if (showingCommands) {
+            hideCommandsPanel();
+        }
+        final int turnId = turns.begin();
+        turns.enter(turnId, TurnStateMachine.Phase.SPEAKING);
         setStatus(VoiceStatus.SPEAKING);
-        showMessage(TTSManager.stripEmojis(text));
+        showMessage(SpeechTextNormalizer.forDisplay(ttsManager.getLastAnswerText()));
 
-        ttsManager.speak(text, new TTSManager.TTSCallback() {
-            @Override public void onStart() { DebugLogger.log("TTS started"); }
-            @Override public void onDone() { DebugLogger.log("TTS done"); finish(); }
-            @Override public void onError(String error) {
-                DebugLogger.error("TTS error: " + error);
-                mainHandler.postDelayed(() -> finish(), 3000);
-            }
-        });
+        ttsManager.repeatLast(replayCallback(turnId, "repeat", null));
+    }
+
+    /**
+     * Every fixed prompt the session may speak in this language, for the
+     * phrase bank.
+     */
+    static List<String> fixedPrompts(Context context, String languageCode) {
+        Resources res = promptResources(context, languageCode);
+        List<String> prompts = new ArrayList<>();
+        for (int id : PROMPTS) prompts.add(res.getString(id));
+        for (int code : STT_ERROR_CODES) prompts.add(getErrorText(res, code));
+        return prompts;
+    }
+
+    /**
+     * Resources for the voice's language rather than the device's, so a
+     * prompt is never read out by a voice of another language.
+     */
+    static Resources promptResources(Context context, String languageCode) {
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        config.setLocale(new Locale(languageCode));
+        return context.createConfigurationContext(config).getResources();
     }
 
-    private String getErrorText(int error) {
+    static String getErrorText(Resources res, int error) {
         switch (error) {
-            case SpeechRecognizer.ERROR_AUDIO: return "Audio error";
-            case SpeechRecognizer.ERROR_CLIENT: return "Client error";
-            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS: return "No permission";
-            case SpeechRecognizer.ERROR_NETWORK: return "Network error";
-            case SpeechRecognizer.ERROR_NO_MATCH: return "Not understood";
-            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT: return "Timeout";
-            default: return "Error " + error;
+            case SpeechRecognizer.ERROR_AUDIO: return res.getString(R.string.stt_error_audio);
+            case SpeechRecognizer.ERROR_CLIENT: return res.getString(R.string.stt_error_client);
+            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS: return res.getString(R.string.stt_error_permissions);
+            case SpeechRecognizer.ERROR_NETWORK: return res.getString(R.string.stt_error_network);
+            case SpeechRecognizer.ERROR_NO_MATCH: return res.getString(R.string.stt_error_no_match);
+            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT: return res.getString(R.string.stt_error_timeout);
+            default: return res.getString(R.string.stt_error_other, error);
         }
     }
 
@@ -402,9 +877,10 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
         setStatus(VoiceStatus.RESET);
         showMessage("Restarting conversation...");
 
-        if (speechRecognizer != null) {
-            speechRecognizer.stopListening();
-        }
+        recognizer.cancel();
+        cancelSpeculation();
+        final int turnId = turns.begin();
+        turns.enter(turnId, TurnStateMachine.Phase.RESETTING);
 
         if (clawdbotClient != null) {
             clawdbotClient.disconnect();
@@ -414,28 +890,38 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
         clawdbotClient.resetSession(new ClawdbotClient.ResponseCallback() {
             @Override
             public void onSuccess(String response) {
+                if (!turns.isCurrent(turnId)) return;
+                turns.exit(turnId, TurnStateMachine.Phase.RESETTING);
+                turns.end(turnId, "reset");
                 DebugLogger.log("Session reset OK");
                 setStatus(VoiceStatus.SUCCESS);
-                showMessage("New conversation started");
-                mainHandler.postDelayed(() -> finish(), 1500);
+                String msg = promptRes.getString(R.string.prompt_reset_done);
+                showMessage(msg);
+                speakPrompt(msg);
+                finishLater(turnId, 1500);
             }
             @Override
             public void onError(String error) {
+                if (!turns.isCurrent(turnId)) return;
+                turns.end(turnId, "reset error");
                 DebugLogger.error("Reset failed: " + error);
                 showMessage("Error: " + error);
-                mainHandler.postDelayed(() -> finish(), 2000);
+                finishLater(turnId, 2000);
             }
         });
     }
 
-    private int dpToPx(int dp) {
-        float density = context.getResources().getDisplayMetrics().density;
-        return Math.round(dp * density);
-    }
-
     private void cleanup() {
         try {
-            if (speechRecognizer != null) { speechRecognizer.destroy(); speechRecognizer = null; }
+            stopBargeIn();
+            mainHandler.removeCallbacks(fillerCue);
+            mainHandler.removeCallbacks(idleTimeout);
+            followUpDeadline = 0;
+            if (earcons != null) earcons.setSpeaking(false);
+            // Only the turn ends; the recognizer stays bound for the next session
+            if (recognizer != null) recognizer.cancel();
+            cancelSpeculation();
+            turns.end(turns.currentId(), "cancelled");
             if (ttsManager != null) { ttsManager.stop(); }
             if (clawdbotClient != null) { clawdbotClient.disconnect(); }
         } catch (Exception e) {}
@@ -445,6 +931,9 @@ public class VoxNovaVoiceInteractionSession extends VoiceInteractionSession {
     @Override public void onDestroy() {
         super.onDestroy();
         cleanup();
+        if (commandRegistry != null) commandRegistry.removeListener(commandsChanged);
+        if (quickAnswers != null) quickAnswers.clearRenderer(ttsManager);
+        PhraseBank.getInstance(context).clearRenderer(ttsManager);
         if (ttsManager != null) ttsManager.shutdown();
     }
 }
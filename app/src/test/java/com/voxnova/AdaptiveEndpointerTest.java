@@ -0,0 +1,121 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.SharedPreferences;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+
+public class AdaptiveEndpointerTest {
+    private static final long MAX_SILENCE_MS = 2000;
+    private static final long FRAME_MS = 50;
+    private static final float QUIET = 30;
+    private static final float LOUD = 50;
+
+    /** Feeds levels on a hand-driven clock, one frame apart. */
+    private static final class Mic {
+        final AdaptiveEndpointer endpointer = new AdaptiveEndpointer(emptyPrefs());
+        long clock = 10_000;
+
+        Mic() {
+            endpointer.begin(MAX_SILENCE_MS);
+            endpointer.onLevel(QUIET, clock);
+        }
+
+        /** True if the endpoint fired while feeding. */
+        boolean feed(float level, long ms) {
+            boolean ended = false;
+            for (long t = 0; t < ms; t += FRAME_MS) {
+                clock += FRAME_MS;
+                ended |= endpointer.onLevel(level, clock);
+            }
+            return ended;
+        }
+
+        /** Silence until the endpoint fires, how long it took, or -1. */
+        long silenceUntilEnd() {
+            for (long t = FRAME_MS; t <= MAX_SILENCE_MS * 2; t += FRAME_MS) {
+                clock += FRAME_MS;
+                if (endpointer.onLevel(QUIET, clock)) return t;
+            }
+            return -1;
+        }
+    }
+
+    /** Returns each getter's default and discards every write. */
+    private static SharedPreferences emptyPrefs() {
+        SharedPreferences.Editor editor = (SharedPreferences.Editor) Proxy.newProxyInstance(
+                SharedPreferences.Editor.class.getClassLoader(), new Class<?>[] {SharedPreferences.Editor.class},
+                (proxy, method, args) -> method.getReturnType() == SharedPreferences.Editor.class ? proxy
+                        : method.getReturnType() == boolean.class ? true : null);
+        return (SharedPreferences) Proxy.newProxyInstance(
+                SharedPreferences.class.getClassLoader(), new Class<?>[] {SharedPreferences.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("edit")) return editor;
+                    return args != null && args.length == 2 ? args[1] : null;
+                });
+    }
+
+    private static void learnPauses(Mic mic, int count, long pauseMs) {
+        for (int i = 0; i < count; i++) {
+            mic.feed(LOUD, 500);
+            mic.feed(QUIET, pauseMs);
+        }
+        mic.feed(LOUD, 500);
+    }
+
+    @Test
+    public void usesTheConfiguredTimeoutUntilPausesAreLearned() {
+        Mic mic = new Mic();
+        learnPauses(mic, 2, 400);
+        assertEquals(MAX_SILENCE_MS, mic.endpointer.currentTimeoutMs());
+        assertEquals(-1, mic.silenceUntilEnd());
+    }
+
+    @Test
+    public void endsEarlyOnceTheUsersPausesAreKnown() {
+        Mic mic = new Mic();
+        learnPauses(mic, 3, 400);
+        long timeout = mic.endpointer.currentTimeoutMs();
+        assertTrue(timeout < MAX_SILENCE_MS);
+        long silence = mic.silenceUntilEnd();
+        assertTrue(silence >= timeout);
+        assertTrue(silence < MAX_SILENCE_MS);
+    }
+
+    @Test
+    public void endpointFiresOncePerTurn() {
+        Mic mic = new Mic();
+        learnPauses(mic, 3, 400);
+        assertTrue(mic.silenceUntilEnd() > 0);
+        assertFalse(mic.feed(LOUD, 500));
+        assertFalse(mic.feed(QUIET, MAX_SILENCE_MS * 2));
+    }
+
+    @Test
+    public void gapsBetweenSyllablesAreNotPauses() {
+        Mic mic = new Mic();
+        learnPauses(mic, 5, 100);
+        assertEquals(MAX_SILENCE_MS, mic.endpointer.currentTimeoutMs());
+    }
+
+    @Test
+    public void silenceAloneNeverEndsTheTurn() {
+        Mic mic = new Mic();
+        learnPauses(mic, 3, 400);
+        mic.endpointer.begin(MAX_SILENCE_MS);
+        mic.endpointer.onLevel(QUIET, mic.clock);
+        assertFalse(mic.feed(QUIET, MAX_SILENCE_MS * 2));
+    }
+
+    @Test
+    public void timeoutNeverGoesBelowTheMinimum() {
+        Mic mic = new Mic();
+        learnPauses(mic, 40, 150);
+        assertEquals(600, mic.endpointer.currentTimeoutMs());
+    }
+}
@@ -0,0 +1,202 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the client against a local stand-in for Cartesia's WebSocket.
+ */
+public class CartesiaStreamClientTest {
+    private MockWebServer server;
+    private CartesiaStreamClient client;
+    private final LinkedBlockingQueue<JSONObject> received = new LinkedBlockingQueue<>();
+    private volatile WebSocket serverSocket;
+    private final CountDownLatch serverOpen = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override public void onOpen(WebSocket ws, Response response) {
+                serverSocket = ws;
+                serverOpen.countDown();
+            }
+            @Override public void onMessage(WebSocket ws, String text) {
+                try {
+                    received.add(new JSONObject(text));
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+            @Override public void onClosing(WebSocket ws, int code, String reason) {
+                ws.close(1000, null);
+            }
+        }));
+        server.start();
+        client = new CartesiaStreamClient(new OkHttpClient(), server.url("/tts/websocket").toString(), "test-key");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    private JSONObject nextFrame() throws InterruptedException {
+        JSONObject frame = received.poll(5, TimeUnit.SECONDS);
+        if (frame == null) fail("no frame from the client");
+        return frame;
+    }
+
+    private void sendChunk(String contextId, byte[] pcm) throws Exception {
+        JSONObject msg = new JSONObject();
+        msg.put("type", "chunk");
+        msg.put("context_id", contextId);
+        msg.put("data", Base64.getEncoder().encodeToString(pcm));
+        serverSocket.send(msg.toString());
+    }
+
+    private void sendWords(String contextId, String... words) throws Exception {
+        JSONObject timestamps = new JSONObject();
+        timestamps.put("words", new JSONArray(words));
+        JSONObject msg = new JSONObject();
+        msg.put("type", "timestamps");
+        msg.put("context_id", contextId);
+        msg.put("word_timestamps", timestamps);
+        serverSocket.send(msg.toString());
+    }
+
+    private void sendDone(String contextId) throws Exception {
+        JSONObject msg = new JSONObject();
+        msg.put("type", "done");
+        msg.put("context_id", contextId);
+        serverSocket.send(msg.toString());
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int n;
+        while ((n = in.read(buffer, 0, buffer.length)) != -1) out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void chunksArriveInOrder() throws Exception {
+        CartesiaStreamClient.StreamContext context = client.openContext("voice", "en", 24000);
+        InputStream audio = context.getAudioStream();
+        context.send("Hello ");
+        context.send("world ");
+        context.end();
+
+        JSONObject first = nextFrame();
+        String id = first.getString("context_id");
+        assertEquals("Hello ", first.getString("transcript"));
+        assertTrue(first.getBoolean("continue"));
+        assertEquals("world ", nextFrame().getString("transcript"));
+        assertTrue(!nextFrame().getBoolean("continue"));
+
+        sendChunk(id, new byte[]{1, 2});
+        sendChunk(id, new byte[]{3, 4, 5, 6});
+        sendChunk(id, new byte[]{7});
+        sendDone(id);
+
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7}, readAll(audio));
+        assertNull(context.getError());
+    }
+
+    @Test
+    public void firstAudioIsReadableBeforeTheContextEnds() throws Exception {
+        CartesiaStreamClient.StreamContext context = client.openContext("voice", "en", 24000);
+        InputStream audio = context.getAudioStream();
+        long sentAt = System.nanoTime();
+        context.send("Hello ");
+        String id = nextFrame().getString("context_id");
+        sendChunk(id, new byte[]{9, 8});
+
+        byte[] buffer = new byte[16];
+        int n = audio.read(buffer, 0, buffer.length);
+        long firstAudioMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt);
+        assertEquals(2, n);
+        assertEquals(9, buffer[0]);
+        // Nothing is buffered behind end(); the local server answers at once
+        assertTrue("first audio after " + firstAudioMs + "ms", firstAudioMs < 2000);
+        context.cancel();
+    }
+
+    @Test
+    public void cancelEndsTheStreamAndTellsTheServer() throws Exception {
+        CartesiaStreamClient.StreamContext context = client.openContext("voice", "en", 24000);
+        InputStream audio = context.getAudioStream();
+        context.send("A long answer ");
+        String id = nextFrame().getString("context_id");
+        sendChunk(id, new byte[]{1, 2});
+        assertEquals(2, audio.read(new byte[2], 0, 2));
+
+        context.cancel();
+        JSONObject cancel = nextFrame();
+        assertEquals(id, cancel.getString("context_id"));
+        assertTrue(cancel.getBoolean("cancel"));
+        assertEquals(-1, audio.read(new byte[2], 0, 2));
+
+        // Late audio for the cancelled context is ignored
+        sendChunk(id, new byte[]{3, 4});
+        context.send("more ");
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        assertNull(context.getError());
+    }
+
+    @Test
+    public void socketFailureAfterAudioKeepsTheVoicedWordCount() throws Exception {
+        CartesiaStreamClient.StreamContext context = client.openContext("voice", "en", 24000);
+        InputStream audio = context.getAudioStream();
+        context.send("One two three four ");
+        String id = nextFrame().getString("context_id");
+        assertTrue(serverOpen.await(5, TimeUnit.SECONDS));
+        sendWords(id, "One", "two");
+        sendChunk(id, new byte[]{1, 2, 3, 4});
+        assertEquals(4, audio.read(new byte[4], 0, 4));
+
+        serverSocket.close(1011, "Server error");
+        try {
+            audio.read(new byte[4], 0, 4);
+            fail("expected the broken socket to surface");
+        } catch (IOException expected) {
+            // The audio stream reports the failure after what was received
+        }
+        assertTrue(context.getError() != null);
+        assertEquals(2, context.getVoicedWords());
+    }
+
+    @Test
+    public void dropWordsSkipsWhatWasVoiced() {
+        assertEquals("three four", TTSManager.dropWords("One two  three four ", 2));
+        assertEquals("", TTSManager.dropWords("One two", 5));
+        assertEquals("", TTSManager.dropWords("  ", 0));
+        assertEquals("One two", TTSManager.dropWords("One two", 0));
+    }
+}
@@ -0,0 +1,106 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IntentRouterTest {
+    private static final QuickCommand[] NO_COMMANDS = new QuickCommand[0];
+
+    @Test
+    public void exactPhrases() {
+        IntentRouter router = new IntentRouter("es", null, NO_COMMANDS);
+        assertEquals(IntentRouter.Action.STOP, router.match("para").action);
+        assertEquals(IntentRouter.Action.RESET, router.match("¡Nueva conversación!").action);
+        assertEquals(IntentRouter.Action.REPEAT, router.match("Repítelo").action);
+        assertEquals(0, router.match("repite eso").distance);
+    }
+
+    @Test
+    public void fillersAreIgnored() {
+        IntentRouter router = new IntentRouter("es", null, NO_COMMANDS);
+        assertEquals(IntentRouter.Action.REPEAT, router.match("oye, repite por favor").action);
+        assertNull(router.match("por favor"));
+    }
+
+    @Test
+    public void fuzzyWithinDistance() {
+        IntentRouter router = new IntentRouter("es", null, NO_COMMANDS);
+        IntentRouter.Match match = router.match("nueva conversasion");
+        assertEquals(IntentRouter.Action.RESET, match.action);
+        assertEquals(1, match.distance);
+        assertEquals(IntentRouter.Action.CANCEL, router.match("cancelaa").action);
+    }
+
+    @Test
+    public void shortWordsMustMatchExactly() {
+        IntentRouter router = new IntentRouter("es", null, NO_COMMANDS);
+        assertNull(router.match("pare"));
+        assertNull(router.match("pra"));
+    }
+
+    @Test
+    public void questionsGoToTheGateway() {
+        IntentRouter router = new IntentRouter("es", null, NO_COMMANDS);
+        assertNull(router.match("para qué sirve"));
+        assertNull(router.match("qué hora es en Tokio"));
+        assertNull(router.match(""));
+        assertFalse(router.wouldMatch("para qué"));
+        assertTrue(router.wouldMatch("para"));
+    }
+
+    @Test
+    public void otherLanguages() {
+        IntentRouter router = new IntentRouter("en", null, NO_COMMANDS);
+        assertEquals(IntentRouter.Action.CANCEL, router.match("Never mind.").action);
+        assertNull(router.match("para"));
+    }
+
+    @Test
+    public void customPhrases() {
+        IntentRouter router = new IntentRouter("es", "reset: de cero, otra charla\nbogus: nada nuevo\nsin dos puntos", NO_COMMANDS);
+        assertEquals(IntentRouter.Action.RESET, router.match("de cero").action);
+        assertEquals(IntentRouter.Action.RESET, router.match("otra charla").action);
+        assertNull(router.match("nada nuevo"));
+    }
+
+    @Test
+    public void commandLabels() {
+        QuickCommand weather = new QuickCommand("Clima de hoy", "¿Qué clima hace hoy?");
+        IntentRouter router = new IntentRouter("es", null, new QuickCommand[] {weather});
+        IntentRouter.Match match = router.match("clima de hoy");
+        assertEquals(IntentRouter.Action.COMMAND, match.action);
+        assertSame(weather, match.command);
+    }
+
+    @Test
+    public void commandCannotShadowABuiltInPhrase() {
+        QuickCommand command = new QuickCommand("Para", "para qué");
+        IntentRouter router = new IntentRouter("es", null, new QuickCommand[] {command});
+        assertEquals(IntentRouter.Action.STOP, router.match("para").action);
+    }
+
+    @Test
+    public void tiesGoToThePhraseAddedFirst() {
+        QuickCommand today = new QuickCommand("clima hoy", "clima hoy");
+        QuickCommand there = new QuickCommand("clima hay", "clima hay");
+        IntentRouter router = new IntentRouter("es", null, new QuickCommand[] {today, there});
+        assertSame(today, router.match("clima huy").command);
+        router = new IntentRouter("es", null, new QuickCommand[] {there, today});
+        assertSame(there, router.match("clima huy").command);
+    }
+
+    @Test
+    public void closerMatchBeatsEarlierPhrase() {
+        QuickCommand today = new QuickCommand("clima hoy", "clima hoy");
+        QuickCommand there = new QuickCommand("clima hay", "clima hay");
+        IntentRouter router = new IntentRouter("es", null, new QuickCommand[] {today, there});
+        IntentRouter.Match match = router.match("clima hay");
+        assertSame(there, match.command);
+        assertEquals(0, match.distance);
+    }
+}
@@ -0,0 +1,183 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PhraseBankTest {
+    private static final String PROVIDER = PreferencesManager.TTS_PROVIDER_CARTESIA;
+    private static final String LANGUAGE = "es";
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** Answers at once with the phrase's own bytes, unless told otherwise. */
+    private static final class FakeSynthesizer implements PhraseBank.Synthesizer {
+        final List<String> requested = new ArrayList<>();
+        final Set<String> failing = new HashSet<>();
+        boolean saturated = false;
+
+        @Override
+        public boolean synthesizePhrase(String provider, String text, String language, boolean rawPcm,
+                                        PhraseBank.ClipCallback callback) {
+            if (saturated) return false;
+            requested.add(text);
+            callback.onClip(failing.contains(text) ? null : audio(text));
+            return true;
+        }
+    }
+
+    private static byte[] audio(String phrase) {
+        return ("audio:" + phrase).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static AudioCache.CachedAudio lookup(PhraseBank bank, boolean rawPcm, String phrase) {
+        return bank.get(PROVIDER, LANGUAGE, rawPcm, TTSManager.cacheKey(PROVIDER, LANGUAGE, rawPcm, phrase));
+    }
+
+    private File pack(boolean rawPcm) {
+        return new File(folder.getRoot(), PROVIDER + "_" + LANGUAGE + "_" + (rawPcm ? "pcm" : "mp3") + ".pack");
+    }
+
+    @Test
+    public void packStartsWithMagicVersionAndIndex() throws IOException {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        bank.setRenderer(new FakeSynthesizer());
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(pack(false)))) {
+            assertEquals(0x56585042, in.readInt());
+            assertEquals(1, in.readInt());
+            in.readInt();
+            assertEquals(2, in.readInt());
+            assertEquals(TTSManager.cacheKey(PROVIDER, LANGUAGE, false, "Hola"), in.readUTF());
+            assertEquals(0, in.readInt());
+            assertEquals(audio("Hola").length, in.readInt());
+            assertFalse(in.readBoolean());
+        }
+    }
+
+    @Test
+    public void clipsReadBackFromAFreshInstance() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        bank.setRenderer(new FakeSynthesizer());
+        bank.render(PROVIDER, LANGUAGE, true, Arrays.asList("Hola", "Adiós"));
+
+        PhraseBank reopened = new PhraseBank(folder.getRoot());
+        AudioCache.CachedAudio clip = lookup(reopened, true, "Adiós");
+        assertNotNull(clip);
+        assertArrayEquals(audio("Adiós"), clip.data);
+        assertTrue(clip.pcm);
+        assertNull(lookup(reopened, true, "Buenas"));
+        assertNull(lookup(reopened, false, "Hola"));
+    }
+
+    @Test
+    public void onlyNewPhrasesAreSynthesized() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        FakeSynthesizer synthesizer = new FakeSynthesizer();
+        bank.setRenderer(synthesizer);
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+        synthesizer.requested.clear();
+
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós", "Claro, Clima"));
+        assertEquals(Arrays.asList("Claro, Clima"), synthesizer.requested);
+        assertArrayEquals(audio("Hola"), lookup(bank, false, "Hola").data);
+        assertArrayEquals(audio("Claro, Clima"), lookup(bank, false, "Claro, Clima").data);
+    }
+
+    @Test
+    public void unchangedPackIsNotRewritten() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        FakeSynthesizer synthesizer = new FakeSynthesizer();
+        bank.setRenderer(synthesizer);
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+        assertTrue(pack(false).setLastModified(1000));
+        synthesizer.requested.clear();
+
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+        assertTrue(synthesizer.requested.isEmpty());
+        assertEquals(1000, pack(false).lastModified());
+    }
+
+    @Test
+    public void droppedPhrasesLeaveThePack() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        bank.setRenderer(new FakeSynthesizer());
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola"));
+        assertNotNull(lookup(bank, false, "Hola"));
+        assertNull(lookup(bank, false, "Adiós"));
+    }
+
+    @Test
+    public void failedPhraseIsSkippedAndRetriedNextTime() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        FakeSynthesizer synthesizer = new FakeSynthesizer();
+        synthesizer.failing.add("Adiós");
+        bank.setRenderer(synthesizer);
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+        assertNotNull(lookup(bank, false, "Hola"));
+        assertNull(lookup(bank, false, "Adiós"));
+
+        synthesizer.failing.clear();
+        synthesizer.requested.clear();
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola", "Adiós"));
+        assertEquals(Arrays.asList("Adiós"), synthesizer.requested);
+    }
+
+    @Test
+    public void renderWaitsForASynthesizer() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola"));
+        assertFalse(pack(false).exists());
+
+        FakeSynthesizer synthesizer = new FakeSynthesizer();
+        bank.setRenderer(synthesizer);
+        assertEquals(Arrays.asList("Hola"), synthesizer.requested);
+        assertNotNull(lookup(bank, false, "Hola"));
+    }
+
+    @Test
+    public void renderTurnedAwayResumesWithTheNextSynthesizer() {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        FakeSynthesizer busy = new FakeSynthesizer();
+        busy.saturated = true;
+        bank.setRenderer(busy);
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola"));
+        assertNull(lookup(bank, false, "Hola"));
+
+        bank.clearRenderer(busy);
+        bank.setRenderer(new FakeSynthesizer());
+        assertNotNull(lookup(bank, false, "Hola"));
+    }
+
+    @Test
+    public void packWithBadMagicIsIgnored() throws IOException {
+        PhraseBank bank = new PhraseBank(folder.getRoot());
+        bank.setRenderer(new FakeSynthesizer());
+        bank.render(PROVIDER, LANGUAGE, false, Arrays.asList("Hola"));
+        try (RandomAccessFile raf = new RandomAccessFile(pack(false), "rw")) {
+            raf.writeInt(0);
+        }
+        assertNull(lookup(new PhraseBank(folder.getRoot()), false, "Hola"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.SharedPreferences;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProviderHealthTest {
+    private static final String FAST = "fast";
+    private static final String SLOW = "slow";
+
+    /** Health with a hand-driven clock and a store that keeps nothing. */
+    private static final class TestHealth extends ProviderHealth {
+        long clock = 1_000_000;
+
+        TestHealth() {
+            super(discardingPrefs());
+        }
+
+        @Override long now() {
+            return clock;
+        }
+    }
+
+    private static SharedPreferences discardingPrefs() {
+        SharedPreferences.Editor editor = (SharedPreferences.Editor) Proxy.newProxyInstance(
+                SharedPreferences.Editor.class.getClassLoader(), new Class<?>[] {SharedPreferences.Editor.class},
+                (proxy, method, args) -> method.getReturnType() == SharedPreferences.Editor.class ? proxy
+                        : method.getReturnType() == boolean.class ? true : null);
+        return (SharedPreferences) Proxy.newProxyInstance(
+                SharedPreferences.class.getClassLoader(), new Class<?>[] {SharedPreferences.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getAll")) return Collections.emptyMap();
+                    if (method.getName().equals("edit")) return editor;
+                    return null;
+                });
+    }
+
+    private static void trip(ProviderHealth health, String provider) {
+        for (int i = 0; i < 3; i++) health.recordFailure(provider, 500);
+    }
+
+    @Test
+    public void ranksFastestFirst() {
+        TestHealth health = new TestHealth();
+        health.recordSuccess(SLOW, 900, 200);
+        health.recordSuccess(FAST, 300, 200);
+        assertEquals(Arrays.asList(FAST, SLOW), health.rank(Arrays.asList(SLOW, FAST)));
+    }
+
+    @Test
+    public void errorsPushAProviderDown() {
+        TestHealth health = new TestHealth();
+        health.recordSuccess(SLOW, 900, 200);
+        health.recordSuccess(FAST, 300, 200);
+        health.recordFailure(FAST, 500);
+        assertEquals(Arrays.asList(SLOW, FAST), health.rank(Arrays.asList(FAST, SLOW)));
+    }
+
+    @Test
+    public void consecutiveFailuresOpenTheCircuit() {
+        TestHealth health = new TestHealth();
+        health.recordFailure(FAST, 500);
+        health.recordFailure(FAST, 500);
+        assertTrue(health.isAvailable(FAST));
+        health.recordFailure(FAST, 500);
+        assertFalse(health.isAvailable(FAST));
+        assertFalse(health.tryAcquireTrial(FAST));
+        assertEquals(Collections.singletonList(SLOW), health.rank(Arrays.asList(FAST, SLOW)));
+    }
+
+    @Test
+    public void rateLimitOpensAtOnce() {
+        TestHealth health = new TestHealth();
+        health.recordFailure(FAST, 429);
+        assertFalse(health.isAvailable(FAST));
+    }
+
+    @Test
+    public void rankingDoesNotUseUpTheTrial() {
+        TestHealth health = new TestHealth();
+        trip(health, FAST);
+        health.clock += 30_000;
+        List<String> candidates = Collections.singletonList(FAST);
+        assertEquals(candidates, health.rank(candidates));
+        assertEquals(candidates, health.rank(candidates));
+        assertTrue(health.isAvailable(FAST));
+        assertTrue(health.tryAcquireTrial(FAST));
+    }
+
+    @Test
+    public void onlyOneTrialAtATime() {
+        TestHealth health = new TestHealth();
+        trip(health, FAST);
+        health.clock += 30_000;
+        assertTrue(health.tryAcquireTrial(FAST));
+        assertFalse(health.tryAcquireTrial(FAST));
+        assertFalse(health.isAvailable(FAST));
+        assertTrue(health.rank(Collections.singletonList(FAST)).isEmpty());
+    }
+
+    @Test
+    public void successfulTrialClosesTheCircuit() {
+        TestHealth health = new TestHealth();
+        trip(health, FAST);
+        health.clock += 30_000;
+        assertTrue(health.tryAcquireTrial(FAST));
+        health.recordSuccess(FAST, 400, 200);
+        assertTrue(health.tryAcquireTrial(FAST));
+        assertTrue(health.tryAcquireTrial(FAST));
+    }
+
+    @Test
+    public void failedTrialDoublesTheCooldown() {
+        TestHealth health = new TestHealth();
+        trip(health, FAST);
+        health.clock += 30_000;
+        assertTrue(health.tryAcquireTrial(FAST));
+        health.recordFailure(FAST, 500);
+        health.clock += 59_000;
+        assertFalse(health.isAvailable(FAST));
+        health.clock += 1_000;
+        assertTrue(health.tryAcquireTrial(FAST));
+    }
+
+    @Test
+    public void abandonedTrialExpires() {
+        TestHealth health = new TestHealth();
+        trip(health, FAST);
+        health.clock += 30_000;
+        assertTrue(health.tryAcquireTrial(FAST));
+        health.clock += 29_000;
+        assertFalse(health.tryAcquireTrial(FAST));
+        health.clock += 1_000;
+        assertTrue(health.tryAcquireTrial(FAST));
+    }
+
+    @Test
+    public void censoredWaitOnlyRaisesTheEstimate() {
+        TestHealth health = new TestHealth();
+        health.recordSuccess(FAST, 500, 200);
+        health.recordCensored(FAST, 200);
+        assertEquals(500, health.getTtfbMs(FAST), 0.001);
+        health.recordCensored(FAST, 1500);
+        assertEquals(800, health.getTtfbMs(FAST), 0.001);
+    }
+
+    @Test
+    public void censoredWaitSeedsAnUnmeasuredProvider() {
+        TestHealth health = new TestHealth();
+        health.recordCensored(SLOW, 1200);
+        assertEquals(1200, health.getTtfbMs(SLOW), 0.001);
+    }
+}
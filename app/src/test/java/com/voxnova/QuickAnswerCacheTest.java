@@ -0,0 +1,53 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.voxnova.QuickAnswerCache.Policy;
+import com.voxnova.QuickAnswerCache.Serve;
+
+import org.junit.Test;
+
+public class QuickAnswerCacheTest {
+    private static final long TTL = 60_000;
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    @Test
+    public void noneIsNeverServed() {
+        assertEquals(Serve.MISS, QuickAnswerCache.decide(Policy.NONE, 0, TTL));
+        assertFalse(QuickAnswerCache.needsRefresh(Policy.NONE, TTL, TTL));
+    }
+
+    @Test
+    public void ttlServesUntilItExpires() {
+        assertEquals(Serve.FRESH, QuickAnswerCache.decide(Policy.TTL, 0, TTL));
+        assertEquals(Serve.FRESH, QuickAnswerCache.decide(Policy.TTL, TTL - 1, TTL));
+        assertEquals(Serve.MISS, QuickAnswerCache.decide(Policy.TTL, TTL, TTL));
+    }
+
+    @Test
+    public void ttlNeverRefreshesInTheBackground() {
+        assertFalse(QuickAnswerCache.needsRefresh(Policy.TTL, TTL - 1, TTL));
+    }
+
+    @Test
+    public void refreshAheadServesStaleAnswers() {
+        assertEquals(Serve.FRESH, QuickAnswerCache.decide(Policy.REFRESH_AHEAD, TTL - 1, TTL));
+        assertEquals(Serve.STALE, QuickAnswerCache.decide(Policy.REFRESH_AHEAD, TTL, TTL));
+        assertEquals(Serve.STALE, QuickAnswerCache.decide(Policy.REFRESH_AHEAD, DAY - 1, TTL));
+    }
+
+    @Test
+    public void refreshAheadGivesUpAfterADay() {
+        assertEquals(Serve.MISS, QuickAnswerCache.decide(Policy.REFRESH_AHEAD, DAY, TTL));
+        assertFalse(QuickAnswerCache.needsRefresh(Policy.REFRESH_AHEAD, DAY, TTL));
+    }
+
+    @Test
+    public void refreshStartsThreeQuartersIntoTheTtl() {
+        assertFalse(QuickAnswerCache.needsRefresh(Policy.REFRESH_AHEAD, TTL * 3 / 4 - 1, TTL));
+        assertTrue(QuickAnswerCache.needsRefresh(Policy.REFRESH_AHEAD, TTL * 3 / 4, TTL));
+        assertTrue(QuickAnswerCache.needsRefresh(Policy.REFRESH_AHEAD, TTL * 2, TTL));
+    }
+}
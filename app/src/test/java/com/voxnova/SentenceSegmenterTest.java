@@ -0,0 +1,87 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SentenceSegmenterTest {
+
+    private static List<String> feed(SentenceSegmenter segmenter, String... deltas) {
+        List<String> segments = new ArrayList<>();
+        for (String delta : deltas) segments.addAll(segmenter.append(delta));
+        String rest = segmenter.flush();
+        if (!rest.isEmpty()) segments.add(rest);
+        return segments;
+    }
+
+    @Test
+    public void splitsSentences() {
+        SentenceSegmenter segmenter = new SentenceSegmenter("en-US");
+        assertEquals(Arrays.asList("Hello there.", "How are you?", "Fine!"),
+                feed(segmenter, "Hello there. How are you? Fine!"));
+    }
+
+    @Test
+    public void waitsForWhatFollowsTheTerminator() {
+        SentenceSegmenter segmenter = new SentenceSegmenter("en-US");
+        assertTrue(segmenter.append("It costs 3.").isEmpty());
+        assertEquals(Arrays.asList("It costs 3.5 dollars."), segmenter.append("5 dollars. "));
+    }
+
+    @Test
+    public void sameSegmentsWhateverTheDeltas() {
+        String text = "First sentence here. Second one, with a clause! Third?";
+        List<String> whole = feed(new SentenceSegmenter("en-US"), text);
+        List<String> pieces = new ArrayList<>();
+        for (char c : text.toCharArray()) pieces.add(String.valueOf(c));
+        assertEquals(whole, feed(new SentenceSegmenter("en-US"), pieces.toArray(new String[0])));
+    }
+
+    @Test
+    public void keepsAbbreviationsAndInitials() {
+        assertEquals(Arrays.asList("Dr. Smith met J. Doe today.", "Done."),
+                feed(new SentenceSegmenter("en-US"), "Dr. Smith met J. Doe today. Done."));
+        assertEquals(Arrays.asList("La Sra. Pérez llegó.", "Bien."),
+                feed(new SentenceSegmenter("es-ES"), "La Sra. Pérez llegó. Bien."));
+    }
+
+    @Test
+    public void swallowsClosingQuotesAndRuns() {
+        assertEquals(Arrays.asList("He said \"no!\"", "Really?!", "Yes."),
+                feed(new SentenceSegmenter("en-US"), "He said \"no!\" Really?! Yes."));
+    }
+
+    @Test
+    public void cutsTheFirstClauseEarly() {
+        SentenceSegmenter segmenter = new SentenceSegmenter("en-US");
+        List<String> segments = segmenter.append("Well, the weather tomorrow looks good, with sun all day ");
+        assertEquals(Arrays.asList("Well, the weather tomorrow looks good,"), segments);
+    }
+
+    @Test
+    public void capsRunOnText() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 600) text.append("word ");
+        List<String> segments = new SentenceSegmenter("en-US").append(text);
+        assertTrue(segments.size() >= 2);
+        for (String segment : segments) assertTrue(segment.length() <= 240);
+    }
+
+    @Test
+    public void newlineEndsASegment() {
+        assertEquals(Arrays.asList("One", "Two"), feed(new SentenceSegmenter("en-US"), "One\nTwo"));
+    }
+
+    @Test
+    public void resetDropsPendingText() {
+        SentenceSegmenter segmenter = new SentenceSegmenter("en-US");
+        segmenter.append("Half a sent");
+        segmenter.reset();
+        assertEquals("", segmenter.flush());
+    }
+}
@@ -0,0 +1,161 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SpeechTextNormalizerTest {
+
+    private static String sample() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            sb.append("## Resumen ").append(i).append(" 🚀\n")
+                    .append("- El **clima** de hoy es de 23° con 40% de lluvia ☔️ y viento & nubes.\n")
+                    .append("- Más info en https://example.com/weather?id=").append(i).append(" o [aquí](https://example.com).\n")
+                    .append("1. Usa `config_value` para ajustar 👍🏽\n")
+                    .append("```\nint x = ").append(i).append(";\n```\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void dropsEmojiFromBoth() {
+        assertEquals("Listo", SpeechTextNormalizer.forSpeech("Listo 👍🏽", "es"));
+        assertEquals("Listo", SpeechTextNormalizer.forDisplay("Listo 👍🏽"));
+        assertEquals("Family", SpeechTextNormalizer.forDisplay("Family 👨‍👩‍👧"));
+    }
+
+    @Test
+    public void stripsMarkdown() {
+        assertEquals("Title\n• some bold text", SpeechTextNormalizer.forDisplay("## Title\n- some **bold** text"));
+        assertEquals("see the docs", SpeechTextNormalizer.forDisplay("see [the docs](https://example.com)"));
+    }
+
+    @Test
+    public void expandsSymbolsInTheAnswersLanguage() {
+        assertEquals("50 por ciento y 20 grados", SpeechTextNormalizer.forSpeech("50% & 20°", "es-MX"));
+        assertEquals("50 percent and 20 degrees", SpeechTextNormalizer.forSpeech("50% & 20°", "en-US"));
+    }
+
+    @Test
+    public void urlsAreShownButNotSpelledOut() {
+        String text = "More at https://example.com/a?b=1 today";
+        assertEquals(text, SpeechTextNormalizer.forDisplay(text));
+        assertEquals("More at link today", SpeechTextNormalizer.forSpeech(text, "en"));
+    }
+
+    @Test
+    public void codeIsShownButNotSpoken() {
+        String text = "Run this:\n```java\nint x = 1;\n```\nDone.";
+        String display = SpeechTextNormalizer.forDisplay(text);
+        assertTrue(display.contains("int x = 1;"));
+        assertFalse(display.contains("```"));
+        String speech = SpeechTextNormalizer.forSpeech(text, "en");
+        assertFalse(speech.contains("int x"));
+        assertTrue(speech.endsWith("Done."));
+    }
+
+    @Test
+    public void streamedDeltasGiveTheSameText() {
+        String text = sample();
+        for (int size : new int[] {1, 3, 16, 64}) {
+            SpeechTextNormalizer normalizer = new SpeechTextNormalizer("es");
+            StringBuilder speech = new StringBuilder();
+            StringBuilder display = new StringBuilder();
+            for (int offset = 0; offset < text.length(); offset += size) {
+                normalizer.append(text.subSequence(offset, Math.min(text.length(), offset + size)));
+                speech.append(normalizer.takeSpeech());
+                display.append(normalizer.takeDisplay());
+            }
+            normalizer.flush();
+            speech.append(normalizer.takeSpeech());
+            display.append(normalizer.takeDisplay());
+            assertEquals(SpeechTextNormalizer.forSpeech(text, "es"), speech.toString().trim());
+            assertEquals(SpeechTextNormalizer.forDisplay(text), display.toString());
+        }
+    }
+
+    @Test
+    public void displayDeltaHoldsTrailingWhitespaceBack() {
+        SpeechTextNormalizer normalizer = new SpeechTextNormalizer("en");
+        normalizer.append("First line\n");
+        assertEquals("First line", normalizer.takeDisplay());
+        assertEquals("", normalizer.takeDisplay());
+        normalizer.append("Second ");
+        assertEquals("\nSecond", normalizer.takeDisplay());
+    }
+
+    /**
+     * Bytes allocated by this thread while streaming the text through a
+     * normalizer in deltas of the given size, taking both outputs after
+     * every delta. The least of a few runs, so one-off allocations by the
+     * runtime don't count.
+     */
+    private static long streamedAllocation(String text, int deltaSize) {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        List<String> deltas = new ArrayList<>();
+        for (int offset = 0; offset < text.length(); offset += deltaSize) {
+            deltas.add(text.substring(offset, Math.min(text.length(), offset + deltaSize)));
+        }
+        long thread = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            SpeechTextNormalizer normalizer = new SpeechTextNormalizer("es");
+            for (String delta : deltas) {
+                normalizer.append(delta);
+                normalizer.takeSpeech();
+                normalizer.takeDisplay();
+            }
+            normalizer.flush();
+            normalizer.takeSpeech();
+            normalizer.takeDisplay();
+            least = Math.min(least, threads.getThreadAllocatedBytes(thread) - before);
+        }
+        return least;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        return threads;
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder sb = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) sb.append(text);
+        return sb.toString();
+    }
+
+    /**
+     * Streaming allocates little beyond the text it hands back: about 11
+     * bytes per input character in 16-character deltas on this sample.
+     */
+    @Test
+    public void streamingAllocatesLittlePerCharacter() {
+        String text = repeat(sample(), 4);
+        long bytes = streamedAllocation(text, 16);
+        assertTrue(bytes + " bytes for " + text.length() + " chars", bytes < 24L * text.length());
+    }
+
+    /**
+     * A delta costs the same however long the answer already is, so a
+     * streamed answer is linear in its length.
+     */
+    @Test
+    public void streamingCostDoesNotGrowWithTheAnswer() {
+        String text = sample();
+        long once = streamedAllocation(text, 16);
+        long fourTimes = streamedAllocation(repeat(text, 4), 16);
+        assertTrue(once + " bytes once, " + fourTimes + " bytes four times", fourTimes < once * 5);
+    }
+}
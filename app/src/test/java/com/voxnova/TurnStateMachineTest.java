@@ -0,0 +1,101 @@
+package com.voxnova;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.voxnova.TurnStateMachine.Phase;
+
+import org.junit.Test;
+
+public class TurnStateMachineTest {
+
+    @Test
+    public void beginSupersedesTheLastTurn() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int first = turns.begin();
+        int second = turns.begin();
+        assertEquals(first + 1, second);
+        assertEquals(second, turns.currentId());
+        assertFalse(turns.isCurrent(first));
+        assertTrue(turns.isCurrent(second));
+    }
+
+    @Test
+    public void noTurnBeforeTheFirstBegin() {
+        TurnStateMachine turns = new TurnStateMachine();
+        assertFalse(turns.isCurrent(0));
+        turns.enter(0, Phase.LISTENING);
+        assertFalse(turns.isActive(0, Phase.LISTENING));
+    }
+
+    @Test
+    public void phasesAreTrackedPerTurn() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int id = turns.begin();
+        turns.enter(id, Phase.LISTENING);
+        turns.enter(id, Phase.CONNECTING);
+        assertTrue(turns.isActive(id, Phase.LISTENING));
+        assertTrue(turns.isActive(id, Phase.CONNECTING));
+        turns.exit(id, Phase.LISTENING);
+        assertFalse(turns.isActive(id, Phase.LISTENING));
+        assertTrue(turns.isActive(id, Phase.CONNECTING));
+    }
+
+    @Test
+    public void staleTurnsCannotChangePhases() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int old = turns.begin();
+        turns.enter(old, Phase.GENERATING);
+        int id = turns.begin();
+        assertFalse(turns.isActive(old, Phase.GENERATING));
+        assertFalse(turns.isActive(id, Phase.GENERATING));
+        turns.enter(old, Phase.SPEAKING);
+        assertFalse(turns.isActive(id, Phase.SPEAKING));
+    }
+
+    @Test
+    public void endedTurnStaysCurrentButTakesNoPhases() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int id = turns.begin();
+        turns.enter(id, Phase.SPEAKING);
+        turns.end(id, "done");
+        assertTrue(turns.isCurrent(id));
+        assertFalse(turns.isActive(id, Phase.SPEAKING));
+        turns.enter(id, Phase.LISTENING);
+        assertFalse(turns.isActive(id, Phase.LISTENING));
+    }
+
+    @Test
+    public void allowedOverlapIsEntered() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int id = turns.begin();
+        assertTrue(turns.enter(id, Phase.GENERATING));
+        assertTrue(turns.enter(id, Phase.SPEAKING));
+        assertTrue(turns.enter(id, Phase.SPEAKING));
+        assertTrue(turns.isActive(id, Phase.GENERATING));
+        assertTrue(turns.isActive(id, Phase.SPEAKING));
+    }
+
+    @Test
+    public void illegalOverlapIsRefused() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int id = turns.begin();
+        assertTrue(turns.enter(id, Phase.SPEAKING));
+        assertFalse(turns.enter(id, Phase.RESETTING));
+        assertFalse(turns.enter(id, Phase.LISTENING));
+        assertTrue(turns.isActive(id, Phase.SPEAKING));
+        assertFalse(turns.isActive(id, Phase.RESETTING));
+        assertFalse(turns.isActive(id, Phase.LISTENING));
+    }
+
+    @Test
+    public void staleOrEndedTurnsAreRefused() {
+        TurnStateMachine turns = new TurnStateMachine();
+        int old = turns.begin();
+        int id = turns.begin();
+        assertFalse(turns.enter(old, Phase.LISTENING));
+        turns.end(id, "done");
+        assertFalse(turns.enter(id, Phase.LISTENING));
+    }
+}